@@ -1,5 +0,0 @@
-package com.myphysicslab.simlab;
-
-public interface DiffEqSolver {
-  public void step(double time);
-}
@@ -0,0 +1,19 @@
+package com.myphysicslab.simlab;
+
+/////////////////////////////////////////////////////////////////////////////////
+// The same diff eq for many instances at once, e.g. a double pendulum with
+// different starting angles.  The vars of all instances are in one array,
+// instance m has the variables x[m*N] ... x[m*N + N-1], N = getVarCount().
+// Used by BatchRungeKutta, which needs no Simulation, canvas or controls.
+public interface BatchDiffEq {
+  /* number of variables of one instance */
+  public int getVarCount();
+
+  /* evaluates the instances from, from+1 ... to-1:  for each of them
+     the change rates of x[m*N ...] are written to change[m*N ...].
+     Called concurrently for disjoint ranges, so it must not modify shared state. */
+  public void evaluate(double[] x, double[] change, int from, int to);
+
+  /* like DiffEq.getCalc(), the same for all instances, length getVarCount() */
+  public boolean[] getCalc();
+}
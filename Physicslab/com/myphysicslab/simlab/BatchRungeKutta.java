@@ -0,0 +1,153 @@
+package com.myphysicslab.simlab;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/////////////////////////////////////////////////////////////////////////////////
+// Runge-Kutta for many instances of a BatchDiffEq, e.g. for a parameter sweep.
+// The vars of all instances are kept in one contiguous array (see BatchDiffEq).
+// The instances are independent, so they are split into one block per thread and
+// each thread does all four stages of its block on its own:  there is no
+// synchronisation between the stages and the only waiting is at the end of step().
+// The caller thread works on the first block itself.
+public class BatchRungeKutta implements DiffEqSolver {
+  BatchDiffEq ode;
+  int M, N;
+  double[] vars, inp, k1, k2, k3, k4;
+  private ExecutorService pool;
+  private List<Block> blocks = new ArrayList<Block>();
+  private double stepSize;
+  private long instanceSteps = 0;
+
+  // one thread per processor
+  public BatchRungeKutta(BatchDiffEq ode, int instances) {
+    this(ode, instances, Runtime.getRuntime().availableProcessors());
+  }
+
+  public BatchRungeKutta(BatchDiffEq ode, int instances, int threads) {
+    this.ode = ode;
+    this.M = instances;
+    this.N = ode.getVarCount();
+    vars = new double[M*N];
+    inp = new double[M*N];
+    k1 = new double[M*N];
+    k2 = new double[M*N];
+    k3 = new double[M*N];
+    k4 = new double[M*N];
+    threads = Math.max(1, Math.min(threads, M));
+    for (int t=0; t<threads; t++)
+      blocks.add(new Block(t*M/threads, (t+1)*M/threads));
+    if (threads > 1) {
+      pool = Executors.newFixedThreadPool(threads - 1, new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+          Thread t = new Thread(r, "BatchRungeKutta");
+          t.setDaemon(true);  // don't keep the program alive
+          return t;
+        }
+      });
+    }
+  }
+
+  // all vars, instance m starts at m*getVarCount()
+  public double[] getVars() {
+    return vars;
+  }
+
+  public int getInstances() {
+    return M;
+  }
+
+  public int getVarCount() {
+    return N;
+  }
+
+  public int getThreads() {
+    return blocks.size();
+  }
+
+  // sets the vars of instance m
+  public void setVars(int m, double[] x) {
+    System.arraycopy(x, 0, vars, m*N, N);
+  }
+
+  // variable i of instance m
+  public double getVar(int m, int i) {
+    return vars[m*N + i];
+  }
+
+  public void step(double stepSize) {
+    this.stepSize = stepSize;
+    if (pool == null) {
+      blocks.get(0).call();
+    } else {
+      List<Future<Object>> futures = new ArrayList<Future<Object>>(blocks.size());
+      for (int t=1; t<blocks.size(); t++)
+        futures.add(pool.submit(blocks.get(t)));
+      blocks.get(0).call();
+      try {
+        for (int t=0; t<futures.size(); t++)
+          futures.get(t).get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      } catch (ExecutionException e) {
+        throw new RuntimeException(e.getCause());
+      }
+    }
+    instanceSteps += M;
+  }
+
+  // nothing is kept between steps
+  public void reset() {
+  }
+
+  // instances times steps so far
+  public long getInstanceSteps() {
+    return instanceSteps;
+  }
+
+  // stops the threads, step() can't be called afterwards
+  public void shutdown() {
+    if (pool != null)
+      pool.shutdown();
+  }
+
+  public String toString() {
+    return "BatchRungeKutta instances="+M+" vars="+N+" threads="+blocks.size();
+  }
+
+  // the four stages for the instances from ... to-1
+  private class Block implements Callable<Object> {
+    final int from, to, lo, hi;
+
+    Block(int from, int to) {
+      this.from = from;
+      this.to = to;
+      this.lo = from*N;
+      this.hi = to*N;
+    }
+
+    public Object call() {
+      double h = stepSize;
+      boolean[] calc = ode.getCalc();
+      int i;
+      ode.evaluate(vars, k1, from, to);  // evaluate at time t
+      for (i=lo; i<hi; i++)
+        inp[i] = vars[i]+k1[i]*h/2;
+      ode.evaluate(inp, k2, from, to);   // evaluate at time t+h/2
+      for (i=lo; i<hi; i++)
+        inp[i] = vars[i]+k2[i]*h/2;
+      ode.evaluate(inp, k3, from, to);   // evaluate at time t+h/2
+      for (i=lo; i<hi; i++)
+        inp[i] = vars[i]+k3[i]*h;
+      ode.evaluate(inp, k4, from, to);   // evaluate at time t+h
+      for (int o=lo; o<hi; o+=N)
+        for (int j=0; j<N; j++)
+          if (calc[j]) {
+            i = o+j;
+            vars[i] = vars[i]+(k1[i]+2*k2[i]+2*k3[i]+k4[i])*h/6;
+          }
+      return null;
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package com.myphysicslab.simlab;
+
+/////////////////////////////////////////////////////////////////////////////////
+// Advances every frame by exactly the same number of steps, whatever the wall clock
+// says.  Two runs with the same inputs give the same vars, also on a loaded machine,
+// so it is the clock for headless runs, tests and recordings.
+public class DeterministicClock implements SimClock {
+  private final double stepSize;
+  private final int stepsPerFrame;
+  private long frames = 0;
+
+  public DeterministicClock(double stepSize, int stepsPerFrame) {
+    this.stepSize = stepSize;
+    this.stepsPerFrame = stepsPerFrame;
+  }
+
+  public int steps() {
+    frames++;
+    return stepsPerFrame;
+  }
+
+  public double getStepSize() {
+    return stepSize;
+  }
+
+  // simulated time, without the rounding errors of adding up the steps
+  public double getTime() {
+    return frames*stepsPerFrame*stepSize;
+  }
+
+  public String toString() {
+    return "DeterministicClock stepSize="+stepSize+" stepsPerFrame="+stepsPerFrame
+        +" frames="+frames;
+  }
+}
@@ -0,0 +1,9 @@
+package com.myphysicslab.simlab;
+
+public interface DiffEqSolver {
+  public void step(double time);
+
+  /* forgets everything remembered from earlier steps, called when the diff eq
+     itself changed (a parameter like mass or gravity), which the solver can't see */
+  public void reset();
+}
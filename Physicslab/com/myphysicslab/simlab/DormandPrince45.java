@@ -0,0 +1,259 @@
+package com.myphysicslab.simlab;
+
+/////////////////////////////////////////////////////////////////////////////////
+// Dormand-Prince 5(4) method with adaptive step size.
+// step(time) advances the diff eq by 'time', but internally the solver takes its own
+// steps, as large as the tolerances allow:  |err[i]| <= absTol[i] + relTol[i]*|vars[i]|
+// Too large steps are rejected and retried, the step size is chosen by a PI controller
+// (Gustafsson), which avoids the oscillating step sizes of a plain controller.
+// A step may reach beyond the requested time, the vars are then interpolated with the
+// free 4th order dense output of the method.  So a calm simulation needs at most one
+// step (6 evaluations) per frame, while a stiff moment takes as many small steps as needed.
+// If the vars or the getCalc() mask were changed from outside since the last call
+// (mouse drag, collision handling) the solver starts again from the new vars,
+// after a change of a parameter reset() has to be called.
+// Variables with getCalc()[i] == false are not modified and not part of the error.
+public class DormandPrince45 implements DiffEqSolver {
+  // Butcher tableau
+  private static final double
+    A21 = 1.0/5,
+    A31 = 3.0/40, A32 = 9.0/40,
+    A41 = 44.0/45, A42 = -56.0/15, A43 = 32.0/9,
+    A51 = 19372.0/6561, A52 = -25360.0/2187, A53 = 64448.0/6561, A54 = -212.0/729,
+    A61 = 9017.0/3168, A62 = -355.0/33, A63 = 46732.0/5247, A64 = 49.0/176,
+    A65 = -5103.0/18656,
+    A71 = 35.0/384, A73 = 500.0/1113, A74 = 125.0/192, A75 = -2187.0/6784,
+    A76 = 11.0/84;
+  // difference between the 5th and the embedded 4th order solution
+  private static final double
+    E1 = 71.0/57600, E3 = -71.0/16695, E4 = 71.0/1920, E5 = -17253.0/339200,
+    E6 = 22.0/525, E7 = -1.0/40;
+  // dense output, see Hairer, Norsett & Wanner, Solving ODEs I, II.6
+  private static final double
+    D1 = -12715105075.0/11282082432.0, D3 = 87487479700.0/32700410799.0,
+    D4 = -10690763975.0/1880347072, D5 = 701980252875.0/199316789632.0,
+    D6 = -1453857185.0/822651844, D7 = 69997945.0/29380423;
+  // PI controller, see Hairer & Wanner, Solving ODEs II, IV.2
+  private static final double BETA = 0.04;
+  private static final double ALPHA = 0.2 - 0.75*BETA;
+  private static final double SAFETY = 0.9;
+  private static final double MIN_FACTOR = 0.2;  // step shrinks by at most 5
+  private static final double MAX_FACTOR = 10;   // step grows by at most 10
+  // a step is never longer than this many requested times, so a change the
+  // solver can't see (see reset()) is at most about one frame late
+  private static final double MAX_STEP = 1;
+  // a step this small compared to the requested time is accepted anyway
+  private static final double MIN_STEP = 1e-10;
+  private static final int MAX_STEPS = 100000;
+
+  DiffEq ode;
+  double[] inp, out, k1, k2, k3, k4, k5, k6, k7;
+  // start and end of the last step, its dense output, the vars written by the last call
+  double[] y1, r1, r2, r3, r4, r5, written;
+  boolean[] calcWritten;
+  double[] absTol, relTol;
+  private double defaultAbsTol, defaultRelTol;
+  private double h = 0;  // size of the next step
+  private double errOld = 1e-4;
+  // the last step went from stepStart to stepEnd, relative to the time of the vars
+  private double stepStart = 0, stepEnd = 0;
+  private boolean valid = false;  // y1, k1 and the dense output belong to the vars
+  // statistics
+  private long evaluations = 0, accepted = 0, rejected = 0, restarts = 0;
+
+  public DormandPrince45(DiffEq ode) {
+    this(ode, 1e-6, 1e-6);
+  }
+
+  // absTol and relTol are used for all variables, see setTolerance()
+  public DormandPrince45(DiffEq ode, double absTol, double relTol) {
+    this.ode = ode;
+    this.defaultAbsTol = absTol;
+    this.defaultRelTol = relTol;
+  }
+
+  // tolerance of one variable, e.g. an angle needs another one than a position in pixels
+  public void setTolerance(int i, double abs, double rel) {
+    allocate(Math.max(i+1, ode.getVars().length));
+    absTol[i] = abs;
+    relTol[i] = rel;
+  }
+
+  private void allocate(int N) {
+    if (inp == null || inp.length != N) {
+      inp = new double[N];
+      out = new double[N];
+      k1 = new double[N];
+      k2 = new double[N];
+      k3 = new double[N];
+      k4 = new double[N];
+      k5 = new double[N];
+      k6 = new double[N];
+      k7 = new double[N];
+      y1 = new double[N];
+      r1 = new double[N];
+      r2 = new double[N];
+      r3 = new double[N];
+      r4 = new double[N];
+      r5 = new double[N];
+      written = new double[N];
+      calcWritten = new boolean[N];
+      int old = absTol == null ? 0 : absTol.length;
+      double[] a = new double[N], r = new double[N];
+      for (int i=0; i<N; i++) {
+        a[i] = i < old ? absTol[i] : defaultAbsTol;
+        r[i] = i < old ? relTol[i] : defaultRelTol;
+      }
+      absTol = a;
+      relTol = r;
+      valid = false;
+    }
+  }
+
+  public void step(double time) {
+    if (time <= 0)
+      return;
+    double[] vars = ode.getVars();
+    int N = vars.length;
+    allocate(N);
+    boolean[] calc = ode.getCalc();
+    int i;
+    if (valid) {
+      for (i=0; i<N && valid; i++)
+        valid = vars[i] == written[i] && calc[i] == calcWritten[i];
+    }
+    if (!valid) {
+      // start from the vars as they are now
+      System.arraycopy(vars, 0, y1, 0, N);
+      stepStart = stepEnd = 0;
+      ode.evaluate(y1, k1);
+      evaluations++;
+      restarts++;
+      valid = true;
+    }
+    int steps = 0;
+    while (stepEnd < time) {
+      double hs = Math.min(h <= 0 ? time : h, MAX_STEP*time);
+      double err = tryStep(hs, calc, N);
+      steps++;
+      if (err <= 1 || hs <= MIN_STEP*time || steps >= MAX_STEPS || Double.isNaN(err)) {
+        // accept, prepare the dense output over the new step
+        for (i=0; i<N; i++) {
+          double ydiff = out[i] - y1[i];
+          double bspl = hs*k1[i] - ydiff;
+          r1[i] = y1[i];
+          r2[i] = ydiff;
+          r3[i] = bspl;
+          r4[i] = ydiff - hs*k7[i] - bspl;
+          r5[i] = hs*(D1*k1[i] + D3*k3[i] + D4*k4[i] + D5*k5[i] + D6*k6[i]
+              + D7*k7[i]);
+        }
+        // the derivative at the new point is k1 of the next step
+        double[] swap = y1;
+        y1 = out;
+        out = swap;
+        swap = k1;
+        k1 = k7;
+        k7 = swap;
+        stepStart = stepEnd;
+        stepEnd += hs;
+        accepted++;
+        double fac = err == 0 ? MAX_FACTOR
+            : SAFETY*Math.pow(err, -ALPHA)*Math.pow(errOld, BETA);
+        h = hs*Math.max(MIN_FACTOR, Math.min(MAX_FACTOR, fac));
+        errOld = Math.max(err, 1e-4);
+      } else {
+        // reject, try again with a smaller step, y1 and k1 are unchanged
+        rejected++;
+        h = hs*Math.max(MIN_FACTOR, SAFETY*Math.pow(err, -ALPHA));
+      }
+    }
+    // vars at 'time' within the last step
+    double theta = (time - stepStart)/(stepEnd - stepStart);
+    double theta1 = 1 - theta;
+    for (i=0; i<N; i++) {
+      if (calc[i])
+        vars[i] = r1[i] + theta*(r2[i] + theta1*(r3[i] + theta*(r4[i]
+            + theta1*r5[i])));
+      written[i] = vars[i];
+      calcWritten[i] = calc[i];
+    }
+    // from now on times are relative to the new vars
+    stepStart -= time;
+    stepEnd -= time;
+  }
+
+  // one step of size hs from y1 into out, returns the error relative to the tolerances
+  private double tryStep(double hs, boolean[] calc, int N) {
+    int i;
+    double[] y = y1;
+    for (i=0; i<N; i++)
+      inp[i] = calc[i] ? y[i] + hs*A21*k1[i] : y[i];
+    ode.evaluate(inp, k2);
+    for (i=0; i<N; i++)
+      inp[i] = calc[i] ? y[i] + hs*(A31*k1[i] + A32*k2[i]) : y[i];
+    ode.evaluate(inp, k3);
+    for (i=0; i<N; i++)
+      inp[i] = calc[i] ? y[i] + hs*(A41*k1[i] + A42*k2[i] + A43*k3[i]) : y[i];
+    ode.evaluate(inp, k4);
+    for (i=0; i<N; i++)
+      inp[i] = calc[i] ? y[i] + hs*(A51*k1[i] + A52*k2[i] + A53*k3[i]
+          + A54*k4[i]) : y[i];
+    ode.evaluate(inp, k5);
+    for (i=0; i<N; i++)
+      inp[i] = calc[i] ? y[i] + hs*(A61*k1[i] + A62*k2[i] + A63*k3[i]
+          + A64*k4[i] + A65*k5[i]) : y[i];
+    ode.evaluate(inp, k6);
+    for (i=0; i<N; i++)
+      out[i] = calc[i] ? y[i] + hs*(A71*k1[i] + A73*k3[i] + A74*k4[i]
+          + A75*k5[i] + A76*k6[i]) : y[i];
+    ode.evaluate(out, k7);
+    evaluations += 6;
+    // root mean square of the errors relative to their tolerances
+    double sum = 0;
+    int n = 0;
+    for (i=0; i<N; i++) {
+      if (!calc[i])
+        continue;
+      double e = hs*(E1*k1[i] + E3*k3[i] + E4*k4[i] + E5*k5[i] + E6*k6[i]
+          + E7*k7[i]);
+      double sc = absTol[i] + relTol[i]*Math.max(Math.abs(y[i]), Math.abs(out[i]));
+      sum += (e/sc)*(e/sc);
+      n++;
+    }
+    return n == 0 ? 0 : Math.sqrt(sum/n);
+  }
+
+  // drops the step computed with the old parameters, the step size is kept
+  public void reset() {
+    valid = false;
+  }
+
+  // number of calls to evaluate() so far
+  public long getEvaluations() {
+    return evaluations;
+  }
+
+  public long getAccepted() {
+    return accepted;
+  }
+
+  public long getRejected() {
+    return rejected;
+  }
+
+  // times the vars were changed from outside and the solver had to start again
+  public long getRestarts() {
+    return restarts;
+  }
+
+  // size the next step will try
+  public double getStepSize() {
+    return h;
+  }
+
+  public String toString() {
+    return "DormandPrince45 evaluations="+evaluations+" accepted="+accepted
+        +" rejected="+rejected+" restarts="+restarts+" h="+h;
+  }
+}
@@ -222,6 +222,12 @@ public class DoublePendulum extends Simulation implements ActionListener
     }
   }
 
+  // Near the singular configurations (both sticks folded) the
+  // angles change very fast, an adaptive step is cheaper than a tiny fixed one.
+  protected int getStructure() {
+    return VARYING;
+  }
+
   /*  Equations for double pendulum
 
       L1,L2 = stick lengths
@@ -256,33 +262,35 @@ public class DoublePendulum extends Simulation implements ActionListener
 
   */
   public void evaluate(double[] x, double[] change) {
-    double th1 = x[0];
-    double dth1 = x[1];
-    double th2 = x[2];
-    double dth2 = x[3];
-    double m2 = m_Mass2.m_Mass;
-    double m1 = m_Mass1.m_Mass;
-    double L1 = m_Stick1.m_RestLength;
-    double L2 = m_Stick2.m_RestLength;
-    double g = gravity;
+    evaluate(x, change, 0, m_Mass1.m_Mass, m_Mass2.m_Mass,
+        m_Stick1.m_RestLength, m_Stick2.m_RestLength, gravity);
+  }
+
+  // the equations for the 4 variables starting at x[o], shared with DoublePendulumBatch
+  static void evaluate(double[] x, double[] change, int o, double m1,
+      double m2, double L1, double L2, double g) {
+    double th1 = x[o];
+    double dth1 = x[o+1];
+    double th2 = x[o+2];
+    double dth2 = x[o+3];
 
-    change[0] = dth1;
+    change[o] = dth1;
 
     double num = -g*(2*m1+m2)*Math.sin(th1);
     num = num - g*m2*Math.sin(th1-2*th2);
     num = num - 2*m2*dth2*dth2*L2*Math.sin(th1-th2);
     num = num - m2*dth1*dth1*L1*Math.sin(2*(th1-th2));
     num = num/(L1*(2*m1+m2-m2*Math.cos(2*(th1-th2))));
-    change[1] = num;
+    change[o+1] = num;
 
-    change[2] = dth2;
+    change[o+2] = dth2;
 
     num = (m1+m2)*dth1*dth1*L1;
     num = num + g*(m1+m2)*Math.cos(th1);
     num = num + m2*dth2*dth2*L2*Math.cos(th1-th2);
     num = num*2*Math.sin(th1-th2);
     num = num/(L2*(2*m1+m2-m2*Math.cos(2*(th1-th2))));
-    change[3] = num;
+    change[o+3] = num;
   }
 
 }
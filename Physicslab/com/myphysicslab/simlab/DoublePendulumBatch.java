@@ -0,0 +1,70 @@
+package com.myphysicslab.simlab;
+
+/////////////////////////////////////////////////////////////////////////////////
+// The double pendulum of DoublePendulum as a BatchDiffEq, without canvas and controls.
+// All instances have the same masses, lengths and gravity, only their vars differ.
+// The variables of each instance are:  theta1, theta1', theta2, theta2'
+//
+// java com.myphysicslab.simlab.DoublePendulumBatch [instances] [steps]
+// prints the throughput for 1 ... availableProcessors threads.
+public class DoublePendulumBatch implements BatchDiffEq {
+  private double m1 = 0.5, m2 = 0.5, L1 = 1, L2 = 1, gravity = 9.8;
+  private boolean[] calc = {true, true, true, true};
+
+  public DoublePendulumBatch() {
+  }
+
+  public DoublePendulumBatch(double m1, double m2, double L1, double L2,
+      double gravity) {
+    this.m1 = m1;
+    this.m2 = m2;
+    this.L1 = L1;
+    this.L2 = L2;
+    this.gravity = gravity;
+  }
+
+  public int getVarCount() {
+    return 4;
+  }
+
+  public boolean[] getCalc() {
+    return calc;
+  }
+
+  public void evaluate(double[] x, double[] change, int from, int to) {
+    // read the fields once, the loop then only works on the arrays
+    double m1 = this.m1, m2 = this.m2, L1 = this.L1, L2 = this.L2, g = gravity;
+    for (int o=4*from, end=4*to; o<end; o+=4)
+      DoublePendulum.evaluate(x, change, o, m1, m2, L1, L2, g);
+  }
+
+  // instances with theta1 evenly spread over -maxAngle ... maxAngle, all at rest
+  public static void sweep(BatchRungeKutta rk, double maxAngle) {
+    int M = rk.getInstances();
+    double[] x = new double[4];
+    for (int m=0; m<M; m++) {
+      x[0] = M == 1 ? 0 : -maxAngle + 2*maxAngle*m/(M-1);
+      rk.setVars(m, x);
+    }
+  }
+
+  public static void main(String[] args) {
+    int instances = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    int steps = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+    int cores = Runtime.getRuntime().availableProcessors();
+    DoublePendulumBatch pendulum = new DoublePendulumBatch();
+    for (int threads=1; threads<=cores; threads++) {
+      BatchRungeKutta rk = new BatchRungeKutta(pendulum, instances, threads);
+      sweep(rk, Math.PI/2);
+      for (int i=0; i<steps/10; i++)  // warm up
+        rk.step(0.01);
+      long t0 = System.nanoTime();
+      for (int i=0; i<steps; i++)
+        rk.step(0.01);
+      double seconds = (System.nanoTime() - t0)/1e9;
+      System.out.println(rk+": "+Math.round(instances*(double)steps/seconds)
+          +" instance-steps/s");
+      rk.shutdown();
+    }
+  }
+}
@@ -0,0 +1,125 @@
+package com.myphysicslab.simlab;
+
+/////////////////////////////////////////////////////////////////////////////////
+// Implicit midpoint rule for stiff diff eqs:  y1 = y0 + h f((y0 + y1)/2)
+// It is A-stable, so a stiff spring does not explode at a step size where
+// RungeKutta does, and it is symplectic and keeps quadratic invariants:  the energy
+// of a linear spring system stays exactly the same however large the step.
+// The equation is solved for y1 with a simplified Newton iteration.  The Jacobian of
+// f is approximated by finite differences once per step and every iteration solves
+// (I - h/2 J) dy = -G(y1) with Utility.matrixSolve().
+// Variables with getCalc()[i] == false are not modified and not part of the system.
+public class ImplicitMidpoint implements DiffEqSolver {
+  private static final int MAX_ITERATIONS = 10;
+  DiffEq ode;
+  double[] f, fp, mid, y1, dy;
+  double[][] J, A;
+  int[] idx;  // the calculated variables, in the order of the linear system
+  private double tolerance = 1e-10;
+  // statistics
+  private long evaluations = 0, iterations = 0, failures = 0;
+
+  public ImplicitMidpoint(DiffEq ode) {
+    this.ode = ode;
+  }
+
+  // the iteration stops when no variable changes by more than tolerance*(1 + |y|)
+  public void setTolerance(double tolerance) {
+    this.tolerance = tolerance;
+  }
+
+  public void step(double h) {
+    double[] vars = ode.getVars();
+    boolean[] calc = ode.getCalc();
+    int N = vars.length;
+    if (f == null || f.length != N) {
+      f = new double[N];
+      fp = new double[N];
+      mid = new double[N];
+      y1 = new double[N];
+      idx = new int[N];
+    }
+    int m = 0;
+    for (int i=0; i<N; i++)
+      if (calc[i])
+        idx[m++] = i;
+    if (m == 0)
+      return;
+    if (dy == null || dy.length != m) {
+      dy = new double[m];
+      J = new double[m][m];
+      A = new double[m][m+1];
+    }
+    // predictor:  explicit Euler
+    ode.evaluate(vars, f);
+    evaluations++;
+    System.arraycopy(vars, 0, y1, 0, N);
+    for (int r=0; r<m; r++)
+      y1[idx[r]] = vars[idx[r]] + h*f[idx[r]];
+    // Jacobian at y0 by forward differences
+    for (int c=0; c<m; c++) {
+      int j = idx[c];
+      double eps = 1e-7*Math.max(1, Math.abs(vars[j]));
+      System.arraycopy(vars, 0, mid, 0, N);
+      mid[j] += eps;
+      ode.evaluate(mid, fp);
+      evaluations++;
+      for (int r=0; r<m; r++)
+        J[r][c] = (fp[idx[r]] - f[idx[r]])/eps;
+    }
+    boolean converged = false;
+    for (int it=0; it<MAX_ITERATIONS && !converged; it++) {
+      for (int i=0; i<N; i++)
+        mid[i] = calc[i] ? (vars[i] + y1[i])/2 : vars[i];
+      ode.evaluate(mid, f);
+      evaluations++;
+      iterations++;
+      // (I - h/2 J) dy = -(y1 - y0 - h f(mid))
+      for (int r=0; r<m; r++) {
+        int j = idx[r];
+        for (int c=0; c<m; c++)
+          A[r][c] = (r == c ? 1 : 0) - h/2*J[r][c];
+        A[r][m] = -(y1[j] - vars[j] - h*f[j]);
+      }
+      try {
+        Utility.matrixSolve(A, dy);
+      } catch (IllegalStateException e) {
+        break;
+      }
+      converged = true;
+      for (int r=0; r<m; r++) {
+        int j = idx[r];
+        y1[j] += dy[r];
+        if (Math.abs(dy[r]) > tolerance*(1 + Math.abs(y1[j])))
+          converged = false;
+      }
+    }
+    if (!converged)
+      failures++;
+    for (int r=0; r<m; r++)
+      vars[idx[r]] = y1[idx[r]];
+  }
+
+  // nothing is kept between steps, the Jacobian is taken anew every step
+  public void reset() {
+  }
+
+  // number of calls to evaluate() so far
+  public long getEvaluations() {
+    return evaluations;
+  }
+
+  public long getIterations() {
+    return iterations;
+  }
+
+  // steps where the Newton iteration did not converge, the last iterate was used
+  public long getFailures() {
+    return failures;
+  }
+
+  public String toString() {
+    return "ImplicitMidpoint evaluations="+evaluations+" iterations="+iterations
+        +" failures="+failures;
+  }
+}
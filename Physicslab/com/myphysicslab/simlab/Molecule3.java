@@ -584,6 +584,12 @@ public class Molecule3 extends CollidingSim implements ActionListener, ObjectLis
     }
   }
 
+  // The tight springs need small steps only while they are compressed,
+  // an adaptive step is cheaper than a tiny fixed one.
+  protected int getStructure() {
+    return VARYING;
+  }
+
   /* 2-D spring simulation with gravity
     y increases UP
 
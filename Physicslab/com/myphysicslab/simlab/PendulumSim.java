@@ -223,6 +223,16 @@ public class PendulumSim extends Simulation
     }
   }
 
+  // th' = v, v' depends on th, the damping and the drive only, Verlet keeps the
+  // energy of the undamped pendulum without drift.
+  protected int getStructure() {
+    return SEPARABLE;
+  }
+
+  protected int[] getPositionVelocityPairs() {
+    return new int[] {0, 1};
+  }
+
   /*
     mass is suspended from ceiling on a stick
     origin = connection point of stick to ceiling, with y increasing downwards
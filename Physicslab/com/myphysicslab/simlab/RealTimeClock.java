@@ -0,0 +1,61 @@
+package com.myphysicslab.simlab;
+
+/////////////////////////////////////////////////////////////////////////////////
+// Keeps the simulation in step with the wall clock:  the real time since the last
+// frame is added to an accumulator (in nanoseconds, so nothing is lost to rounding)
+// and as many whole steps as fit are taken, the rest waits for the next frame.
+// After a long delay at most maxSteps are taken and the remaining time is dropped,
+// it will look like the animation paused during the delay, but that's better than
+// a huge discontinuous jump or a slow frame making the next ones even slower.
+public class RealTimeClock implements SimClock {
+  private final double stepSize;
+  private final long stepNanos;
+  private final int maxSteps;
+  private long start = 0, last = 0;
+  private long accumulator = 0;
+  private long dropped = 0;  // nanoseconds that were not simulated
+
+  public RealTimeClock(double stepSize, int maxSteps) {
+    this.stepSize = stepSize;
+    this.stepNanos = Math.max(1, Math.round(stepSize*1e9));
+    this.maxSteps = maxSteps;
+  }
+
+  public int steps() {
+    long now = System.nanoTime();
+    if (start == 0) {  // first frame
+      start = last = now;
+      return 0;
+    }
+    accumulator += now - last;
+    last = now;
+    long n = accumulator/stepNanos;
+    if (n > maxSteps) {
+      Utility.println("time step of "+(accumulator/1e9)+" reduced to "
+          +(maxSteps*stepSize));
+      dropped += accumulator - maxSteps*stepNanos;
+      accumulator = 0;
+      return maxSteps;
+    }
+    accumulator -= n*stepNanos;
+    return (int)n;
+  }
+
+  public double getStepSize() {
+    return stepSize;
+  }
+
+  public double getTime() {
+    return start == 0 ? 0 : (System.nanoTime() - start)/1e9;
+  }
+
+  // real time that was not simulated because of long delays, in seconds
+  public double getDropped() {
+    return dropped/1e9;
+  }
+
+  public String toString() {
+    return "RealTimeClock stepSize="+stepSize+" maxSteps="+maxSteps
+        +" dropped="+getDropped();
+  }
+}
@@ -47,4 +47,8 @@ public class RungeKutta implements DiffEqSolver {
         vars[i] = vars[i]+(k1[i]+2*k2[i]+2*k3[i]+k4[i])*stepSize/6;
 
   }
+
+  // nothing is kept between steps
+  public void reset() {
+  }
 }
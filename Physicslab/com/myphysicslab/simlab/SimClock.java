@@ -0,0 +1,18 @@
+package com.myphysicslab.simlab;
+
+/////////////////////////////////////////////////////////////////////////////////
+// Decides how far Simulation.run() advances the physics in one frame.  The physics
+// always takes steps of exactly getStepSize(), only their number per frame varies,
+// so the result does not depend on how long painting or the SimThread took.
+//   RealTimeClock       keeps up with the wall clock
+//   DeterministicClock  the same number of steps every frame, for reproducible runs
+public interface SimClock {
+  /* the number of steps of getStepSize() to take now, called once per frame */
+  public int steps();
+
+  /* simulated time of one step */
+  public double getStepSize();
+
+  /* seconds since the clock started, real or simulated */
+  public double getTime();
+}
@@ -38,40 +38,49 @@ import java.util.Enumeration;
 import java.util.Vector;
 import javax.swing.*;
 
-public abstract class Simulation implements Runnable, Graphable, MouseDragHandler,
-      DiffEq, Subject {
-  private double lastTime = -9999;
+// The view of a SimulationModel:  canvas, graph and controls in a Swing container.
+// With a null container no view is attached, the elements are still kept up to date
+// by modifyObjects() but nothing is added to a window, so the simulation runs headless.
+public abstract class Simulation extends SimulationModel implements Runnable,
+      MouseDragHandler {
   protected boolean m_Animating = true;
-  protected String[] var_names;
   protected SimCanvas cvs;
   protected Graph graph;  // graph is optional... might be null
   private JCheckBox showGraphCheckbox; // optional... may be null
   private JCheckBox showControlsCheckbox;
   private Listener listener = new Listener();
-  protected double[] vars;  //  variables for Diff Eqn... positions and velocities
-  // calc vector = whether variables are calculated by ode solver
-  protected boolean[] calc;
-  protected DiffEqSolver odeSolver;
   protected Container container;
   private Vector controls = new Vector(10);  // list of controls added by this simulation
-  private Vector observers = new Vector(10);
   private SimLine separatorLine = null;  // for visually separating the graph and other controls
-  protected double startTime = 0;
-  protected double simTime = 0;
+  private SimClock clock;
+  // the physics step of the default clock and the most steps it takes in one frame
+  public static final double STEP_SIZE = 0.01;
+  public static final int MAX_STEPS = 10;
 	private boolean paintControlCludge = true;  // cludge to deal with controls not painting.
 
+  // applet may be null for a simulation without view
   public Simulation(Container applet, int numVars) {
-    this(applet);
-    vars = new double[numVars];
-    calc = new boolean[numVars];
-    for (int i=0; i<calc.length; i++)
-      calc[i] = true;
+    super(numVars);
+    attachView(applet);
   }
 
   public Simulation(Container applet) {
+    super();
+    attachView(applet);
+  }
+
+  // the canvas is always made, the subclasses add their elements to it
+  private void attachView(Container applet) {
     this.container = applet;  // really its the getContentPane() of the JApplet
-    container.add(cvs = makeSimCanvas(), 0);
-    odeSolver = makeDiffEqSolver();
+    cvs = makeSimCanvas();
+    if (container != null)
+      container.add(cvs, 0);
+    clock = makeClock();
+  }
+
+  // whether the simulation is shown in a container
+  public boolean hasView() {
+    return container != null;
   }
 
   // Factory Method, so that particular subclasses can specify other classes.
@@ -85,8 +94,17 @@ public abstract class Simulation implements Runnable, Graphable, MouseDragHandle
   }
 
   // Factory Method, so that particular subclasses can specify other classes.
-  protected DiffEqSolver makeDiffEqSolver() {
-    return new RungeKutta(this);
+  protected SimClock makeClock() {
+    return new RealTimeClock(STEP_SIZE, MAX_STEPS);
+  }
+
+  public SimClock getClock() {
+    return clock;
+  }
+
+  // e.g. a DeterministicClock, so that run() gives the same result on every machine
+  public void setClock(SimClock clock) {
+    this.clock = clock;
   }
 
   // Factory Method, so that particular subclasses can specify other classes.
@@ -175,39 +193,6 @@ public abstract class Simulation implements Runnable, Graphable, MouseDragHandle
     detach(obs);
   }
 
-  /* implementation of Subject interface */
-  public void attach(Observer o) {
-    observers.addElement(o);
-  }
-
-  public void detach(Observer o) {
-    observers.removeElement(o);
-  }
-
-  public void setParameter(String name, double value) {
-    if (trySetParameter(name, value)) {
-      // notify all Observers that the parameter has changed
-      for (Enumeration e = observers.elements(); e.hasMoreElements(); )
-        ((Observer)e.nextElement()).update(this, name, value);
-    } else
-      throw new IllegalArgumentException("no such parameter "+name);
-  }
-
-  public double getParameter(String name) {
-    throw new IllegalArgumentException("no such parameter "+name);
-  }
-  /* end of Subject interface */
-
-  // trySetParameter() returns true if it was able to set the given parameter
-  protected boolean trySetParameter(String name, double value) {
-    return false;
-  }
-
-  public String[] getParameterNames() {
-    // default is to return an empty array of strings, because no parameters.
-    return new String[0];
-  }
-
   protected void graphSetup() {
         throw new IllegalStateException("graphSetup is deprecated");
   }
@@ -260,6 +245,10 @@ public abstract class Simulation implements Runnable, Graphable, MouseDragHandle
   }
 
   protected void shutDown() {
+    if (container == null) {
+      detachAll();
+      return;
+    }
     showControls(false);
     if (graph != null) {
       graph.hideControls(container);
@@ -275,7 +264,7 @@ public abstract class Simulation implements Runnable, Graphable, MouseDragHandle
     if (showControlsCheckbox != null)
       container.remove(showControlsCheckbox);
     controls.removeAllElements();
-    observers.removeAllElements();
+    detachAll();
   }
 
   public synchronized void showControls(boolean wantControls) {
@@ -290,36 +279,6 @@ public abstract class Simulation implements Runnable, Graphable, MouseDragHandle
       showControlsCheckbox.setSelected(wantControls);
   }
 
-  public void setVariable(int i, double value) {
-    if (i>=0 && i<vars.length) {
-      vars[i] = value;
-      modifyObjects();
-    }
-  }
-
-  /* begin Graphable interface */
-  // NOTE:  Some simulations provide 'fake' computed variables
-  // (such as acceleration, kinetic energy, total energy,...)
-  // Such simulations should override some of these methods.
-
-  public int numVariables() {
-    return (vars!=null) ? vars.length : 0;
-  }
-
-  public String getVariableName(int i) {
-    return (var_names!=null) ? var_names[i] : "";
-  }
-
-  public double getVariable(int i) {
-    return (i < vars.length) ? vars[i] : 0;
-  }
-  /* end Graphable interface */
-
-  protected void advance(double time) {
-    odeSolver.step(time);
-    modifyObjects();
-  }
-
 	
   public void run() {
     if (m_Animating) {
@@ -330,7 +289,11 @@ public abstract class Simulation implements Runnable, Graphable, MouseDragHandle
 				// but for now we redraw the entire graph for each dot... computers are fast!
         graph.repaint();
       }
-      advance(getTimeStep());
+      // fixed steps, as many as the clock says are due
+      int n = clock.steps();
+      double h = clock.getStepSize();
+      for (int i=0; i<n; i++)
+        advance(h);
       cvs.repaint();  // causes entire canvas to repaint?
     }
 		// cludge alert!  This is to try to fix the following bug:
@@ -339,47 +302,16 @@ public abstract class Simulation implements Runnable, Graphable, MouseDragHandle
 		// I tried adding a repaint() to the end of SimLayout.layoutContainer(),
 		// which helped but the bug still occurs.
 		// Therefore, try doing a repaint here a second or two after startup.
-		if (paintControlCludge && getTime() > 2.0) {
+		if (paintControlCludge && container != null && getTime() > 2.0) {
 			Utility.println("repaint controls cludge at time="+getTime());
 			container.repaint();
 			paintControlCludge = false;
 		}
   }
 
-  public abstract void modifyObjects();
-
+  // seconds since the simulation started, real or simulated depending on the clock
   public double getTime() {
-    double now = (double)System.currentTimeMillis()/1000;
-    if (startTime == 0) // initialize startTime... used for debugging
-      startTime = now;
-    return now - startTime;
-  }
-
-  public double getTimeStep() {
-    /*
-    double now = (double)System.currentTimeMillis()/10000;
-    // figure out how much time has passed since last simulation step
-    if (startTime == 0) // initialize startTime... used for debugging
-      startTime = now;
-    */
-    double now = getTime();
-    double h;
-    if (lastTime < 0)  // initialization needed
-      h = 0.05;
-    else {
-      h = now - lastTime;
-      // Deal with long delays here...
-      // Limiting step size causes time slippage & animation will stutter.
-      // It will look like the animation "paused" during the delay, but its
-      // better than having the animation do a huge discontinuous jump.
-      final double limit = 0.01;
-      if (h > 0.1) {
-        Utility.println("time step of "+h+" reduced to "+limit);
-        h = limit;
-      }
-    }
-    lastTime = now;
-    return h;
+    return clock.getTime();
   }
 
   /* start of MouseDragHandler interface */
@@ -404,23 +336,5 @@ public abstract class Simulation implements Runnable, Graphable, MouseDragHandle
   }
 
   /* end of MouseDragHandler interface */
-
-  /* implementation of DiffEq protocol */
-
-  public double[] getVars() {
-    return vars;
-  }
-
-  public boolean[] getCalc() {
-    return calc;
-  }
-  /* end of DiffEq protocol */
-
-  public String toString() {
-    String s = getClass().getName() + " with "+ 
-      (vars!=null ? vars.length+" variables " : "no variables");
-    return s;
-  }
 }
 
-
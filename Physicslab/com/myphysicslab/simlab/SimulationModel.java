@@ -0,0 +1,204 @@
+package com.myphysicslab.simlab;
+
+import java.util.Enumeration;
+import java.util.Vector;
+
+/////////////////////////////////////////////////////////////////////////////////
+// The numerical core of a Simulation, without any Swing:  the variables of the
+// diff eq, the solver, the parameters and their observers.
+// Simulation adds the view (canvas, graph and controls) on top of it.  A Simulation
+// created with a null container has no view attached and can be stepped headless
+// with step(), e.g. in tests, benchmarks or on many threads at once.
+public abstract class SimulationModel implements DiffEq, Subject, Graphable {
+  protected String[] var_names;
+  protected double[] vars;  //  variables for Diff Eqn... positions and velocities
+  // calc vector = whether variables are calculated by ode solver
+  protected boolean[] calc;
+  protected DiffEqSolver odeSolver;
+  protected double simTime = 0;
+  private Vector observers = new Vector(10);
+  // which DiffEqSolver makeDiffEqSolver() creates, see setSolverType()
+  public static final int AUTOMATIC = -1;
+  public static final int RUNGE_KUTTA = 0;
+  public static final int DORMAND_PRINCE = 1;
+  public static final int VERLET = 2;
+  public static final int IMPLICIT_MIDPOINT = 3;
+  private int solverType = AUTOMATIC;
+  // structure of the diff eq, see getStructure()
+  public static final int GENERAL = 0;
+  public static final int SEPARABLE = 1;
+  public static final int STIFF = 2;
+  public static final int VARYING = 3;
+
+  public SimulationModel(int numVars) {
+    this();
+    vars = new double[numVars];
+    calc = new boolean[numVars];
+    for (int i=0; i<calc.length; i++)
+      calc[i] = true;
+  }
+
+  // the subclass allocates vars and calc itself
+  public SimulationModel() {
+    odeSolver = makeDiffEqSolver();
+  }
+
+  // Factory Method, so that particular subclasses can specify other classes.
+  // Creates the solver chosen with setSolverType(), by default the cheapest
+  // stable one for the structure the simulation declares with getStructure().
+  protected DiffEqSolver makeDiffEqSolver() {
+    int type = solverType;
+    if (type == AUTOMATIC) {
+      switch (getStructure()) {
+        case SEPARABLE: type = VERLET; break;
+        case STIFF: type = IMPLICIT_MIDPOINT; break;
+        case VARYING: type = DORMAND_PRINCE; break;
+        default: type = RUNGE_KUTTA;
+      }
+    }
+    switch (type) {
+      case DORMAND_PRINCE: return new DormandPrince45(this);
+      case VERLET:
+        int[] pairs = getPositionVelocityPairs();
+        if (pairs != null)
+          return new Verlet(this, pairs);
+        return new RungeKutta(this);
+      case IMPLICIT_MIDPOINT: return new ImplicitMidpoint(this);
+      default: return new RungeKutta(this);
+    }
+  }
+
+  // Structure of the diff eq, makeDiffEqSolver() picks the solver by it:
+  //   GENERAL    anything, RungeKutta
+  //   SEPARABLE  x' = v, v' = a(x) (maybe with damping), declared by
+  //              getPositionVelocityPairs(), Verlet keeps the energy without drift
+  //   STIFF      stiff springs everywhere, ImplicitMidpoint is stable at any step
+  //   VARYING    stiff only at moments, DormandPrince45 adapts its step
+  // Called from the constructor of SimulationModel, so don't use fields of the subclass.
+  protected int getStructure() {
+    return GENERAL;
+  }
+
+  // For SEPARABLE simulations: indices {x0, v0, x1, v1, ...} of each position
+  // variable and its velocity, with change[x] = vars[v] in evaluate().
+  // Variables not listed are integrated too (e.g. time).
+  protected int[] getPositionVelocityPairs() {
+    return null;
+  }
+
+  // Replaces the solver of this simulation, AUTOMATIC (by getStructure()),
+  // RUNGE_KUTTA, DORMAND_PRINCE, VERLET or IMPLICIT_MIDPOINT.
+  // Simulations that override makeDiffEqSolver() keep their own.
+  public void setSolverType(int type) {
+    solverType = type;
+    odeSolver = makeDiffEqSolver();
+  }
+
+  public int getSolverType() {
+    return solverType;
+  }
+
+  public DiffEqSolver getDiffEqSolver() {
+    return odeSolver;
+  }
+
+  public void setDiffEqSolver(DiffEqSolver solver) {
+    odeSolver = solver;
+  }
+
+  /* implementation of Subject interface */
+  public void attach(Observer o) {
+    observers.addElement(o);
+  }
+
+  public void detach(Observer o) {
+    observers.removeElement(o);
+  }
+
+  public void setParameter(String name, double value) {
+    if (trySetParameter(name, value)) {
+      // the solver may remember derivatives computed with the old value
+      if (odeSolver != null)
+        odeSolver.reset();
+      // notify all Observers that the parameter has changed
+      for (Enumeration e = observers.elements(); e.hasMoreElements(); )
+        ((Observer)e.nextElement()).update(this, name, value);
+    } else
+      throw new IllegalArgumentException("no such parameter "+name);
+  }
+
+  public double getParameter(String name) {
+    throw new IllegalArgumentException("no such parameter "+name);
+  }
+  /* end of Subject interface */
+
+  // trySetParameter() returns true if it was able to set the given parameter
+  protected boolean trySetParameter(String name, double value) {
+    return false;
+  }
+
+  public String[] getParameterNames() {
+    // default is to return an empty array of strings, because no parameters.
+    return new String[0];
+  }
+
+  protected void detachAll() {
+    observers.removeAllElements();
+  }
+
+  public void setVariable(int i, double value) {
+    if (i>=0 && i<vars.length) {
+      vars[i] = value;
+      modifyObjects();
+    }
+  }
+
+  /* begin Graphable interface */
+  // NOTE:  Some simulations provide 'fake' computed variables
+  // (such as acceleration, kinetic energy, total energy,...)
+  // Such simulations should override some of these methods.
+
+  public int numVariables() {
+    return (vars!=null) ? vars.length : 0;
+  }
+
+  public String getVariableName(int i) {
+    return (var_names!=null) ? var_names[i] : "";
+  }
+
+  public double getVariable(int i) {
+    return (i < vars.length) ? vars[i] : 0;
+  }
+  /* end Graphable interface */
+
+  protected void advance(double time) {
+    odeSolver.step(time);
+    modifyObjects();
+  }
+
+  // advances the simulation by 'time' without painting anything,
+  // as fast as the solver allows
+  public void step(double time) {
+    advance(time);
+  }
+
+  // brings the objects of the simulation (and so its view) up to date with the vars
+  public abstract void modifyObjects();
+
+  /* implementation of DiffEq protocol */
+
+  public double[] getVars() {
+    return vars;
+  }
+
+  public boolean[] getCalc() {
+    return calc;
+  }
+  /* end of DiffEq protocol */
+
+  public String toString() {
+    String s = getClass().getName() + " with "+ 
+      (vars!=null ? vars.length+" variables " : "no variables");
+    return s;
+  }
+}
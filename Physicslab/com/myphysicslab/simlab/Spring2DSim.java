@@ -176,6 +176,16 @@ public class Spring2DSim extends Simulation implements ActionListener
     // objects other than mass are not allowed to be dragged
   }
 
+  // Ux' = Vx, Uy' = Vy, V' depends on U and the damping only, Verlet keeps the
+  // energy of the undamped spring without drift.
+  protected int getStructure() {
+    return SEPARABLE;
+  }
+
+  protected int[] getPositionVelocityPairs() {
+    return new int[] {0, 2, 1, 3};
+  }
+
   /* 2-D spring simulation with gravity
     spring is suspended from top mass
     origin = bottomleft corner
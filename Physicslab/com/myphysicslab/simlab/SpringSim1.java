@@ -186,6 +186,16 @@ public class SpringSim1 extends Simulation
     // objects other than mass are not allowed to be dragged
   }
 
+  // x' = v, v' depends on x and the damping only, Verlet keeps the energy of the
+  // undamped spring without drift.
+  protected int getStructure() {
+    return SEPARABLE;
+  }
+
+  protected int[] getPositionVelocityPairs() {
+    return new int[] {0, 1};
+  }
+
   /*
     vars[0] = position (x) with origin as above
     vars[1] = velocity (v=x')
@@ -0,0 +1,118 @@
+package com.myphysicslab.simlab;
+
+/////////////////////////////////////////////////////////////////////////////////
+// Velocity Verlet (the same as leapfrog) for diff eqs of the form x' = v, v' = a(x).
+// It is symplectic:  the energy of an undamped system oscillates a little around
+// its true value but does not drift away like under RungeKutta, so a simulation
+// can run forever.  Needs one evaluation per step instead of four, the acceleration
+// at the end of a step is reused at the start of the next one.
+// The diff eq tells which variables are positions and which are their velocities,
+// all other variables (e.g. time, work done by damping) are integrated with the
+// trapezoid rule.  A velocity dependent force (damping) is evaluated with the
+// velocity at the half step.
+// Variables with getCalc()[i] == false are not modified.
+public class Verlet implements DiffEqSolver {
+  DiffEq ode;
+  int[] pos, vel;  // pos[p]' = vel[p]
+  double[] a0, a1, inp, written;
+  boolean[] calcWritten, paired;
+  private boolean valid = false;  // a0 is the derivative at the vars
+  private int substeps = 1;
+  private long evaluations = 0;
+
+  // pairs = {x0, v0, x1, v1, ...} indices of the positions and their velocities
+  public Verlet(DiffEq ode, int[] pairs) {
+    this.ode = ode;
+    pos = new int[pairs.length/2];
+    vel = new int[pairs.length/2];
+    for (int p=0; p<pos.length; p++) {
+      pos[p] = pairs[2*p];
+      vel[p] = pairs[2*p + 1];
+    }
+  }
+
+  // number of Verlet steps per call of step(), for more accuracy
+  public void setSubsteps(int substeps) {
+    this.substeps = Math.max(1, substeps);
+  }
+
+  private void allocate(int N) {
+    if (inp == null || inp.length != N) {
+      a0 = new double[N];
+      a1 = new double[N];
+      inp = new double[N];
+      written = new double[N];
+      calcWritten = new boolean[N];
+      paired = new boolean[N];
+      for (int p=0; p<pos.length; p++)
+        paired[pos[p]] = paired[vel[p]] = true;
+      valid = false;
+    }
+  }
+
+  public void step(double time) {
+    double[] vars = ode.getVars();
+    int N = vars.length;
+    allocate(N);
+    boolean[] calc = ode.getCalc();
+    int i;
+    // the vars may have been changed from outside since the last step (mouse drag)
+    for (i=0; i<N && valid; i++)
+      valid = vars[i] == written[i] && calc[i] == calcWritten[i];
+    if (!valid) {
+      ode.evaluate(vars, a0);
+      evaluations++;
+      valid = true;
+    }
+    double h = time/substeps;
+    for (int s=0; s<substeps; s++) {
+      System.arraycopy(vars, 0, inp, 0, N);
+      // kick half a step, drift a whole step
+      for (int p=0; p<pos.length; p++) {
+        int x = pos[p], v = vel[p];
+        double vh = calc[v] ? vars[v] + h/2*a0[v] : vars[v];
+        inp[v] = vh;
+        if (calc[x])
+          inp[x] = vars[x] + h*vh;
+      }
+      for (i=0; i<N; i++)
+        if (!paired[i] && calc[i])
+          inp[i] = vars[i] + h*a0[i];
+      ode.evaluate(inp, a1);
+      evaluations++;
+      // kick the second half step
+      for (int p=0; p<pos.length; p++) {
+        int v = vel[p];
+        if (calc[v])
+          inp[v] += h/2*a1[v];
+      }
+      for (i=0; i<N; i++)
+        if (!paired[i] && calc[i])
+          inp[i] = vars[i] + h/2*(a0[i] + a1[i]);
+      for (i=0; i<N; i++)
+        if (calc[i])
+          vars[i] = inp[i];
+      double[] swap = a0;
+      a0 = a1;
+      a1 = swap;
+    }
+    for (i=0; i<N; i++) {
+      written[i] = vars[i];
+      calcWritten[i] = calc[i];
+    }
+  }
+
+  // the reused acceleration was computed with the old parameters
+  public void reset() {
+    valid = false;
+  }
+
+  // number of calls to evaluate() so far
+  public long getEvaluations() {
+    return evaluations;
+  }
+
+  public String toString() {
+    return "Verlet evaluations="+evaluations+" substeps="+substeps;
+  }
+}
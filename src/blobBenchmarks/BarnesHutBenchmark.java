@@ -0,0 +1,43 @@
+package blobBenchmarks;
+
+import newOne.ParticleStore;
+import newOne.PhysicEngine;
+
+/**
+ * Prints step time and force error of the Barnes-Hut model for several opening angles,
+ * so THETA can be picked for a deployment. THETA = 0 is the exact all pairs model.
+ */
+public class BarnesHutBenchmark {
+
+	private static final int[] PARTICLES = {200, 1000, 5000};
+	private static final double[] THETAS = {0, 0.2, 0.35, 0.5, 0.7, 1.0};
+
+	public static void main(String[] args) {
+		System.out.println("particles\ttheta\tstep [ms]\trms error\tmax error");
+		for (int n : PARTICLES) {
+			for (double theta : THETAS) {
+				ParticleStore store = blob(n);
+				PhysicEngine pe = new PhysicEngine(store);
+				pe.setTHETA(theta);
+				double[] error = pe.getForceError();
+				double ms = NeighbourBenchmark.measure(store, pe);
+				System.out.println(n + "\t" + theta + "\t" + String.format("%.3f\t%.2e\t%.2e", ms, error[0], error[1]));
+			}
+		}
+	}
+
+	/**
+	 * Round blob with the particles spread evenly over a disk
+	 */
+	static ParticleStore blob(int n) {
+		ParticleStore store = new ParticleStore(n);
+		java.util.Random rnd = new java.util.Random(7);
+		double radius = 25 * Math.sqrt(n);
+		for (int i = 0; i < n; i++) {
+			double r = radius * Math.sqrt(rnd.nextDouble());
+			double a = 2 * Math.PI * rnd.nextDouble();
+			store.add(300 + r * Math.cos(a), 300 + r * Math.sin(a));
+		}
+		return store;
+	}
+}
@@ -0,0 +1,467 @@
+package blobBenchmarks;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import newOne.BlobRenderer;
+import newOne.BlobSnapshot;
+import newOne.Events;
+import newOne.PMgnt;
+import newOne.PhysicEngine;
+import newOne.PhysicEngine_alt;
+import newOne.SpriteAtlas;
+import newOne.TestParticleGUI;
+
+/**
+ * Benchmarks of the hot path for every particle count: PhysicEngine step(), evaluate() and modifyObjects(),
+ * PMgnt construction, Events.verzerren() (hit test, grab and release), rendering the blob into an offscreen
+ * image like TestParticleGUI.paint() does, and the older engines PhysicEngine_alt and
+ * pe_testenvironment.PhysicEngine3 (PhysicEngine1 and 2 do not compile, PhysicEngine3.step() only works up to 10 particles).
+ *
+ * Works like a small JMH: warmup iterations, then measured iterations of ITERATION_TIME each, the score
+ * is the average time per call with a 99.9% confidence interval. Results are written as JMH style JSON,
+ * so two versions can be compared:
+ * <pre>
+ * java blobBenchmarks.BenchmarkSuite [-p 10,20,100,500] [-f filter] [-o results.json]
+ * java blobBenchmarks.BenchmarkSuite -compare old.json new.json [threshold %]
+ * </pre>
+ * Compare exits with 1 if a benchmark got slower by more than the threshold (default 10%) and its error.
+ * Run from the project directory, so images/ can be found.
+ */
+public class BenchmarkSuite {
+
+	private static final int WARMUP_ITERATIONS = 5;
+	private static final int ITERATIONS = 10;
+	private static final long ITERATION_TIME = 200 * 1000000L;
+	private static final int[] PARTICLES = {10, 20, 100, 500};
+	private static final double STEPSIZE = 0.05;
+	/**
+	 * Student t for 99.9% (two sided) and ITERATIONS - 1 degrees of freedom, as JMH reports
+	 */
+	private static final double T_999 = 4.781;
+
+	/**
+	 * Results are added here, so the JIT cannot drop the benchmarked calls
+	 */
+	static double sink;
+
+	/**
+	 * A benchmarked call. setup() is not measured, run() is called as often as fits into an iteration
+	 */
+	static abstract class Bench {
+		final String name;
+		/**
+		 * Largest particle count that is still run, the old engines are too slow for more
+		 */
+		final int maxParticles;
+
+		Bench(String name, int maxParticles) {
+			this.name = name;
+			this.maxParticles = maxParticles;
+		}
+
+		abstract void setup(int particles) throws Exception;
+
+		abstract void run();
+
+		void tearDown() {
+		}
+	}
+
+	static final class Result {
+		final String benchmark;
+		final int particles;
+		final double score, error;
+		final double[] raw;
+
+		Result(String benchmark, int particles, double score, double error, double[] raw) {
+			this.benchmark = benchmark;
+			this.particles = particles;
+			this.score = score;
+			this.error = error;
+			this.raw = raw;
+		}
+
+		String key() {
+			return benchmark + ":" + particles;
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		Locale.setDefault(Locale.US);
+		if (args.length > 0 && args[0].equals("-compare")) {
+			double threshold = args.length > 3 ? Double.parseDouble(args[3]) : 10;
+			System.exit(compare(read(new File(args[1])), read(new File(args[2])), threshold) ? 1 : 0);
+		}
+		int[] particles = PARTICLES;
+		String filter = "";
+		File output = new File("benchmark.json");
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			if (args[i].equals("-p")) {
+				String[] p = args[i + 1].split(",");
+				particles = new int[p.length];
+				for (int j = 0; j < p.length; j++)
+					particles[j] = Integer.parseInt(p[j].trim());
+			}
+			else if (args[i].equals("-f"))
+				filter = args[i + 1];
+			else if (args[i].equals("-o"))
+				output = new File(args[i + 1]);
+		}
+		List<Result> results = new ArrayList<Result>();
+		System.out.println("benchmark\tparticles\tus/op\terror");
+		for (Bench bench : benchmarks()) {
+			if (!bench.name.contains(filter))
+				continue;
+			for (int n : particles) {
+				if (n > bench.maxParticles)
+					continue;
+				Result r = measure(bench, n);
+				results.add(r);
+				System.out.println(String.format("%s\t%d\t%.3f\t%.3f", r.benchmark, n, r.score, r.error));
+			}
+		}
+		write(results, output);
+		System.out.println("written to " + output);
+	}
+
+	static Result measure(Bench bench, int particles) throws Exception {
+		bench.setup(particles);
+		try {
+			for (int i = 0; i < WARMUP_ITERATIONS; i++)
+				iteration(bench);
+			double[] raw = new double[ITERATIONS];
+			double sum = 0;
+			for (int i = 0; i < ITERATIONS; i++) {
+				raw[i] = iteration(bench);
+				sum += raw[i];
+			}
+			double mean = sum / ITERATIONS;
+			double var = 0;
+			for (double r : raw)
+				var += (r - mean) * (r - mean);
+			double error = T_999 * Math.sqrt(var / (ITERATIONS - 1)) / Math.sqrt(ITERATIONS);
+			return new Result(bench.name, particles, mean, error, raw);
+		} finally {
+			bench.tearDown();
+		}
+	}
+
+	/**
+	 * Calls run() in growing batches until ITERATION_TIME is over
+	 * @return us per call
+	 */
+	static double iteration(Bench bench) {
+		long calls = 0;
+		long batch = 1;
+		long t0 = System.nanoTime();
+		long t;
+		do {
+			for (long i = 0; i < batch; i++)
+				bench.run();
+			calls += batch;
+			if (batch < 1024)
+				batch *= 2;
+			t = System.nanoTime() - t0;
+		} while (t < ITERATION_TIME);
+		return t / 1e3 / calls;
+	}
+
+	static List<Bench> benchmarks() {
+		List<Bench> list = new ArrayList<Bench>();
+		list.add(new Bench("PhysicEngine.step", Integer.MAX_VALUE) {
+			PMgnt pm;
+			PhysicEngine pe;
+
+			void setup(int n) {
+				pm = blob(n);
+				pe = new PhysicEngine(pm.particlesystem);
+			}
+
+			void run() {
+				pe.step(STEPSIZE);
+				sink += pe.getEvaluations();
+			}
+
+			void tearDown() {
+				pe.stopWorkers();
+			}
+		});
+		list.add(new Bench("PhysicEngine.evaluate", Integer.MAX_VALUE) {
+			PhysicEngine pe;
+			double[] x, change;
+			int n;
+
+			void setup(int n) {
+				this.n = n;
+				PMgnt pm = blob(n);
+				pe = new PhysicEngine(pm.particlesystem);
+				x = new double[4 * n];
+				change = new double[4 * n];
+				for (int i = 0; i < n; i++) {
+					x[4 * i] = pm.store.x[i];
+					x[4 * i + 1] = pm.store.y[i];
+				}
+			}
+
+			void run() {
+				pe.evaluate(x, change, n);
+				sink += change[2];
+			}
+
+			void tearDown() {
+				pe.stopWorkers();
+			}
+		});
+		list.add(new Bench("PhysicEngine.modifyObjects", Integer.MAX_VALUE) {
+			PMgnt pm;
+			PhysicEngine pe;
+
+			void setup(int n) {
+				pm = blob(n);
+				pe = new PhysicEngine(pm.particlesystem);
+				pe.step(STEPSIZE);
+			}
+
+			void run() {
+				pe.modifyObjects();
+				sink += pm.store.x[0];
+			}
+
+			void tearDown() {
+				pe.stopWorkers();
+			}
+		});
+		list.add(new Bench("PMgnt.new", Integer.MAX_VALUE) {
+			int n;
+			long seed;
+
+			void setup(int n) {
+				this.n = n;
+			}
+
+			void run() {
+				PMgnt pm = new PMgnt(n, 100, 100, 10, PMgnt.Layout.CLUMPED, seed++);
+				sink += pm.store.x[n - 1];
+			}
+		});
+		list.add(new Bench("Events.verzerren", Integer.MAX_VALUE) {
+			PMgnt pm;
+			Events events;
+			Random rnd;
+			double minX, minY, w, h;
+
+			void setup(int n) {
+				pm = blob(n);
+				events = new Events(pm, null);
+				events.setMuted(true);
+				rnd = new Random(1);
+				minX = pm.getIndex().getMinX();
+				minY = pm.getIndex().getMinY();
+				w = pm.getIndex().getMaxX() - minX;
+				h = pm.getIndex().getMaxY() - minY;
+			}
+
+			void run() {
+				// grab a particle near a random point and let it go again, verzerren moves it by -100
+				int x = (int) (minX + rnd.nextDouble() * w);
+				int y = (int) (minY + rnd.nextDouble() * h);
+				events.verzerren(x, y, false);
+				events.verzerren(x + 100, y + 100, true);
+				sink += pm.store.x[0];
+			}
+		});
+		list.add(new Bench("BlobRenderer.renderTo", Integer.MAX_VALUE) {
+			BlobRenderer renderer;
+			BlobSnapshot snapshot;
+			BufferedImage screen;
+			Graphics g;
+
+			void setup(int n) throws IOException {
+				PMgnt pm = blob(n);
+				renderer = new BlobRenderer(null, new BlobRenderer.Background() {
+					public void paintBackground(Graphics g) {
+						g.setColor(Color.white);
+						g.fillRect(0, 0, 600, 600);
+					}
+				}, TestParticleGUI.BODY_OFFSET);
+				// the textures TestParticleGUI starts with
+				SpriteAtlas atlas = SpriteAtlas.load(new File("images"));
+				SpriteAtlas.Sprite[] body = {atlas.get("texture01"), atlas.get("texture011"), atlas.get("texture0111"),
+						atlas.get("texture01111"), atlas.get("texture011111")};
+				renderer.setSprites(body, atlas.get("Auge6"), atlas.get("Mund3"));
+				snapshot = new BlobSnapshot();
+				snapshot.reset(pm.store, 0);
+				renderer.update(snapshot, 1);
+				screen = new BufferedImage(600, 600, BufferedImage.TYPE_INT_ARGB_PRE);
+				g = screen.getGraphics();
+			}
+
+			void run() {
+				renderer.renderTo(g, null);
+				sink += screen.getRGB(300, 300);
+			}
+
+			void tearDown() {
+				g.dispose();
+			}
+		});
+		list.add(new Bench("PhysicEngine_alt.step", 500) {
+			PhysicEngine_alt pe;
+
+			void setup(int n) {
+				pe = new PhysicEngine_alt(blob(n).particlesystem);
+			}
+
+			void run() {
+				pe.step(STEPSIZE);
+				sink += pe.vars[0];
+			}
+		});
+		// its step() keeps the result in a helper system of 10 particles
+		list.add(new Bench("PhysicEngine3.step", 10) {
+			pe_testenvironment.PhysicEngine3 pe;
+			pe_testenvironment.Particle[] pm;
+
+			void setup(int n) {
+				pm = oldBlob(n);
+				pe = new pe_testenvironment.PhysicEngine3(pm);
+			}
+
+			void run() {
+				pe.step(STEPSIZE);
+				pe.modifyObjects();
+				sink += pm[0].getLocation(0);
+			}
+		});
+		list.add(new Bench("PhysicEngine3.evaluate", 500) {
+			pe_testenvironment.PhysicEngine3 pe;
+			pe_testenvironment.Particle[] pm, change;
+
+			void setup(int n) {
+				pm = oldBlob(n);
+				change = oldBlob(n);
+				pe = new pe_testenvironment.PhysicEngine3(pm);
+			}
+
+			void run() {
+				pe.evaluate(pm, change);
+				sink += change[0].getSpeed(0);
+			}
+		});
+		return list;
+	}
+
+	/**
+	 * Same blob for every run
+	 */
+	static PMgnt blob(int n) {
+		return new PMgnt(n, 100, 100, 10, PMgnt.Layout.CLUMPED, 42);
+	}
+
+	/**
+	 * Particles of the test environment, moved to the locations of blob(n)
+	 */
+	static pe_testenvironment.Particle[] oldBlob(int n) {
+		PMgnt pm = blob(n);
+		pe_testenvironment.Particle[] particles = new pe_testenvironment.PMgnt(n, 100, 100, 10).particlesystem;
+		for (int i = 0; i < n; i++)
+			particles[i].setLocation(pm.store.x[i], pm.store.y[i]);
+		return particles;
+	}
+
+	static void write(List<Result> results, File file) throws IOException {
+		Writer out = new FileWriter(file);
+		try {
+			out.write("[\n");
+			for (int i = 0; i < results.size(); i++) {
+				Result r = results.get(i);
+				StringBuilder raw = new StringBuilder();
+				for (int j = 0; j < r.raw.length; j++)
+					raw.append(j == 0 ? "" : ", ").append(String.format("%.4f", r.raw[j]));
+				out.write(String.format("    {\n"
+						+ "        \"benchmark\" : \"%s\",\n"
+						+ "        \"mode\" : \"avgt\",\n"
+						+ "        \"warmupIterations\" : %d,\n"
+						+ "        \"measurementIterations\" : %d,\n"
+						+ "        \"params\" : {\n"
+						+ "            \"particles\" : \"%d\"\n"
+						+ "        },\n"
+						+ "        \"primaryMetric\" : {\n"
+						+ "            \"score\" : %.4f,\n"
+						+ "            \"scoreError\" : %.4f,\n"
+						+ "            \"scoreUnit\" : \"us/op\",\n"
+						+ "            \"rawData\" : [\n"
+						+ "                [%s]\n"
+						+ "            ]\n"
+						+ "        }\n"
+						+ "    }%s\n",
+						r.benchmark, WARMUP_ITERATIONS, ITERATIONS, r.particles, r.score, r.error, raw,
+						i == results.size() - 1 ? "" : ","));
+			}
+			out.write("]\n");
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Reads the results of write(), only the fields compare() needs
+	 */
+	static Map<String, Result> read(File file) throws IOException {
+		StringBuilder json = new StringBuilder();
+		BufferedReader in = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while ((line = in.readLine()) != null)
+				json.append(line).append('\n');
+		} finally {
+			in.close();
+		}
+		Pattern entry = Pattern.compile("\"benchmark\"\\s*:\\s*\"([^\"]+)\".*?\"particles\"\\s*:\\s*\"(\\d+)\""
+				+ ".*?\"score\"\\s*:\\s*([-0-9.eE]+).*?\"scoreError\"\\s*:\\s*([-0-9.eENa]+)", Pattern.DOTALL);
+		Map<String, Result> results = new LinkedHashMap<String, Result>();
+		Matcher m = entry.matcher(json);
+		while (m.find()) {
+			double error = m.group(4).equals("NaN") ? 0 : Double.parseDouble(m.group(4));
+			Result r = new Result(m.group(1), Integer.parseInt(m.group(2)), Double.parseDouble(m.group(3)), error, new double[0]);
+			results.put(r.key(), r);
+		}
+		return results;
+	}
+
+	/**
+	 * Prints old and new score of every benchmark in both files
+	 * @return true if one got slower by more than threshold percent and more than both errors
+	 */
+	static boolean compare(Map<String, Result> before, Map<String, Result> after, double threshold) {
+		boolean regression = false;
+		System.out.println("benchmark\tparticles\tbefore us/op\tafter us/op\tchange");
+		for (Result a : after.values()) {
+			Result b = before.get(a.key());
+			if (b == null)
+				continue;
+			double change = 100 * (a.score - b.score) / b.score;
+			boolean slower = change > threshold && a.score - b.score > a.error + b.error;
+			regression |= slower;
+			System.out.println(String.format("%s\t%d\t%.3f\t%.3f\t%+.1f%%%s", a.benchmark, a.particles, b.score, a.score,
+					change, slower ? "\tREGRESSION" : ""));
+		}
+		return regression;
+	}
+}
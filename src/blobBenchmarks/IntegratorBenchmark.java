@@ -0,0 +1,70 @@
+package blobBenchmarks;
+
+import newOne.DormandPrinceIntegrator;
+import newOne.EulerIntegrator;
+import newOne.Integrator;
+import newOne.ParticleStore;
+import newOne.PhysicEngine;
+import newOne.RungeKuttaIntegrator;
+import newOne.VerletIntegrator;
+
+/**
+ * Compares the integrators of the PhysicEngine: force evaluations per simulated second
+ * against the energy drift of an undamped blob over SIMULATED_TIME seconds.
+ */
+public class IntegratorBenchmark {
+
+	private static final int PARTICLES = 30;
+	private static final double SIMULATED_TIME = 100;
+	private static final double[] STEPSIZES = {0.05, 0.02, 0.01, 0.005};
+
+	public static void main(String[] args) {
+		System.out.println("integrator\tstep size\tevaluations/s\tmax energy drift\tms/simulated s");
+		String[] names = {"Euler", "Verlet", "RungeKutta", "DormandPrince"};
+		for (String name : names) {
+			for (double stepSize : STEPSIZES) {
+				ParticleStore store = blob(PARTICLES);
+				PhysicEngine pe = new PhysicEngine(store);
+				pe.setDAMPING(0);
+				pe.setIntegrator(create(name));
+				double e0 = pe.getEnergy();
+				double drift = 0;
+				int steps = (int) Math.round(SIMULATED_TIME / stepSize);
+				long t0 = System.nanoTime();
+				for (int i = 0; i < steps; i++) {
+					pe.step(stepSize);
+					pe.modifyObjects();
+					if (i % 10 == 0)
+						drift = Math.max(drift, Math.abs(pe.getEnergy() - e0) / e0);
+				}
+				double ms = (System.nanoTime() - t0) / 1e6 / SIMULATED_TIME;
+				System.out.println(name + "\t" + stepSize + "\t" + String.format("%.0f\t%.2e\t%.2f",
+						pe.getEvaluations() / SIMULATED_TIME, drift, ms));
+			}
+		}
+	}
+
+	static Integrator create(String name) {
+		if (name.equals("Euler"))
+			return new EulerIntegrator();
+		if (name.equals("Verlet"))
+			return new VerletIntegrator();
+		if (name.equals("DormandPrince"))
+			return new DormandPrinceIntegrator();
+		return new RungeKuttaIntegrator();
+	}
+
+	/**
+	 * Particles on a ring of about the rest length with a little noise, so the blob wobbles but does not explode
+	 */
+	static ParticleStore blob(int n) {
+		ParticleStore store = new ParticleStore(n);
+		java.util.Random rnd = new java.util.Random(3);
+		for (int i = 0; i < n; i++) {
+			double a = 2 * Math.PI * i / n;
+			double r = 60 + 10 * rnd.nextDouble();
+			store.add(300 + r * Math.cos(a), 300 + r * Math.sin(a));
+		}
+		return store;
+	}
+}
@@ -0,0 +1,100 @@
+package blobBenchmarks;
+
+import newOne.ParticleStore;
+import newOne.PhysicEngine;
+
+/**
+ * Measures the time of one PhysicEngine.step() for 20 up to 20000 particles,
+ * once with the all pairs spring model and once with the cutoff grid model.
+ * Run it as a normal java application, it prints one line per particle count.
+ */
+public class NeighbourBenchmark {
+
+	private static final int[] PARTICLES = {20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 20000};
+	private static final double SPACING = 50;		// distance of the particles in the lattice
+	private static final double CUTOFF = 150;		// interaction radius of the grid model
+	private static final double STEPSIZE = 0.05;
+	private static final long MEASURE_TIME = 500;	// ms spent measuring each configuration
+	private static final long MAX_FRAME = 5000;		// ms, slower configurations are not measured again
+
+	public static void main(String[] args) {
+		boolean allPairs = true;
+		boolean cutoff = true;
+		System.out.println("particles\tall pairs [ms/step]\tgrid [ms/step]");
+		for (int n : PARTICLES) {
+			String a = "-";
+			String b = "-";
+			if (allPairs) {
+				double ms = measure(n, 0);
+				a = String.format("%.3f", ms);
+				allPairs = ms < MAX_FRAME / 4;
+			}
+			if (cutoff) {
+				double ms = measure(n, CUTOFF);
+				b = String.format("%.3f", ms);
+				cutoff = ms < MAX_FRAME / 4;
+			}
+			System.out.println(n + "\t" + a + "\t" + b);
+		}
+	}
+
+	/**
+	 * The lattice is restored before every step, otherwise the blob contracts during the
+	 * measurement and the grid model would be measured on a different density for every N.
+	 * @return average time of step() and modifyObjects() in ms
+	 */
+	static double measure(int n, double cutoff) {
+		ParticleStore store = lattice(n);
+		PhysicEngine pe = new PhysicEngine(store);
+		pe.setCUTOFF(cutoff);
+		return measure(store, pe);
+	}
+
+	/**
+	 * Same for an engine already set up on the store
+	 */
+	static double measure(ParticleStore store, PhysicEngine pe) {
+		double[] x0 = store.x.clone();
+		double[] y0 = store.y.clone();
+		// warm up
+		long end = System.currentTimeMillis() + MEASURE_TIME / 2;
+		do {
+			reset(store, x0, y0);
+			pe.step(STEPSIZE);
+			pe.modifyObjects();
+		} while (System.currentTimeMillis() < end);
+
+		int steps = 0;
+		long t = 0;
+		end = System.currentTimeMillis() + MEASURE_TIME;
+		do {
+			reset(store, x0, y0);
+			long t0 = System.nanoTime();
+			pe.step(STEPSIZE);
+			pe.modifyObjects();
+			t += System.nanoTime() - t0;
+			steps++;
+		} while (System.currentTimeMillis() < end);
+		return t / 1e6 / steps;
+	}
+
+	static void reset(ParticleStore store, double[] x0, double[] y0) {
+		System.arraycopy(x0, 0, store.x, 0, store.size());
+		System.arraycopy(y0, 0, store.y, 0, store.size());
+		java.util.Arrays.fill(store.vx, 0);
+		java.util.Arrays.fill(store.vy, 0);
+	}
+
+	/**
+	 * Square lattice with a little noise so no two particles sit on the same spot
+	 */
+	static ParticleStore lattice(int n) {
+		ParticleStore store = new ParticleStore(n);
+		int side = (int) Math.ceil(Math.sqrt(n));
+		java.util.Random rnd = new java.util.Random(42);
+		for (int i = 0; i < n; i++) {
+			store.add((i % side) * SPACING + rnd.nextDouble(), (i / side) * SPACING + rnd.nextDouble());
+		}
+		return store;
+	}
+}
@@ -0,0 +1,59 @@
+package blobBenchmarks;
+
+import java.util.Arrays;
+
+import newOne.ParticleStore;
+import newOne.PhysicEngine;
+
+/**
+ * Measures how the step time scales with 1, 2, 4 and 8 force evaluation threads
+ * and checks that every thread count gives the same result as the serial step.
+ */
+public class ParallelBenchmark {
+
+	private static final int[] PARTICLES = {500, 2000, 5000};
+	private static final int[] THREADS = {1, 2, 4, 8};
+
+	public static void main(String[] args) {
+		System.out.println("cores: " + Runtime.getRuntime().availableProcessors());
+		System.out.println("particles\tthreads\tstep [ms]\tspeedup\tidentical");
+		for (int n : PARTICLES) {
+			double serial = 0;
+			double[] reference = null;
+			for (int threads : THREADS) {
+				ParticleStore store = BarnesHutBenchmark.blob(n);
+				PhysicEngine pe = new PhysicEngine(store);
+				pe.setThreads(threads);
+				pe.setParallelThreshold(0);
+				double ms = NeighbourBenchmark.measure(store, pe);
+				double[] result = run(n, threads);
+				if (threads == 1) {
+					serial = ms;
+					reference = result;
+				}
+				System.out.println(n + "\t" + threads + "\t" + String.format("%.3f\t%.2f", ms, serial / ms)
+						+ "\t" + Arrays.equals(reference, result));
+				pe.stopWorkers();
+			}
+		}
+	}
+
+	/**
+	 * @return locations after 20 steps with the given number of threads
+	 */
+	static double[] run(int n, int threads) {
+		ParticleStore store = BarnesHutBenchmark.blob(n);
+		PhysicEngine pe = new PhysicEngine(store);
+		pe.setThreads(threads);
+		pe.setParallelThreshold(0);
+		for (int i = 0; i < 20; i++) {
+			pe.step(0.05);
+			pe.modifyObjects();
+		}
+		pe.stopWorkers();
+		double[] result = new double[2 * n];
+		System.arraycopy(store.x, 0, result, 0, n);
+		System.arraycopy(store.y, 0, result, n, n);
+		return result;
+	}
+}
@@ -0,0 +1,54 @@
+package blobBenchmarks;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import newOne.SpriteAtlas;
+
+/**
+ * Latency of the textures of TestParticleGUI: startup and the first mood change after a click,
+ * once with ImageIO.read() per texture like sauer() used to do and once with the SpriteAtlas.
+ * Run from the project directory, so images/ can be found.
+ */
+public class TextureBenchmark {
+
+	private static final int RUNS = 20;
+	/**
+	 * Textures the window loaded in its constructor
+	 */
+	private static final String[] STARTUP = {"Auge6", "texture01", "Mund3", "texture011", "texture0111", "texture01111", "texture011111"};
+	/**
+	 * Textures the old sauer() read for sauer = 20 and gut = -1
+	 */
+	private static final String[] MOOD = {"Auge4", "Mund3", "texture04", "texture044", "texture0444", "texture04444", "texture044444"};
+
+	public static void main(String[] args) throws IOException {
+		BufferedImage screen = new BufferedImage(800, 600, BufferedImage.TYPE_INT_ARGB_PRE);
+		Graphics g = screen.getGraphics();
+		System.out.println("variant\tstartup ms\tmood change ms");
+		for (int run = 0; run < RUNS; run++) {
+			long t0 = System.nanoTime();
+			for (String name : STARTUP)
+				ImageIO.read(new File("images/" + name + ".png"));
+			long t1 = System.nanoTime();
+			for (String name : MOOD)
+				g.drawImage(ImageIO.read(new File("images/" + name + ".png")), 0, 0, null);
+			long t2 = System.nanoTime();
+			SpriteAtlas atlas = SpriteAtlas.load(new File("images"));
+			long t3 = System.nanoTime();
+			for (String name : MOOD)
+				atlas.get(name).draw(g, 0, 0, null);
+			long t4 = System.nanoTime();
+			if (run == RUNS - 1 || run == 0) {
+				String label = run == 0 ? " (cold)" : "";
+				System.out.println(String.format("ImageIO%s\t%.2f\t%.2f", label, (t1 - t0) / 1e6, (t2 - t1) / 1e6));
+				System.out.println(String.format("atlas%s\t%.2f\t%.3f", label, (t3 - t2) / 1e6, (t4 - t3) / 1e6));
+			}
+		}
+		g.dispose();
+	}
+}
@@ -0,0 +1,355 @@
+package newOne;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+
+/**
+ * Retained mode renderer of the blob. It remembers the screen rectangle of every sprite,
+ * update() compares it with the last frame and returns only the region that changed.
+ * paint() composes that region (background and sprites) in a back buffer and copies it to the screen,
+ * so a resting blob costs nothing and a moving one only the area it moves over.
+ * Everything is redrawn when the sprites (mood, texture) or the amount of particles change.
+ *
+ * The back buffer is a VolatileImage of the target when there is a screen, otherwise a BufferedImage.
+ * renderTo() draws into any Graphics, e.g. an offscreen BufferedImage.
+ */
+public class BlobRenderer {
+
+	/**
+	 * Draws what is behind the blob
+	 */
+	public interface Background {
+		void paintBackground(Graphics g);
+	}
+
+	private final Component target;
+	private final Background background;
+	private final int[][] bodyOffset;
+	private final ParticleIndex index = new ParticleIndex(40);
+	private BlobSnapshot indexed;
+	private long indexedTick = -1;
+
+	private SpriteAtlas.Sprite[] body;
+	private SpriteAtlas.Sprite eyes, mouth;
+	private boolean spritesChanged = true;
+
+	/*
+	 * Sprite rectangles of the last frame and of the frame before, 4 ints per particle (x0, y0, x1, y1)
+	 */
+	private int[] rects = new int[0], prevRects = new int[0];
+	private int[] kinds = new int[0], choices = new int[0];
+	private boolean[] locked = new boolean[0];
+	private int[] px = new int[0], py = new int[0];
+	private int size = 0, prevSize = -1;
+	private int centerX, centerY;
+
+	private Image back;
+	private GraphicsConfiguration backConfig;
+	private boolean backValid = false;
+
+	/*
+	 * Statistics
+	 */
+	private long frames = 0, fullRedraws = 0, cleanFrames = 0;
+	private long lastArea = 0, area = 0;
+	private long lastPaintTime = 0, paintTime = 0, paints = 0;
+
+	/**
+	 * @param target component the back buffer is shown in, may be null if only renderTo() is used
+	 * @param background draws the background of a region
+	 * @param bodyOffset where the body texture of choice c is drawn: particle - bodyOffset[c-1]
+	 */
+	public BlobRenderer(Component target, Background background, int[][] bodyOffset) {
+		this.target = target;
+		this.background = background;
+		this.bodyOffset = bodyOffset;
+	}
+
+	/**
+	 * Sets the textures of the next frame, a changed reference redraws everything
+	 */
+	public void setSprites(SpriteAtlas.Sprite[] body, SpriteAtlas.Sprite eyes, SpriteAtlas.Sprite mouth) {
+		if (body != this.body || eyes != this.eyes || mouth != this.mouth)
+			spritesChanged = true;
+		this.body = body;
+		this.eyes = eyes;
+		this.mouth = mouth;
+	}
+
+	/**
+	 * @return true if the next update() redraws everything because the sprites changed
+	 */
+	public boolean isStale() {
+		return spritesChanged;
+	}
+
+	/**
+	 * Takes the particles of a snapshot as next frame, setSprites() has to be called before the first one
+	 * @param alpha interpolation between the two ticks of the snapshot
+	 * @return region that has to be repainted, null if nothing changed
+	 */
+	public Rectangle update(BlobSnapshot f, double alpha) {
+		frames++;
+		int n = f.size();
+		ensureCapacity(n);
+		int[] swap = prevRects;
+		prevRects = rects;
+		rects = swap;
+		prevSize = size;
+		size = n;
+
+		// box around the particlesystem for the locked oval, the index only changes with a new tick
+		if (f != indexed || f.getTick() != indexedTick || f.getTick() == 0) {
+			f.index(index);
+			indexed = f;
+			indexedTick = f.getTick();
+		}
+		if (n > 0) {
+			centerX = (int) ((index.getMaxX() - index.getMinX()) / 2);
+			centerY = (int) ((index.getMaxY() - index.getMinY()) / 2);
+		}
+		boolean full = spritesChanged || n != prevSize;
+		int x0 = Integer.MAX_VALUE, y0 = Integer.MAX_VALUE, x1 = Integer.MIN_VALUE, y1 = Integer.MIN_VALUE;
+		for (int i = 0; i < n; i++) {
+			int x = (int) f.getX(i, alpha);
+			int y = (int) f.getY(i, alpha);
+			int kind = f.getKind(i);
+			int choice = f.getChoice(i);
+			boolean lock = f.isLocked(i);
+			px[i] = x;
+			py[i] = y;
+			spriteRect(i, x, y, kind, choice, lock);
+			if (full)
+				continue;
+			if (kind == kinds[i] && choice == choices[i] && lock == locked[i]
+					&& rects[4*i] == prevRects[4*i] && rects[4*i + 1] == prevRects[4*i + 1]
+					&& rects[4*i + 2] == prevRects[4*i + 2] && rects[4*i + 3] == prevRects[4*i + 3]) {
+				continue;
+			}
+			// the old and the new place of the sprite are dirty
+			x0 = Math.min(x0, Math.min(rects[4*i], prevRects[4*i]));
+			y0 = Math.min(y0, Math.min(rects[4*i + 1], prevRects[4*i + 1]));
+			x1 = Math.max(x1, Math.max(rects[4*i + 2], prevRects[4*i + 2]));
+			y1 = Math.max(y1, Math.max(rects[4*i + 3], prevRects[4*i + 3]));
+			kinds[i] = kind;
+			choices[i] = choice;
+			locked[i] = lock;
+		}
+		if (full) {
+			for (int i = 0; i < n; i++) {
+				kinds[i] = f.getKind(i);
+				choices[i] = f.getChoice(i);
+				locked[i] = f.isLocked(i);
+			}
+			spritesChanged = false;
+			fullRedraws++;
+			Rectangle all = target != null ? new Rectangle(0, 0, target.getWidth(), target.getHeight()) : null;
+			lastArea = all != null ? (long) all.width * all.height : 0;
+			area += lastArea;
+			return all;
+		}
+		if (x0 > x1) {
+			cleanFrames++;
+			lastArea = 0;
+			return null;
+		}
+		Rectangle dirty = new Rectangle(x0, y0, x1 - x0, y1 - y0);
+		if (target != null)
+			dirty = dirty.intersection(new Rectangle(0, 0, target.getWidth(), target.getHeight()));
+		lastArea = dirty.isEmpty() ? 0 : (long) dirty.width * dirty.height;
+		area += lastArea;
+		return dirty.isEmpty() ? null : dirty;
+	}
+
+	/**
+	 * Screen rectangle of particle i, including the green oval of a locked particle
+	 */
+	private void spriteRect(int i, int x, int y, int kind, int choice, boolean lock) {
+		SpriteAtlas.Sprite s = sprite(kind, choice);
+		int sx = x, sy = y;
+		if (kind == 0) {
+			sx -= bodyOffset[choice - 1][0];
+			sy -= bodyOffset[choice - 1][1];
+		}
+		int x0 = sx, y0 = sy, x1 = sx + s.getWidth(), y1 = sy + s.getHeight();
+		if (lock) {
+			x0 = Math.min(x0, centerX);
+			y0 = Math.min(y0, centerY);
+			x1 = Math.max(x1, centerX + x);
+			y1 = Math.max(y1, centerY + y);
+		}
+		rects[4*i] = x0;
+		rects[4*i + 1] = y0;
+		rects[4*i + 2] = x1;
+		rects[4*i + 3] = y1;
+	}
+
+	private SpriteAtlas.Sprite sprite(int kind, int choice) {
+		if (kind == 0)
+			return body[choice - 1];
+		return kind == 1 ? eyes : mouth;
+	}
+
+	/**
+	 * Shows the region clip of the current frame on g. The region is composed in the back buffer first,
+	 * so there is no flicker between background and sprites
+	 */
+	public void paint(Graphics g, Rectangle clip) {
+		long t0 = System.nanoTime();
+		if (target == null || target.getWidth() <= 0 || target.getHeight() <= 0) {
+			renderTo(g, clip);
+			return;
+		}
+		GraphicsConfiguration gc = GraphicsEnvironment.isHeadless() ? null : target.getGraphicsConfiguration();
+		int w = target.getWidth(), h = target.getHeight();
+		Rectangle all = new Rectangle(0, 0, w, h);
+		clip = clip == null ? all : clip.intersection(all);
+		do {
+			if (back == null || back.getWidth(null) != w || back.getHeight(null) != h || backConfig != gc) {
+				back = gc != null ? gc.createCompatibleVolatileImage(w, h) : new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+				backConfig = gc;
+				backValid = false;
+			}
+			if (back instanceof VolatileImage) {
+				int valid = ((VolatileImage) back).validate(gc);
+				if (valid == VolatileImage.IMAGE_INCOMPATIBLE) {
+					back = null;
+					continue;
+				}
+				if (valid == VolatileImage.IMAGE_RESTORED)
+					backValid = false;
+			}
+			Rectangle region = backValid ? clip : all;
+			Graphics2D bg = (Graphics2D) back.getGraphics();
+			renderTo(bg, region);
+			bg.dispose();
+			backValid = true;
+			g.drawImage(back, clip.x, clip.y, clip.x + clip.width, clip.y + clip.height,
+					clip.x, clip.y, clip.x + clip.width, clip.y + clip.height, null);
+		} while (back == null || (back instanceof VolatileImage && ((VolatileImage) back).contentsLost()));
+		lastPaintTime = System.nanoTime() - t0;
+		paintTime += lastPaintTime;
+		paints++;
+	}
+
+	/**
+	 * Draws background and all sprites of the current frame overlapping region into g
+	 * @param region null draws everything
+	 */
+	public void renderTo(Graphics g, Rectangle region) {
+		Graphics c = g.create();
+		if (region != null)
+			c.clipRect(region.x, region.y, region.width, region.height);
+		if (background != null)
+			background.paintBackground(c);
+		c.setColor(Color.green);
+		for (int i = 0; i < size; i++) {
+			if (region != null && (rects[4*i + 2] < region.x || rects[4*i] > region.x + region.width
+					|| rects[4*i + 3] < region.y || rects[4*i + 1] > region.y + region.height))
+				continue;
+			int x = px[i], y = py[i];
+			if (locked[i]) c.fillOval(centerX, centerY, x, y);
+			int kind = kinds[i];
+			if (kind == 0) {
+				int choice = choices[i];
+				body[choice - 1].draw(c, x - bodyOffset[choice - 1][0], y - bodyOffset[choice - 1][1], null);
+			}
+			else if (kind == 1) {
+				eyes.draw(c, x, y, null);
+			}
+			else {
+				mouth.draw(c, x, y, null);
+			}
+		}
+		c.dispose();
+	}
+
+	/**
+	 * Index over the particles of the current frame
+	 */
+	public ParticleIndex getIndex() {
+		return index;
+	}
+
+	private void ensureCapacity(int n) {
+		if (kinds.length >= n)
+			return;
+		int capacity = Math.max(n, 2 * kinds.length);
+		int[] r = new int[4 * capacity];
+		System.arraycopy(rects, 0, r, 0, rects.length);
+		rects = r;
+		prevRects = new int[4 * capacity];
+		kinds = grow(kinds, capacity);
+		choices = grow(choices, capacity);
+		boolean[] l = new boolean[capacity];
+		System.arraycopy(locked, 0, l, 0, locked.length);
+		locked = l;
+		px = new int[capacity];
+		py = new int[capacity];
+	}
+
+	private int[] grow(int[] old, int capacity) {
+		int[] result = new int[capacity];
+		System.arraycopy(old, 0, result, 0, old.length);
+		return result;
+	}
+
+	public long getFrames() {
+		return frames;
+	}
+
+	/**
+	 * @return frames in which everything was redrawn
+	 */
+	public long getFullRedraws() {
+		return fullRedraws;
+	}
+
+	/**
+	 * @return frames in which no sprite moved, nothing was repainted
+	 */
+	public long getCleanFrames() {
+		return cleanFrames;
+	}
+
+	/**
+	 * @return pixels of the region the last update() asked to repaint
+	 */
+	public long getLastArea() {
+		return lastArea;
+	}
+
+	/**
+	 * @return average pixels repainted per frame
+	 */
+	public double getAverageArea() {
+		return frames == 0 ? 0 : (double) area / frames;
+	}
+
+	/**
+	 * @return time of the last paint() in ms
+	 */
+	public double getLastPaintTime() {
+		return lastPaintTime / 1e6;
+	}
+
+	/**
+	 * @return average time of paint() in ms
+	 */
+	public double getAveragePaintTime() {
+		return paints == 0 ? 0 : paintTime / 1e6 / paints;
+	}
+
+	public String toString() {
+		return String.format("frames %d (full %d, clean %d), %.0f px/frame, paint %.3f ms avg, %.3f ms last",
+				frames, fullRedraws, cleanFrames, getAverageArea(), getAveragePaintTime(), getLastPaintTime());
+	}
+}
@@ -0,0 +1,144 @@
+package newOne;
+
+/**
+ * Copy of the particle locations of the last two physics ticks, used for drawing.
+ * Drawing interpolates between them, so the blob moves smoothly even if the physics ticks
+ * slower than the screen is repainted.
+ * All arrays are reused and only grow.
+ */
+public class BlobSnapshot {
+
+	private int size = 0;
+	private double[] x = new double[0], y = new double[0];
+	private double[] prevX = new double[0], prevY = new double[0];
+	private int[] kind = new int[0], choice = new int[0];
+	private boolean[] locked = new boolean[0];
+	private long tick = 0;
+	/**
+	 * System.nanoTime() when the last tick was captured
+	 */
+	private long time = 0;
+	/**
+	 * Set by the renderer when it took this snapshot, see SnapshotExchange
+	 */
+	volatile boolean consumed = true;
+
+	/**
+	 * Moves the current locations to the previous ones and copies the store as the current ones
+	 */
+	public void capture(ParticleStore store, long tick) {
+		int n = store.size();
+		ensureCapacity(n);
+		double[] swap = prevX;
+		prevX = x;
+		x = swap;
+		swap = prevY;
+		prevY = y;
+		y = swap;
+		System.arraycopy(store.x, 0, x, 0, n);
+		System.arraycopy(store.y, 0, y, 0, n);
+		System.arraycopy(store.kind, 0, kind, 0, n);
+		System.arraycopy(store.choice, 0, choice, 0, n);
+		for (int i = 0; i < n; i++) {
+			locked[i] = store.isLocked(i);
+		}
+		// new particles have no previous location
+		for (int i = size; i < n; i++) {
+			prevX[i] = x[i];
+			prevY[i] = y[i];
+		}
+		size = n;
+		this.tick = tick;
+		this.time = System.nanoTime();
+	}
+
+	/**
+	 * Copies both states of another snapshot
+	 */
+	public void copyFrom(BlobSnapshot other) {
+		int n = other.size;
+		ensureCapacity(n);
+		System.arraycopy(other.x, 0, x, 0, n);
+		System.arraycopy(other.y, 0, y, 0, n);
+		System.arraycopy(other.prevX, 0, prevX, 0, n);
+		System.arraycopy(other.prevY, 0, prevY, 0, n);
+		System.arraycopy(other.kind, 0, kind, 0, n);
+		System.arraycopy(other.choice, 0, choice, 0, n);
+		System.arraycopy(other.locked, 0, locked, 0, n);
+		size = n;
+		tick = other.tick;
+		time = other.time;
+	}
+
+	private void ensureCapacity(int n) {
+		if (x.length < n) {
+			int capacity = Math.max(n, 2 * x.length);
+			x = grow(x, capacity);
+			y = grow(y, capacity);
+			prevX = grow(prevX, capacity);
+			prevY = grow(prevY, capacity);
+			kind = new int[capacity];
+			choice = new int[capacity];
+			locked = new boolean[capacity];
+		}
+	}
+
+	/**
+	 * Same as capture() but without a previous state, e.g. after a jump
+	 */
+	public void reset(ParticleStore store, long tick) {
+		size = 0;
+		capture(store, tick);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Builds the index over the locations of the last tick
+	 */
+	public void index(ParticleIndex index) {
+		index.build(x, y, size);
+	}
+
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 * @return System.nanoTime() of the last captured tick
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * @param alpha 0 = previous tick, 1 = last tick
+	 */
+	public double getX(int i, double alpha) {
+		return prevX[i] + (x[i] - prevX[i]) * alpha;
+	}
+
+	public double getY(int i, double alpha) {
+		return prevY[i] + (y[i] - prevY[i]) * alpha;
+	}
+
+	public int getKind(int i) {
+		return kind[i];
+	}
+
+	public int getChoice(int i) {
+		return choice[i];
+	}
+
+	public boolean isLocked(int i) {
+		return locked[i];
+	}
+
+	private double[] grow(double[] old, int capacity) {
+		double[] result = new double[capacity];
+		System.arraycopy(old, 0, result, 0, Math.min(old.length, size));
+		return result;
+	}
+}
@@ -0,0 +1,170 @@
+package newOne;
+
+/**
+ * Adaptive Dormand-Prince RK45. A step of the engine is split into as many substeps as the error control needs.
+ * The 4th and 5th order results are compared and the substep size follows the error
+ * (tolerance = ABSOLUTE + RELATIVE * |value| per variable).
+ * The last stage of an accepted substep is the first stage of the next one (FSAL),
+ * so a substep costs 6 force evaluations. The substep size is kept for the next call.
+ */
+public class DormandPrinceIntegrator implements Integrator {
+
+	private static final double
+		A21 = 1.0/5,
+		A31 = 3.0/40, A32 = 9.0/40,
+		A41 = 44.0/45, A42 = -56.0/15, A43 = 32.0/9,
+		A51 = 19372.0/6561, A52 = -25360.0/2187, A53 = 64448.0/6561, A54 = -212.0/729,
+		A61 = 9017.0/3168, A62 = -355.0/33, A63 = 46732.0/5247, A64 = 49.0/176, A65 = -5103.0/18656,
+		A71 = 35.0/384, A73 = 500.0/1113, A74 = 125.0/192, A75 = -2187.0/6784, A76 = 11.0/84;
+	/*
+	 * difference between the 5th and the 4th order weights
+	 */
+	private static final double
+		E1 = 71.0/57600, E3 = -71.0/16695, E4 = 71.0/1920, E5 = -17253.0/339200, E6 = 22.0/525, E7 = -1.0/40;
+	/**
+	 * Stops a step that would need more substeps, the rest is taken in one substep
+	 */
+	private static final int MAX_SUBSTEPS = 1000;
+
+	private double ABSOLUTE = 1e-4;
+	private double RELATIVE = 1e-6;
+
+	private double[] y, tmp, y5, k1, k2, k3, k4, k5, k6, k7;
+	/**
+	 * Substep size that worked last time, 0 if unknown
+	 */
+	private double h = 0;
+	private int substeps = 0;
+	private int rejected = 0;
+	/**
+	 * k1 belongs to y (first same as last)
+	 */
+	private boolean k1Valid = false;
+
+	public void step(PhysicEngine engine, ParticleStore store, double[] vars, double[] next, int N, double stepSize) {
+		int n = 4 * N;
+		if (y == null || y.length < n) {
+			y = new double[n];
+			tmp = new double[n];
+			y5 = new double[n];
+			k1 = new double[n];
+			k2 = new double[n];
+			k3 = new double[n];
+			k4 = new double[n];
+			k5 = new double[n];
+			k6 = new double[n];
+			k7 = new double[n];
+		}
+		System.arraycopy(vars, 0, y, 0, n);
+		k1Valid = false;
+		if (h <= 0 || h > stepSize)
+			h = stepSize;
+		double t = 0;
+		int count = 0;
+		while (t < stepSize) {
+			boolean last = count++ >= MAX_SUBSTEPS;
+			double dt = last ? stepSize - t : Math.min(h, stepSize - t);
+			if (!k1Valid)
+				engine.evaluate(y, k1, N);
+			stage(engine, N, dt);
+			double err = error(N, dt);
+			if (err <= 1 || last) {
+				t += dt;
+				// FSAL: the derivative at y5 is the first stage of the next substep
+				double[] swap = y;
+				y = y5;
+				y5 = swap;
+				swap = k1;
+				k1 = k7;
+				k7 = swap;
+				k1Valid = true;
+				holdLocked(store, vars, N);
+				substeps++;
+			}
+			else
+				rejected++;
+			// standard step size control with safety factor 0.9
+			double factor = err == 0 ? 5 : 0.9 * Math.pow(err, -0.2);
+			double newH = dt * Math.min(5, Math.max(0.2, factor));
+			// a short last substep to hit stepSize says nothing about the step size
+			if (dt == h || err > 1)
+				h = newH;
+		}
+		System.arraycopy(y, 0, next, 0, n);
+	}
+
+	/**
+	 * Computes stages k2 ... k7 and the 5th order result y5
+	 */
+	private void stage(PhysicEngine engine, int N, double dt) {
+		int n = 4 * N;
+		int i;
+		for (i = 0; i < n; i++)
+			tmp[i] = y[i] + dt * A21 * k1[i];
+		engine.evaluate(tmp, k2, N);
+		for (i = 0; i < n; i++)
+			tmp[i] = y[i] + dt * (A31 * k1[i] + A32 * k2[i]);
+		engine.evaluate(tmp, k3, N);
+		for (i = 0; i < n; i++)
+			tmp[i] = y[i] + dt * (A41 * k1[i] + A42 * k2[i] + A43 * k3[i]);
+		engine.evaluate(tmp, k4, N);
+		for (i = 0; i < n; i++)
+			tmp[i] = y[i] + dt * (A51 * k1[i] + A52 * k2[i] + A53 * k3[i] + A54 * k4[i]);
+		engine.evaluate(tmp, k5, N);
+		for (i = 0; i < n; i++)
+			tmp[i] = y[i] + dt * (A61 * k1[i] + A62 * k2[i] + A63 * k3[i] + A64 * k4[i] + A65 * k5[i]);
+		engine.evaluate(tmp, k6, N);
+		for (i = 0; i < n; i++)
+			y5[i] = y[i] + dt * (A71 * k1[i] + A73 * k3[i] + A74 * k4[i] + A75 * k5[i] + A76 * k6[i]);
+		engine.evaluate(y5, k7, N);
+	}
+
+	/**
+	 * @return rms of the error estimate divided by the tolerance, <= 1 means accepted
+	 */
+	private double error(int N, double dt) {
+		int n = 4 * N;
+		double sum = 0;
+		for (int i = 0; i < n; i++) {
+			double e = dt * (E1 * k1[i] + E3 * k3[i] + E4 * k4[i] + E5 * k5[i] + E6 * k6[i] + E7 * k7[i]);
+			double tol = ABSOLUTE + RELATIVE * Math.max(Math.abs(y[i]), Math.abs(y5[i]));
+			sum += (e / tol) * (e / tol);
+		}
+		return n > 0 ? Math.sqrt(sum / n) : 0;
+	}
+
+	/**
+	 * Locked particles stay where they were at the start of the step
+	 */
+	private void holdLocked(ParticleStore store, double[] vars, int N) {
+		for (int i = 0; i < N; i++) {
+			if (store.isLocked(i)) {
+				System.arraycopy(vars, 4*i, y, 4*i, 4);
+				k1Valid = false;
+			}
+		}
+	}
+
+	/**
+	 * @param absolute absolute error allowed per variable and substep
+	 * @param relative error allowed relative to the value of the variable
+	 */
+	public void setTolerance(double absolute, double relative) {
+		ABSOLUTE = absolute;
+		RELATIVE = relative;
+	}
+
+	/**
+	 * @return accepted substeps since the integrator was created
+	 */
+	public int getSubsteps() {
+		return substeps;
+	}
+
+	/**
+	 * @return rejected substeps since the integrator was created
+	 */
+	public int getRejected() {
+		return rejected;
+	}
+}
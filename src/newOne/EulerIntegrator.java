@@ -0,0 +1,29 @@
+package newOne;
+
+/**
+ * Semi-implicit (symplectic) Euler: the speed is updated first and the new speed moves the particle.
+ * One force evaluation per step, first order but does not gain energy like the explicit Euler.
+ */
+public class EulerIntegrator implements Integrator {
+
+	private double[] change;
+
+	public void step(PhysicEngine engine, ParticleStore store, double[] vars, double[] next, int N, double stepSize) {
+		if (change == null || change.length < 4 * N) {
+			change = new double[4 * N];
+		}
+		engine.evaluate(vars, change, N);
+		for (int i = 0; i < N; i++) {
+			if (store.isLocked(i)) {
+				System.arraycopy(vars, 4*i, next, 4*i, 4);
+				continue;
+			}
+			double vx = vars[4*i + 2] + change[4*i + 2] * stepSize;
+			double vy = vars[4*i + 3] + change[4*i + 3] * stepSize;
+			next[4*i] = vars[4*i] + vx * stepSize;
+			next[4*i + 1] = vars[4*i + 1] + vy * stepSize;
+			next[4*i + 2] = vx;
+			next[4*i + 3] = vy;
+		}
+	}
+}
@@ -30,27 +30,173 @@ public class Events{
 	private Particle particle;
 	private TestParticleGUI gui;
 	
-	//fuer verzerren
+	//fuer verzerren, der gezogene Partikel wird von pm.grab() gehalten
 	private int zustand=0;
-	private Particle gelocked;
 	
 	//fuer move
 	private int xstart;
 	private int ystart;
 	
-	//sound
-	private Mp3 player;
+	//sound, all clips are decoded once and mixed by one thread. With a window the engine starts (and decodes)
+	//when the events are made, headless it is taken on the first sound, muted not at all
+	private SoundEngine sound;
+	private boolean muted = false;
+	
+	//gets every applied event, may be null
+	private TrajectoryRecorder recorder;
+	
+	//random speeds for poke and fuettern
+	private Random rnd = new Random();
+	
+	//input queue, null = events are applied at once by the calling thread
+	private volatile InputQueue queue;
+	private InputQueue.Command carry;
+	private long applied = 0;
+	private long coalesced = 0;
+	//box center for incenter() while queued, written by the physics thread
+	private volatile double boxCenterX, boxCenterY;
+	/**
+	 * At most this many commands are applied per drain(), the rest waits for the next tick
+	 */
+	public static final int MAX_COMMANDS_PER_TICK = 64;
 	
 	//Constructor
 	public Events(PMgnt pm, TestParticleGUI testParticleGUI) {
 		this.gui = testParticleGUI;
 		this.pm = pm;
 		orad = pm.particlesystem[0].OUTER_RAD;
+		// decode now, so the first mouse enter or poke is not lost while the clips load
+		if(gui!=null) sound = SoundEngine.getDefault();
 	}
 
+	/**
+	 * Queued mode: poke, fuettern, move and verzerren only put a command into a lock free queue
+	 * and the physics thread applies them with drain() between two ticks, so the EDT never changes
+	 * particles while the engine works on them. Without queue they are applied at once.
+	 * Only switch while no thread drains, SimulationLoop.setInput() and stop() do it.
+	 */
+	public void setQueued(boolean queued) {
+		if (queued && queue == null) {
+			updateBox();
+			queue = new InputQueue();
+		}
+		else if (!queued && queue != null) {
+			drain(Integer.MAX_VALUE);
+			queue = null;
+		}
+	}
+	
+	public boolean isQueued() {
+		return queue != null;
+	}
+	
+	/**
+	 * Applies the queued commands in order. Drag steps followed by another drag step of the same kind
+	 * are skipped, so a drag moves the blob once per tick however fast the mouse reports.
+	 * Only called by the thread stepping the physics.
+	 * @return number of commands applied
+	 */
+	public int drain() {
+		return drain(MAX_COMMANDS_PER_TICK);
+	}
+	
+	private int drain(int max) {
+		InputQueue q = queue;
+		if (q == null) return 0;
+		int done = 0;
+		InputQueue.Command c = carry != null ? carry : q.poll();
+		carry = null;
+		while (c != null) {
+			if (done == max) {
+				carry = c;
+				break;
+			}
+			InputQueue.Command following = q.poll();
+			//the first step of a drag (zustand 0) grabs the particle or sets the start, it is always applied
+			if (following != null && zustand != 0 && c.coalescesWith(following)) {
+				coalesced++;
+				c = following;
+				continue;
+			}
+			apply(c);
+			done++;
+			c = following;
+		}
+		applied += done;
+		updateBox();
+		return done;
+	}
+	
+	private void apply(InputQueue.Command c) {
+		switch (c.type) {
+		case POKE: pokeNow(c.x, c.y); break;
+		case FEED: fuetternNow(c.state, c.x, c.y); break;
+		case MOVE: moveNow(c.x, c.y, c.end); break;
+		case DISTORT: verzerrenNow(c.x, c.y, c.end); break;
+		}
+	}
+	
+	private boolean offer(InputQueue.Type type, int x, int y, int state, boolean end) {
+		InputQueue q = queue;
+		if (q == null) return false;
+		q.offer(new InputQueue.Command(type, x, y, state, end));
+		return true;
+	}
+	
+	/**
+	 * Same seed, same speeds for poke and fuettern, for reproducible headless runs
+	 */
+	public void setSeed(long seed) {
+		rnd = new Random(seed);
+	}
+	
+	/**
+	 * Muted events never touch the sound engine, e.g. without display
+	 */
+	public void setMuted(boolean muted) {
+		this.muted = muted;
+	}
+	
+	/**
+	 * Every event applied from now on is recorded, null stops. SimulationLoop.setRecorder() sets it
+	 */
+	public void setRecorder(TrajectoryRecorder recorder) {
+		this.recorder = recorder;
+	}
+	
+	public long getApplied() {
+		return applied;
+	}
+	
+	/**
+	 * @return drag steps that were skipped because a newer one was queued behind them
+	 */
+	public long getCoalesced() {
+		return coalesced;
+	}
+	
 	//Events to forward to PMgmt and PE
 	//fuettern means the click handling if chemie or homeopathy is selected
 	public void fuettern(int state, int x, int y){
+		if(!offer(InputQueue.Type.FEED, x, y, state, false)) fuetternNow(state, x, y);
+	}
+	
+	public void poke(int mouse_x, int mouse_y) {
+		if(!offer(InputQueue.Type.POKE, mouse_x, mouse_y, 0, false)) pokeNow(mouse_x, mouse_y);
+	}
+	
+	//if dragged at the outer area
+	public void verzerren(int mouse_x, int mouse_y, boolean ende) {
+		if(!offer(InputQueue.Type.DISTORT, mouse_x, mouse_y, 0, ende)) verzerrenNow(mouse_x, mouse_y, ende);
+	}
+	
+	//if clicked in center
+	public void move(int mouse_x, int mouse_y, boolean ende) {
+		if(!offer(InputQueue.Type.MOVE, mouse_x, mouse_y, 0, ende)) moveNow(mouse_x, mouse_y, ende);
+	}
+	
+	private void fuetternNow(int state, int x, int y){
+		if(recorder!=null) recorder.input(InputTrace.Action.FEED, state, x, false);
 		if(state==1){
 			//TODO chemie aktion
 			//1. Rahmen auf ganzen Bildschirm ausweiten (nicht mehr da es komisch aussieht)
@@ -61,24 +207,21 @@ public class Events{
 			float y_speed;
 			int xpos;
 			int ypos;
-			//random generator
-			Random rnd = new Random();
 			//iterate through particlearray
-			for (Particle p : pm.particlesystem) {
-				//dont edit it in physicsengine
-				p.setLocked(true);
+			ParticleStore s = pm.store;
+			for (int i = 0; i < s.size(); i++) {
 				//change speed
 				x_speed = rnd.nextInt(100);
 				y_speed = rnd.nextInt(100);
-				//free for physics
-				p.setLocked(false);
 				//no position change - looks iritating
 				//xpos = rnd.nextInt(1200);
 				//ypos = rnd.nextInt(800);
 				//p.setLocation(xpos, ypos);
 				//change the speed
-				p.setSpeed(x_speed, y_speed);
+				s.vx[i] = x_speed;
+				s.vy[i] = y_speed;
 			}
+			s.touch();
 			
 			
 		}
@@ -90,25 +233,21 @@ public class Events{
 	
 	//return wheater the click was in the center of the slime (move) or not (zerreissen)
 	public boolean incenter(int x, int y){
-		double xmin=0;
-		double xmax=0;
-		double ymin=0;
-		double ymax=0;
 		double centerx=0;
 		double centery=0;
-		int i=0;
-		
-		//draw a box around the particlesystem
-		for (Particle p : pm.particlesystem) {
-			if(i==0){xmin = p.getLocation(0); xmax = p.getLocation(0); ymin = p.getLocation(1); ymax = p.getLocation(1); i=1;}
-			if(p.getLocation(0) < xmin)	xmin = p.getLocation(0);
-			if(p.getLocation(0) > xmax)	xmax = p.getLocation(0);
-			if(p.getLocation(1) < ymin)	ymin = p.getLocation(1);
-			if(p.getLocation(1) > ymax)	ymax = p.getLocation(1);
+		if(queue!=null){
+			//the particles belong to the physics thread, use the box of the last drain
+			centerx=boxCenterX;
+			centery=boxCenterY;
+		}
+		else{
+			ParticleIndex index = pm.getIndex();
+			//take the center of the box around the particlesystem
+			if(index.size()>0){
+				centerx=(index.getMaxX()-index.getMinX())/2;
+				centery=(index.getMaxY()-index.getMinY())/2;
 			}
-		//take the center of it
-		centerx=(xmax-xmin)/2;
-		centery=(ymax-ymin)/2;
+		}
 		//if click was in a certain distance return true (170x,y pixel)
 		if(x>(centerx+170) || x<(centerx-170)){ return false;}
 		else if(y>(centery+170) || y<(centery-170)){ 	
@@ -125,26 +264,27 @@ public class Events{
 	 * @param mouse_x
 	 * @param mouse_y
 	 */
-	public void poke(int mouse_x, int mouse_y) {
+	private void pokeNow(int mouse_x, int mouse_y) {
+		if(recorder!=null) recorder.input(InputTrace.Action.POKE, mouse_x, mouse_y, false);
 		// TODO Auto-generated method stub
 		//(1)all particles get a new random speed
 		
 		float x_speed;
 		float y_speed;
-		Random rnd = new Random();
-		for (Particle p : pm.particlesystem) {
+		ParticleStore s = pm.store;
+		for (int i = 0; i < s.size(); i++) {
 			//random speed for all particles
 			x_speed = rnd.nextInt(40)-20;
 			y_speed = rnd.nextInt(40)-20;
 			//change particle speedvalues
-			p.setLocked(true);
-			p.setSpeed(x_speed, y_speed);
-			p.setLocked(false);
+			s.vx[i] = x_speed;
+			s.vy[i] = y_speed;
 		}
+		s.touch();
 	}
 	
-	//if dragged at the outer area
-	public void verzerren(int mouse_x, int mouse_y, boolean ende) {
+	private void verzerrenNow(int mouse_x, int mouse_y, boolean ende) {
+		if(recorder!=null) recorder.input(InputTrace.Action.DISTORT, mouse_x, mouse_y, ende);
 		// TODO Auto-generated method stub
 		//(1)partikel ansprechen mit abgefragten koordinaten
 		//(2)diesen partikel locken
@@ -153,39 +293,33 @@ public class Events{
 
 		//erster durchlauf:  Partikel finden und locken
 				if(zustand==0){
-					double distance = 0;
-
-					for (Particle p : pm.particlesystem) {
-						distance = p.getDistance(mouse_x, mouse_y);
-						//if distance is smaler than radius +100
-						if(distance <= orad+100){
-							//lock the particle
-							gelocked =p;
-							p.setLocked(true);
-							zustand=1;
-							break;
-						}
+					//closest particle if the distance is smaler than radius +100
+					int i = pm.getIndex().nearest(mouse_x, mouse_y, orad+100);
+					if(i!=-1){
+						//lock the particle until ende, so growing and shrinking between two ticks leave it alone
+						pm.grab(i);
+						zustand=1;
 					}
 				}
 		
-		//Wenn schon ein Partikel gefunden bewegen		
-		if(zustand==1){
-			//moves quite fast but this is due to physics....
-			gelocked.setLocation(mouse_x-100, mouse_y-100);
-			gelocked.setLocked(false);
+		//Wenn schon ein Partikel gefunden bewegen, der Index kann sich durch Entfernen geaendert haben
+		int g = pm.getGrabbed();
+		if(zustand==1 && g!=-1){
+			pm.particlesystem[g].setLocation(mouse_x-100, mouse_y-100);
+			pm.store.touch();
 		}
 		
 		//Wenn ein Partikel gefunden wurde und ende uebergeben wird freigeben
 		if(zustand==1 && ende){
 			//play sound
 			playnlol();
-			gelocked=null;
+			pm.release();
 			zustand=0;
 		}
 	}
 	
-	//if clicked in center
-	public void move(int mouse_x, int mouse_y, boolean ende) {
+	private void moveNow(int mouse_x, int mouse_y, boolean ende) {
+		if(recorder!=null) recorder.input(InputTrace.Action.MOVE, mouse_x, mouse_y, ende);
 		// TODO Auto-generated method stub
 		//(1)x und y start aufschreiben
 		//(2)alle partikel um differenz zu start bewegen
@@ -206,11 +340,12 @@ public class Events{
 			xstart=mouse_x;
 			ystart=mouse_y;
 			
-			for (Particle p : pm.particlesystem) {
-			p.setLocked(true);
-			p.setLocation(p.getLocation(0)+xmove, p.getLocation(1)+ymove);
-			p.setLocked(false);
+			ParticleStore s = pm.store;
+			for (int i = 0; i < s.size(); i++) {
+				s.x[i] += xmove;
+				s.y[i] += ymove;
 			}
+			s.touch();
 		}
 		
 		//Wenn start gesetzt wurde und ende uebergeben wird freigeben
@@ -223,26 +358,44 @@ public class Events{
 		}	
 	}
 	
+	//box center as incenter() computes it, for the EDT while queued
+	private void updateBox() {
+		ParticleIndex index = pm.getIndex();
+		if(index.size()>0){
+			boxCenterX=(index.getMaxX()-index.getMinX())/2;
+			boxCenterY=(index.getMaxY()-index.getMinY())/2;
+		}
+	}
+	
 	//play a laugh
 	public void playGood()
 	{
-		player = new Mp3("good");
-		player.start();
+		play("good");
 	}
 	
 	//play a burk
 	public void playBad()
 	{
-		player = new Mp3("bad");
-		player.start();
+		play("bad");
+	}
+	
+	//play a random laugh
+	public void playlol()
+	{
+		play("lol");
 	}
 	
 	//play a not laughing sound
 	public void playnlol()
 	{
-		player = new Mp3("nlol");
-		player.start();
+		play("nlol");
 	}
 	
-}
+	private void play(String cue)
+	{
+		if(muted) return;
+		if(sound==null) sound = SoundEngine.getDefault();
+		sound.play(cue);
+	}
 	
+}
@@ -0,0 +1,104 @@
+package newOne;
+
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * Fixed pool of threads evaluating the forces of one PhysicEngine in parallel.
+ * PhysicEngine.work() splits the particles into fixed chunks per thread, the calling thread takes the first one.
+ * A barrier starts all threads for every evaluation and a second one waits until all chunks are done.
+ */
+class ForceWorkers {
+
+	private final PhysicEngine engine;
+	private final int threads;
+	private final CyclicBarrier start;
+	private final CyclicBarrier done;
+	private final Thread[] workers;
+	/*
+	 * Task of the current evaluation, published to the workers by the start barrier
+	 */
+	private double[] x;
+	private double[] change;
+	private int N;
+	private volatile boolean shutdown = false;
+
+	ForceWorkers(PhysicEngine engine, int threads) {
+		this.engine = engine;
+		this.threads = threads;
+		this.start = new CyclicBarrier(threads);
+		this.done = new CyclicBarrier(threads);
+		this.workers = new Thread[threads - 1];
+		for (int k = 1; k < threads; k++) {
+			final int worker = k;
+			Thread t = new Thread("PhysicEngine worker " + k) {
+				public void run() {
+					work(worker);
+				}
+			};
+			t.setDaemon(true);
+			workers[k - 1] = t;
+			t.start();
+		}
+	}
+
+	int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Evaluates all N particles, returns when every chunk is done
+	 */
+	void evaluate(double[] x, double[] change, int N) {
+		this.x = x;
+		this.change = change;
+		this.N = N;
+		await(start);
+		engine.work(x, change, N, 0, threads);
+		await(done);
+	}
+
+	/**
+	 * Ends all worker threads, only while no evaluation runs. A worker waiting on a barrier is interrupted,
+	 * one between the barriers sees the flag before it waits again
+	 */
+	void shutdown() {
+		shutdown = true;
+		for (Thread t : workers) {
+			t.interrupt();
+		}
+	}
+
+	private void work(int worker) {
+		while (!shutdown) {
+			try {
+				start.await();
+			} catch (InterruptedException e) {
+				return;
+			} catch (BrokenBarrierException e) {
+				return;
+			}
+			if (shutdown)
+				return;
+			engine.work(x, change, N, worker, threads);
+			try {
+				done.await();
+			} catch (InterruptedException e) {
+				return;
+			} catch (BrokenBarrierException e) {
+				return;
+			}
+		}
+	}
+
+	private void await(CyclicBarrier barrier) {
+		try {
+			barrier.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (BrokenBarrierException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
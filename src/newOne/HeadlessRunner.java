@@ -0,0 +1,132 @@
+package newOne;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Runs the blob without window, textures or sound: PMgnt, PhysicEngine and Events are driven by an
+ * InputTrace through the same SimulationLoop ticks as in TestController, but one tick after the other
+ * as fast as possible on the calling thread. Reports how many steps per second the engine manages.
+ *
+ * Usage: java newOne.HeadlessRunner [ticks] [trace file or "random"] [particles] [seed]
+ */
+public class HeadlessRunner {
+
+	private static final int XAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel
+	private static final int YAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel
+	private static final int AREA = 600;			// size of the window the random trace clicks in
+	private static final int REFRESH_TIME = 60;	// real time of a tick in TestController in ms
+	private static final double STEPSIZE = 0.05;	// Simulated time of one physics tick
+	private static final int PARTICLE_RADIUS = 20;  // Particle radius
+
+	private final PMgnt pm;
+	private final PhysicEngine pe;
+	private final Events events;
+	private final SimulationLoop loop;
+	private final InputTrace trace;
+
+	private long ticks = 0;
+	private long actions = 0;
+	private long time = 0;
+
+	/**
+	 * @param pm particles to simulate
+	 * @param trace input, may be null
+	 * @param stepSize simulated time of one tick
+	 */
+	public HeadlessRunner(PMgnt pm, InputTrace trace, double stepSize) {
+		this.pm = pm;
+		this.trace = trace;
+		this.pe = new PhysicEngine(pm.particlesystem);
+		this.events = new Events(pm, null);
+		events.setMuted(true);
+		this.loop = new SimulationLoop(pe, pm, null, REFRESH_TIME, stepSize);
+		// the blob would fall asleep and the ticks would cost nothing
+		loop.setSleep(0, 0);
+		loop.setInput(events);
+	}
+
+	/**
+	 * Runs the next ticks, the trace actions of a tick are queued before it
+	 */
+	public void run(long n) {
+		long t0 = System.nanoTime();
+		for (long end = ticks + n; ticks < end; ticks++) {
+			if (trace != null)
+				actions += trace.apply(ticks, events, pm);
+			loop.tickNow();
+		}
+		time += System.nanoTime() - t0;
+	}
+
+	/**
+	 * Stops the force worker threads of the engine, the next run() starts them again
+	 */
+	public void stop() {
+		pe.stopWorkers();
+	}
+
+	public long getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * @return trace actions handed to the events so far
+	 */
+	public long getActions() {
+		return actions;
+	}
+
+	public double getStepsPerSecond() {
+		return time == 0 ? 0 : ticks / (time / 1e9);
+	}
+
+	/**
+	 * @return how much faster than the GUI, which runs a tick every REFRESH_TIME ms
+	 */
+	public double getRealTimeFactor() {
+		return getStepsPerSecond() * REFRESH_TIME / 1000;
+	}
+
+	public PMgnt getPMgnt() {
+		return pm;
+	}
+
+	public PhysicEngine getEngine() {
+		return pe;
+	}
+
+	public Events getEvents() {
+		return events;
+	}
+
+	public SimulationLoop getLoop() {
+		return loop;
+	}
+
+	public String toString() {
+		return String.format("%d steps in %.1f ms: %.0f steps/s (%.0fx real time), %d particles, %d actions (%d applied, %d coalesced)",
+				ticks, time / 1e6, getStepsPerSecond(), getRealTimeFactor(), pm.size(), actions,
+				events.getApplied(), events.getCoalesced());
+	}
+
+	public static void main(String[] args) throws IOException {
+		long ticks = args.length > 0 ? Long.parseLong(args[0]) : 100000;
+		String input = args.length > 1 ? args[1] : "random";
+		int particles = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+		long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+
+		PMgnt pm = new PMgnt(particles, XAREA_PART_MGNT, YAREA_PART_MGNT, PARTICLE_RADIUS / 2, PMgnt.Layout.CLUMPED, seed);
+		InputTrace trace = input.equals("random") ? InputTrace.random(seed, ticks, AREA) : InputTrace.read(new File(input));
+		HeadlessRunner runner = new HeadlessRunner(pm, trace, STEPSIZE);
+		runner.getEvents().setSeed(seed);
+		// a short run first, so the JIT has compiled the step
+		long warmup = Math.min(ticks / 10, 1000);
+		runner.run(warmup);
+		System.out.println("warmup: " + runner);
+		runner.run(ticks - warmup);
+		System.out.println(runner);
+		System.out.println(runner.getLoop());
+		runner.stop();
+	}
+}
@@ -16,7 +16,8 @@ public class HelperClass {
 	
 	public void printAllSpeed(){
 		int i = 0;
-		for(Particle p : pm.particlesystem){
+		for(int k = 0; k < pm.size(); k++){
+			Particle p = pm.particlesystem[k];
 			System.out.print("Particle: " + i + " Speed-x: " + p.getSpeed(0) + " Speed-y: " + p.getSpeed(1));
 		}
 		System.out.println();
@@ -24,7 +25,8 @@ public class HelperClass {
 
 	public void printAllLocation(){
 		int i = 0;
-		for(Particle p : pm.particlesystem){
+		for(int k = 0; k < pm.size(); k++){
+			Particle p = pm.particlesystem[k];
 			System.out.println("Particle: " + i + " Speed-x: " + p.getLocation(0) + " Speed-y: " + p.getLocation(1));
 		}
 	}
@@ -0,0 +1,74 @@
+package newOne;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock free queue of input commands from many producers (the EDT, tests, tools) to one consumer
+ * (the physics thread). offer() is one atomic swap, poll() only reads a volatile field,
+ * so neither side ever blocks the other.
+ * The queue is a linked list with a stub node: head is the last consumed node, tail the last offered one.
+ */
+public class InputQueue {
+
+	/**
+	 * What a command does, see Events
+	 */
+	public enum Type {
+		POKE, FEED, MOVE, DISTORT
+	}
+
+	/**
+	 * One mouse action. end marks the release of a drag
+	 */
+	public static final class Command {
+		final Type type;
+		final int x, y, state;
+		final boolean end;
+		volatile Command next;
+
+		Command(Type type, int x, int y, int state, boolean end) {
+			this.type = type;
+			this.x = x;
+			this.y = y;
+			this.state = state;
+			this.end = end;
+		}
+
+		/**
+		 * @return true if this drag step is made obsolete by the following one, both only say where the mouse is
+		 */
+		boolean coalescesWith(Command following) {
+			return !end && !following.end && type == following.type && (type == Type.MOVE || type == Type.DISTORT);
+		}
+	}
+
+	private final AtomicReference<Command> tail;
+	private Command head;
+
+	public InputQueue() {
+		Command stub = new Command(null, 0, 0, 0, false);
+		head = stub;
+		tail = new AtomicReference<Command>(stub);
+	}
+
+	/**
+	 * Adds a command, may be called by any thread
+	 */
+	public void offer(Command c) {
+		Command previous = tail.getAndSet(c);
+		// a consumer sees c as soon as this link is written
+		previous.next = c;
+	}
+
+	/**
+	 * Takes the oldest command, only called by the consumer thread
+	 * @return null if the queue is empty
+	 */
+	public Command poll() {
+		Command next = head.next;
+		if (next == null)
+			return null;
+		head = next;
+		return next;
+	}
+}
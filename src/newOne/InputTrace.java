@@ -0,0 +1,203 @@
+package newOne;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Scripted mouse input for runs without a window. A trace is a list of actions, each at a physics tick,
+ * which are handed to Events (and PMgnt for insert and remove) just like the GUI would.
+ *
+ * The text format has one action per line, blank lines and lines starting with # are skipped:
+ * <pre>
+ * # tick action arguments
+ * 0 poke 250 250
+ * 10 move 100 100
+ * 14 move 140 120 end
+ * 20 distort 300 300
+ * 25 distort 320 310 end
+ * 30 feed 1
+ * 40 insert 5
+ * 50 remove 3
+ * </pre>
+ */
+public class InputTrace {
+
+	public enum Action {POKE, FEED, MOVE, DISTORT, INSERT, REMOVE}
+
+	public static final class Entry {
+		public final long tick;
+		public final Action action;
+		/**
+		 * Mouse location, for FEED x is the state and for INSERT and REMOVE the number of particles
+		 */
+		public final int x, y;
+		/**
+		 * Last step of a drag
+		 */
+		public final boolean end;
+
+		public Entry(long tick, Action action, int x, int y, boolean end) {
+			this.tick = tick;
+			this.action = action;
+			this.x = x;
+			this.y = y;
+			this.end = end;
+		}
+
+		public String toString() {
+			switch (action) {
+			case FEED:
+			case INSERT:
+			case REMOVE:
+				return tick + " " + action.name().toLowerCase() + " " + x;
+			default:
+				return tick + " " + action.name().toLowerCase() + " " + x + " " + y + (end ? " end" : "");
+			}
+		}
+	}
+
+	private final List<Entry> entries = new ArrayList<Entry>();
+	private int next = 0;
+
+	public void add(long tick, Action action, int x, int y, boolean end) {
+		entries.add(new Entry(tick, action, x, y, end));
+	}
+
+	/**
+	 * Reads a trace file, see the class comment for the format
+	 */
+	public static InputTrace read(File file) throws IOException {
+		FileReader in = new FileReader(file);
+		try {
+			return read(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	public static InputTrace read(Reader reader) throws IOException {
+		InputTrace trace = new InputTrace();
+		BufferedReader in = new BufferedReader(reader);
+		String line;
+		int number = 0;
+		while ((line = in.readLine()) != null) {
+			number++;
+			line = line.trim();
+			if (line.length() == 0 || line.startsWith("#"))
+				continue;
+			String[] part = line.split("\\s+");
+			try {
+				long tick = Long.parseLong(part[0]);
+				Action action = Action.valueOf(part[1].toUpperCase());
+				int x = Integer.parseInt(part[2]);
+				int y = part.length > 3 ? Integer.parseInt(part[3]) : 0;
+				boolean end = part.length > 4 && part[4].equals("end");
+				trace.add(tick, action, x, y, end);
+			} catch (RuntimeException e) {
+				throw new IOException("line " + number + ": " + line);
+			}
+		}
+		trace.sort();
+		return trace;
+	}
+
+	/**
+	 * A user playing with the blob: every few ticks a poke, a drag of the blob or a particle,
+	 * feeding or growing and shrinking, all inside an area of size x size
+	 */
+	public static InputTrace random(long seed, long ticks, int size) {
+		InputTrace trace = new InputTrace();
+		Random rnd = new Random(seed);
+		long tick = 0;
+		while (tick < ticks) {
+			int x = rnd.nextInt(size);
+			int y = rnd.nextInt(size);
+			switch (rnd.nextInt(6)) {
+			case 0:
+				trace.add(tick, Action.POKE, x, y, false);
+				break;
+			case 1:
+				trace.add(tick, Action.FEED, 1, 0, false);
+				break;
+			case 2:
+				trace.add(tick, rnd.nextBoolean() ? Action.INSERT : Action.REMOVE, 1 + rnd.nextInt(5), 0, false);
+				break;
+			default:
+				// a drag over a few ticks with several mouse reports per tick
+				Action drag = rnd.nextBoolean() ? Action.MOVE : Action.DISTORT;
+				int steps = 5 + rnd.nextInt(20);
+				for (int i = 0; i < steps && tick < ticks; i++) {
+					x = Math.max(0, Math.min(size, x + rnd.nextInt(21) - 10));
+					y = Math.max(0, Math.min(size, y + rnd.nextInt(21) - 10));
+					trace.add(tick, drag, x, y, i == steps - 1);
+					if (rnd.nextInt(3) == 0)
+						tick++;
+				}
+			}
+			tick += 1 + rnd.nextInt(20);
+		}
+		return trace;
+	}
+
+	/**
+	 * Hands all actions up to tick to the events and pm, in the order of the trace
+	 * @return number of actions
+	 */
+	public int apply(long tick, Events events, PMgnt pm) {
+		int done = 0;
+		while (next < entries.size() && entries.get(next).tick <= tick) {
+			Entry e = entries.get(next++);
+			switch (e.action) {
+			case POKE: events.poke(e.x, e.y); break;
+			case FEED: events.fuettern(e.x, e.y, 0); break;
+			case MOVE: events.move(e.x, e.y, e.end); break;
+			case DISTORT: events.verzerren(e.x, e.y, e.end); break;
+			case INSERT: pm.insertparticle(e.x); break;
+			case REMOVE: pm.removeparticle(e.x); break;
+			}
+			done++;
+		}
+		return done;
+	}
+
+	/**
+	 * Starts again at the first action
+	 */
+	public void rewind() {
+		next = 0;
+	}
+
+	/**
+	 * Keeps actions of the same tick in their order
+	 */
+	private void sort() {
+		Collections.sort(entries, new Comparator<Entry>() {
+			public int compare(Entry a, Entry b) {
+				return a.tick < b.tick ? -1 : (a.tick == b.tick ? 0 : 1);
+			}
+		});
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public List<Entry> getEntries() {
+		return Collections.unmodifiableList(entries);
+	}
+
+	/**
+	 * @return tick of the last action
+	 */
+	public long getLength() {
+		return entries.isEmpty() ? 0 : entries.get(entries.size() - 1).tick;
+	}
+}
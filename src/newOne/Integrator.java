@@ -0,0 +1,23 @@
+package newOne;
+
+/**
+ * Integration scheme used by PhysicEngine.step().
+ * The state is given in the vars layout of the PhysicEngine
+ * 0	1	2	3		4	...
+ * Ux	Uy	Vx	Vy		U1x	...
+ * and the derivatives are computed with PhysicEngine.evaluate().
+ * Locked particles (ParticleStore.isLocked()) have to come out of a step unchanged.
+ */
+public interface Integrator {
+
+	/**
+	 * Computes the state after stepSize
+	 * @param engine gives the derivatives via evaluate()
+	 * @param store tells which particles are locked
+	 * @param vars state at time t, must not be changed
+	 * @param next state at time t + stepSize
+	 * @param N amount of particles
+	 * @param stepSize time step
+	 */
+	public void step(PhysicEngine engine, ParticleStore store, double[] vars, double[] next, int N, double stepSize);
+}
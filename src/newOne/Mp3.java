@@ -7,6 +7,7 @@ import java.util.Random;
 import javazoom.jl.decoder.JavaLayerException;
 import javazoom.jl.player.Player;
 
+//one thread and four decoders per sound, the events use the SoundEngine now
 public class Mp3 extends Thread{
 
 	
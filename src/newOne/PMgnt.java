@@ -1,144 +1,360 @@
 package newOne;
 
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
 //this is the particlemanagement class
 public class PMgnt {
 	
 	private int system_size = 0;
+	/**
+	 * Views on the particles, particlesystem[i] belongs to store index i.
+	 * Can be longer than size() after particles were removed, the views behind size() are reused by inserts
+	 */
 	public Particle[] particlesystem;
-	public Particle[] particlesystem2; 
-	private int pos_x = 0;
-	private int pos_y = 0;
+	//all particle values are kept here, particlesystem only holds views on it
+	public ParticleStore store;
+	/**
+	 * Spatial index over the store for hit tests, see getIndex()
+	 */
+	private ParticleIndex index;
 	private int area_x = 0;
 	private int area_y = 0;
 	private int rad_distance = 0;
 	private int particleCounter = 0;
+	private Layout layout = Layout.CLUMPED;
+	private Random rnd;
+	private final AtomicInteger pendingInsert = new AtomicInteger();
+	private final AtomicInteger pendingRemove = new AtomicInteger();
+	/**
+	 * Gets the applied inserts and removes, may be null
+	 */
+	private TrajectoryRecorder recorder;
+	/**
+	 * Store index of the particle held by grab(), -1 if none. removeParticle() moves it along with the particle
+	 */
+	private int grabbed = -1;
+	/**
+	 * removeparticle() keeps at least this many particles
+	 */
+	public static final int MIN_PARTICLES = 4;
+	/**
+	 * Candidates tried around an active particle before it is given up (Bridson uses 30)
+	 */
+	private static final int CANDIDATES = 30;
+
+	/**
+	 * How the particles are placed by createParticle()
+	 * CLUMPED: one clump somewhere in the square area ... 2*area like the blob always started
+	 * CIRCLE: filled disk around the centre of that square
+	 * RING: particles on a circle around the centre, like PhysicEngine_alt.stop() tried
+	 */
+	public enum Layout {
+		CLUMPED, CIRCLE, RING
+	}
 	
 	public PMgnt(int system_size, int area_x, int area_y, int rad_distance){
+		this(system_size, area_x, area_y, rad_distance, Layout.CLUMPED, new Random().nextLong());
+	}
+
+	/**
+	 * Creates a blob with the given layout. The same seed always creates the same blob
+	 */
+	public PMgnt(int system_size, int area_x, int area_y, int rad_distance, Layout layout, long seed){
 		this.system_size = system_size;
 		this.area_x = area_x;
 		this.area_y = area_y;
 		this.rad_distance = rad_distance;
+		this.layout = layout;
+		rnd = new Random(seed);
 		particlesystem = new Particle[this.system_size];
+		store = new ParticleStore(this.system_size);
+		store.setSeed(seed);
 		createParticle();
 		particleCounter = 0;
 	}
 	
+	public Layout getLayout() {
+		return layout;
+	}
 	
-	//this method is not released in this version because of serious sideeffects - it should have inserted particles when chemie is selected
+	/**
+	 * Inserts particles next to the blob, used when chemie is fed.
+	 * Can be called from any thread, the particles are added by applyChanges() between two physics ticks
+	 */
 	public void insertparticle(int number){
-		/*//Helper particle system
-		particlesystem2 = new Particle[particlesystem.length+number];
-		//loading old system in helper one
-		for(int i=0; i<particlesystem.length; i++ ){
-			particlesystem2[i]=particlesystem[i];
-		}
-		//add new particles
-		for(int i=0; i<number; i++ ){
-			pos_x = (int) ((Math.random()+1)*area_x);
-			pos_y = (int) ((Math.random()+1)*area_y);
-			particlesystem2[particlesystem.length+i-1] = new Particle(pos_x,pos_y);	
-		}
-		//switch the arrays
-		particlesystem=particlesystem2;
-		//create new physicsarray
-		double[] newvars= new double[particlesystem.length*4];
-		for(int i=0; i>number; i+=4){
-			for(int j=0; j<4; j++){
-				if(j==0){newvars[i+j]=particlesystem[i].getLocation(0);}
-				if(j==1){newvars[i+j]=particlesystem[i].getLocation(1);}
-				if(j==2){newvars[i+j]=particlesystem[i].getSpeed(0);}
-				if(j==3){newvars[i+j]=particlesystem[i].getSpeed(1);}	
-			}
+		pendingInsert.addAndGet(number);
+		store.touch();
+	}
+	
+	/**
+	 * Removes body particles, used when homeopathy is fed. Eyes, mouth and locked particles stay,
+	 * the blob never gets smaller than MIN_PARTICLES.
+	 * Can be called from any thread, the particles are removed by applyChanges() between two physics ticks
+	 */
+	public void removeparticle(int number){
+		pendingRemove.addAndGet(number);
+		store.touch();
+	}
+	
+	/**
+	 * Applies the pending inserts and removes. Must be called by the thread stepping the physics
+	 * (the SimulationLoop does it at the start of every tick), never during a step.
+	 * @return true if particles were added or removed
+	 */
+	public boolean applyChanges() {
+		int insert = pendingInsert.getAndSet(0);
+		int remove = pendingRemove.getAndSet(0);
+		if (recorder != null) {
+			// the requested numbers, a replay clamps the removes the same way
+			if (insert > 0) recorder.input(InputTrace.Action.INSERT, insert, 0, false);
+			if (remove > 0) recorder.input(InputTrace.Action.REMOVE, remove, 0, false);
 		}
-		pe.vars = newvars;
-		//new calc array
-		boolean[] calc = new boolean[particlesystem.length];
-		for (int i = 0; i < calc.length; i++) {
-			calc[i] = true;
+		int number = insert - remove;
+		boolean changed = false;
+		for (; number > 0; number--) {
+			addParticle();
+			changed = true;
 		}
-		pe.calc=calc;*/
+		for (; number < 0; number++) {
+			changed |= removeParticle();
+		}
+		system_size = store.size();
+		return changed;
 	}
 	
-	//this method is not released in this version because of serious sideeffects - it should remove particles when homeopathy is selected
-	public void removeparticle(int number){
-		//prevent errors
-		/*if(particlesystem.length>4){
-			//Helper particle system
-			particlesystem2 = new Particle[particlesystem.length-number];
-			//loading old system in helper one
-			for(int i=particlesystem.length-1; i>number-1; i-- ){
-				particlesystem2[i-number]=particlesystem[i];
-			}
-			//switch the arrays
-			particlesystem=particlesystem2;
-		}
-		//create new physicsarray
-				double[] newvars= new double[particlesystem.length*4];
-				for(int i=0; i>number; i+=4){
-					for(int j=0; j<4; j++){
-						if(j==0){newvars[i+j]=particlesystem[i].getLocation(0);}
-						if(j==1){newvars[i+j]=particlesystem[i].getLocation(1);}
-						if(j==2){newvars[i+j]=particlesystem[i].getSpeed(0);}
-						if(j==3){newvars[i+j]=particlesystem[i].getSpeed(1);}	
-					}
+	/**
+	 * Every insert and remove applied from now on is recorded, null stops. SimulationLoop.setRecorder() sets it
+	 */
+	public void setRecorder(TrajectoryRecorder recorder) {
+		this.recorder = recorder;
+	}
+	
+	/**
+	 * Locks particle i until release(), so applyChanges() does not remove it while it is dragged over several ticks.
+	 * Like applyChanges() only for the thread stepping the physics
+	 */
+	public void grab(int i) {
+		release();
+		store.setLocked(i, true);
+		grabbed = i;
+	}
+	
+	/**
+	 * @return current store index of the grabbed particle, -1 if none
+	 */
+	public int getGrabbed() {
+		return grabbed;
+	}
+	
+	/**
+	 * Unlocks the grabbed particle
+	 */
+	public void release() {
+		if (grabbed != -1) {
+			store.setLocked(grabbed, false);
+			grabbed = -1;
+		}
+	}
+	
+	/**
+	 * @return spatial index over the current particle locations, rebuilt only if the particles changed since the last call
+	 */
+	public ParticleIndex getIndex() {
+		if (index == null) {
+			index = new ParticleIndex(2 * Math.max(rad_distance, 1));
+		}
+		index.update(store);
+		return index;
+	}
+	
+	/**
+	 * @return current amount of particles, particlesystem may be longer
+	 */
+	public int size() {
+		return store.size();
+	}
+	
+	/**
+	 * Adds a body particle rad_distance away from a random particle, with its speed
+	 */
+	private void addParticle() {
+		int n = store.size();
+		double x = 1.5 * area_x, y = 1.5 * area_y, vx = 0, vy = 0;
+		if (n > 0) {
+			int p = rnd.nextInt(n);
+			double angle = 2 * Math.PI * rnd.nextDouble();
+			x = store.x[p] + rad_distance * Math.cos(angle);
+			y = store.y[p] + rad_distance * Math.sin(angle);
+			vx = store.vx[p];
+			vy = store.vy[p];
+		}
+		int i = store.add(x, y);
+		store.vx[i] = vx;
+		store.vy[i] = vy;
+		if (i == particlesystem.length) {
+			particlesystem = Arrays.copyOf(particlesystem, Math.max(2 * i, 4));
+		}
+		// views behind size() are kept as free list, view i always belongs to index i
+		if (particlesystem[i] == null) {
+			particlesystem[i] = new Particle(store, i);
+		}
+	}
+	
+	/**
+	 * Removes a random unlocked body particle by swapping the last particle into its place,
+	 * the grabbed particle is locked and can only be the one swapped
+	 * @return false if no particle could be removed
+	 */
+	private boolean removeParticle() {
+		int n = store.size();
+		if (n <= MIN_PARTICLES) {
+			return false;
+		}
+		int start = rnd.nextInt(n);
+		for (int k = 0; k < n; k++) {
+			int i = (start + k) % n;
+			if (store.kind[i] == 0 && !store.isLocked(i)) {
+				if (store.remove(i) == grabbed) {
+					grabbed = i;
 				}
-				pe.vars = newvars;
-				//new calc array
-				boolean[] calc = new boolean[particlesystem.length];
-				for (int i = 0; i < calc.length; i++) {
-					calc[i] = true;
-				}*/
-		
+				return true;
+			}
+		}
+		return false;
 	}
 
-//creates a new particle	
+//creates the particles of the blob
+//Poisson-disk sampling after Bridson: every particle keeps rad_distance/2 to all others and
+//is placed within rad_distance of an existing one, so the blob is one clump without overlaps
 public void createParticle() {
-		boolean done = false;
-		pos_x = (int) ((Math.random()+1)*area_x);
-		pos_y = (int) ((Math.random()+1)*area_y);
-		particlesystem[0] = new Particle(pos_x,pos_y);
-		particleCounter++;
-		for(int i = 1; i < system_size; i++){
-			while (!done) {
-				pos_x = (int) ((Math.random()+1)*area_x);
-				pos_y = (int) ((Math.random()+1)*area_y);
-				 if(isNeighbour()){
-						particlesystem[i] = new Particle(pos_x,pos_y);
-						if(i==system_size-2){
-							particlesystem[i].kind=2;
-						}
-						else if(i==system_size-1){
-							particlesystem[i] = new Particle(pos_x,pos_y);
-							particlesystem[i].kind=1;
-						}
-						particleCounter++;
-						done = true;
-				 }
+		double r = Math.max(rad_distance / 2.0, 0.5);
+		double cx = 1.5 * area_x;
+		double cy = 1.5 * area_y;
+		// the store is cleared below, that unlocks everything
+		grabbed = -1;
+		if (system_size == 0) {
+			store.clear();
+		}
+		else if (layout == Layout.RING) {
+			ring(cx, cy, r);
+		}
+		else if (layout == Layout.CIRCLE) {
+			// a Poisson disk set fills about 1 particle per 2r^2, retry larger if it was too small
+			double radius = r * Math.sqrt(2.0 * system_size / Math.PI) + r;
+			while (!poissonDisk(cx - radius, cy - radius, 2 * radius, true, cx, cy, r)) {
+				radius *= 1.25;
+			}
+		}
+		else {
+			double size = Math.min(area_x, area_y);
+			size = Math.max(size, r * Math.sqrt(2.0 * system_size));
+			double x0 = cx - size / 2;
+			double y0 = cy - size / 2;
+			while (!poissonDisk(x0, y0, size, false, x0 + rnd.nextDouble() * size, y0 + rnd.nextDouble() * size, r)) {
+				size *= 1.25;
+				x0 = cx - size / 2;
+				y0 = cy - size / 2;
+			}
+		}
+		for (int i = 0; i < system_size; i++) {
+			particlesystem[i] = new Particle(store, i);
+			if(i==system_size-2){
+				particlesystem[i].setKind(2);
+			}
+			else if(i==system_size-1){
+				particlesystem[i].setKind(1);
 			}
-			done = false;
 		}
 	}
 
-//are particles next to each other?
-	private boolean isNeighbour() {
-		boolean check = false;
-		int resultVector_y = 0;
-		int resultVector_x = 0;
-		int distance = 0;
-		while(!check){
-			for (int i = 0; i < particleCounter; i++) {
-				resultVector_x = (int) (pos_x - particlesystem[i].getLocation(0));
-				resultVector_y = (int) (pos_y - particlesystem[i].getLocation(1));
-				distance = calculateDistance(resultVector_x, resultVector_y);
-				if (distance <= rad_distance) {
-					check = true;
-					break;
+	/**
+	 * Bridson sampling in the square x0, y0, size (or the disk inside it) starting at sx, sy
+	 * with minimum distance r. A background grid with cells of r/sqrt(2) holds at most one
+	 * particle per cell, so checking a candidate only looks at the 5x5 cells around it.
+	 * @return false if the area was full before system_size particles were placed
+	 */
+	private boolean poissonDisk(double x0, double y0, double size, boolean disk, double sx, double sy, double r) {
+		store.clear();
+		particleCounter = 0;
+		double cell = r / Math.sqrt(2);
+		int cols = (int) Math.ceil(size / cell) + 1;
+		int[] grid = new int[cols * cols];
+		Arrays.fill(grid, -1);
+		int[] active = new int[system_size];
+		int activeCount = 0;
+		double half = size / 2;
+		double r2 = r * r;
+
+		grid[gridIndex(sx, sy, x0, y0, cell, cols)] = store.add(sx, sy);
+		active[activeCount++] = 0;
+		particleCounter++;
+		while (activeCount > 0 && particleCounter < system_size) {
+			int a = rnd.nextInt(activeCount);
+			int p = active[a];
+			boolean found = false;
+			for (int k = 0; k < CANDIDATES && !found; k++) {
+				// uniform in the annulus r ... 2r around p
+				double angle = 2 * Math.PI * rnd.nextDouble();
+				double dist = r * Math.sqrt(1 + 3 * rnd.nextDouble());
+				double x = store.x[p] + dist * Math.cos(angle);
+				double y = store.y[p] + dist * Math.sin(angle);
+				if (disk) {
+					double dx = x - x0 - half;
+					double dy = y - y0 - half;
+					if (dx * dx + dy * dy >= half * half) continue;
+				}
+				else if (x < x0 || y < y0 || x >= x0 + size || y >= y0 + size) {
+					continue;
+				}
+				int gx = (int) ((x - x0) / cell);
+				int gy = (int) ((y - y0) / cell);
+				boolean free = true;
+				for (int j = Math.max(gy - 2, 0); j <= Math.min(gy + 2, cols - 1) && free; j++) {
+					for (int i = Math.max(gx - 2, 0); i <= Math.min(gx + 2, cols - 1); i++) {
+						int q = grid[j * cols + i];
+						if (q != -1) {
+							double dx = store.x[q] - x;
+							double dy = store.y[q] - y;
+							if (dx * dx + dy * dy < r2) {
+								free = false;
+								break;
+							}
+						}
+					}
 				}
+				if (free) {
+					int n = store.add(x, y);
+					grid[gy * cols + gx] = n;
+					active[activeCount++] = n;
+					particleCounter++;
+					found = true;
+				}
+			}
+			if (!found) {
+				active[a] = active[--activeCount];
 			}
-			pos_x = (int) ((Math.random()+1)*area_x);
-			pos_y = (int) ((Math.random()+1)*area_y);
 		}
-		return check;
+		return particleCounter == system_size;
+	}
+
+	private int gridIndex(double x, double y, double x0, double y0, double cell, int cols) {
+		return (int) ((y - y0) / cell) * cols + (int) ((x - x0) / cell);
+	}
+
+	/**
+	 * Places the particles on a circle around cx, cy, neighbours are about rad_distance apart
+	 */
+	private void ring(double cx, double cy, double r) {
+		store.clear();
+		double radius = Math.max(system_size * 2 * r / (2 * Math.PI), 2 * r);
+		for (int i = 0; i < system_size; i++) {
+			// jitter of at most a quarter step keeps neighbours apart
+			double angle = (i + 0.25 * (rnd.nextDouble() - 0.5)) * 2 * Math.PI / system_size;
+			store.add(cx + radius * Math.cos(angle), cy + radius * Math.sin(angle));
+		}
+		particleCounter = system_size;
 	}
 
 	//distance calculation
@@ -150,7 +366,8 @@ public void createParticle() {
 	//just for testing
 	public void printParticleLocation() {
 		int i = 1;
-		for(Particle p : particlesystem){
+		for(int k = 0; k < size(); k++){
+			Particle p = particlesystem[k];
 			System.out.println("X_LOCATION: " + p.getLocation(0) + " Particle:"+ i);
 			System.out.println("Y_LOCATION: " + p.getLocation(1) + " Particle:"+ i);
 			System.out.println();
@@ -1,48 +1,75 @@
 package newOne;
 
-import java.util.Random;
-
+/**
+ * A Particle is a lightweight view on one index of a ParticleStore.
+ * All values are kept in the store, so existing callers can keep using a Particle
+ * while hot loops work on the arrays of the store directly.
+ */
 public class Particle {
 	public final int INNER_RAD = 5;
 	public final int OUTER_RAD = 20;
-	private double[] location = new double[2];
-	private double[] speed = {0, 0};
-	public int kind=0; //this makes sure that the eyes, etc. are added
-	Random rnd = new Random();
-	//randomly defines the texture a particle is renderd with
-	int choice = rnd.nextInt(5)+1;
-	private boolean locked = false; //Is set true when the particle is being used by an event and shouldn't be computed by the PE
+	private ParticleStore store;
+	private int index;
 
 
+	//creates a particle with its own store
 	Particle(double pos_x, double pos_y) {
-		this.location[0] = pos_x;
-		this.location[1] = pos_y;
+		this.store = new ParticleStore(1);
+		this.index = store.add(pos_x, pos_y);
+	}
+
+	Particle(ParticleStore store, int index) {
+		this.store = store;
+		this.index = index;
 	}
 
 	public void setLocation(double x_loc, double y_loc) {
-		this.location[0] = x_loc;
-		this.location[1] = y_loc;
+		store.x[index] = x_loc;
+		store.y[index] = y_loc;
+		store.moved();
 	}
 
 	public double getLocation(int direction) {
-		return location[direction];
+		return direction == 0 ? store.x[index] : store.y[index];
 	}
 
 	public double getSpeed(int direction) {
-		return speed[direction];
+		return direction == 0 ? store.vx[index] : store.vy[index];
 	}
 
 	public void setSpeed(double x_speed, double y_speed) {
-		this.speed[0] = x_speed;
-		this.speed[1] = y_speed;
+		store.vx[index] = x_speed;
+		store.vy[index] = y_speed;
 	}
 	
 	public void setLocked(boolean locked) {
-		this.locked = locked;
+		store.setLocked(index, locked);
 	}
 
 	public boolean isLocked() {
-		return locked;
+		return store.isLocked(index);
+	}
+
+	//this makes sure that the eyes, etc. are added
+	public int getKind() {
+		return store.kind[index];
+	}
+
+	public void setKind(int kind) {
+		store.kind[index] = kind;
+	}
+
+	//randomly defines the texture a particle is renderd with
+	public int getChoice() {
+		return store.choice[index];
+	}
+
+	public ParticleStore getStore() {
+		return store;
+	}
+
+	public int getIndex() {
+		return index;
 	}
 
 	
@@ -61,12 +88,10 @@ public class Particle {
 	}
 	
 	public double getDistance(double x, double y){
-		double[] result = new double[3];
-		result[0]=(this.getLocation(0)-x);
-		result[1]=(this.getLocation(1)-y);
-		result[2]=(double) Math.sqrt((result[0]*result[0])+(result[1]*result[1]));
-		return result[2];
+		double xx = store.x[index] - x;
+		double yy = store.y[index] - y;
+		return Math.sqrt(xx*xx + yy*yy);
 	}
 
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,188 @@
+package newOne;
+
+/**
+ * Spatial index over the particle locations for pointer hit tests and tools:
+ * nearest particle, all particles in a radius, bounding box and centroid.
+ * The particles are sorted into a SpatialGrid, so a query only looks at the cells around the point
+ * instead of every particle. Bounding box and centroid are computed while building.
+ *
+ * update() only rebuilds when the store changed (ParticleStore.getVersion()), so the index is built
+ * at most once per physics tick no matter how many queries are made.
+ * The index is not thread safe, use it on the thread that changes the store.
+ */
+public class ParticleIndex {
+
+	private final SpatialGrid grid = new SpatialGrid();
+	private final double cellSize;
+	private double[] x, y;
+	private int n = 0;
+	private double xmin, xmax, ymin, ymax, sumX, sumY;
+	private ParticleStore built;
+	private int version;
+	private int builds = 0;
+
+	/**
+	 * @param cellSize edge length of a grid cell, about the radius of typical queries
+	 */
+	public ParticleIndex(double cellSize) {
+		this.cellSize = cellSize;
+	}
+
+	/**
+	 * Rebuilds the index if the store was changed since the last build
+	 */
+	public void update(ParticleStore store) {
+		int v = store.getVersion();
+		if (store == built && v == version)
+			return;
+		build(store.x, store.y, store.size());
+		built = store;
+		version = v;
+	}
+
+	/**
+	 * Builds the index over n locations. The arrays are kept until the next build
+	 */
+	public void build(double[] x, double[] y, int n) {
+		this.x = x;
+		this.y = y;
+		this.n = n;
+		built = null;
+		builds++;
+		grid.build(x, y, n, cellSize);
+		xmin = ymin = Double.MAX_VALUE;
+		xmax = ymax = -Double.MAX_VALUE;
+		sumX = sumY = 0;
+		for (int i = 0; i < n; i++) {
+			if (x[i] < xmin) xmin = x[i];
+			if (x[i] > xmax) xmax = x[i];
+			if (y[i] < ymin) ymin = y[i];
+			if (y[i] > ymax) ymax = y[i];
+			sumX += x[i];
+			sumY += y[i];
+		}
+	}
+
+	/**
+	 * @return particle closest to (px, py) not farther away than maxDistance, -1 if there is none
+	 */
+	public int nearest(double px, double py, double maxDistance) {
+		if (n == 0)
+			return -1;
+		// no particle is farther away than the farthest corner of the bounding box
+		double dx = Math.max(Math.abs(px - xmin), Math.abs(px - xmax));
+		double dy = Math.max(Math.abs(py - ymin), Math.abs(py - ymax));
+		double limit = Math.min(maxDistance, Math.sqrt(dx * dx + dy * dy));
+		int cx = grid.cellOf(px);
+		int cy = grid.cellOf(py);
+		int best = -1;
+		double bestD2 = maxDistance * maxDistance;
+		for (int ring = 0; ; ring++) {
+			// every particle in this ring of cells is at least (ring - 1) cells away
+			double ringDistance = (ring - 1) * cellSize;
+			if (ringDistance > limit || (best != -1 && ringDistance * ringDistance >= bestD2))
+				break;
+			for (int gx = cx - ring; gx <= cx + ring; gx++) {
+				best = nearestInCell(gx, cy - ring, px, py, best, bestD2);
+				if (best != -1) bestD2 = distance2(best, px, py);
+				if (ring > 0) {
+					best = nearestInCell(gx, cy + ring, px, py, best, bestD2);
+					if (best != -1) bestD2 = distance2(best, px, py);
+				}
+			}
+			for (int gy = cy - ring + 1; gy <= cy + ring - 1; gy++) {
+				best = nearestInCell(cx - ring, gy, px, py, best, bestD2);
+				if (best != -1) bestD2 = distance2(best, px, py);
+				best = nearestInCell(cx + ring, gy, px, py, best, bestD2);
+				if (best != -1) bestD2 = distance2(best, px, py);
+			}
+		}
+		return best;
+	}
+
+	private int nearestInCell(int gx, int gy, double px, double py, int best, double bestD2) {
+		int b = grid.bucket(gx, gy);
+		for (int k = grid.cellStart[b]; k < grid.cellStart[b + 1]; k++) {
+			int i = grid.cellIndex[k];
+			if (grid.cellX[i] != gx || grid.cellY[i] != gy)
+				continue;
+			double d2 = distance2(i, px, py);
+			if (d2 < bestD2 || (d2 == bestD2 && best == -1)) {
+				best = i;
+				bestD2 = d2;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Finds all particles within radius r of (px, py)
+	 * @param result gets the indices, only as many as fit in
+	 * @return number of particles found, can be larger than result.length
+	 */
+	public int radius(double px, double py, double r, int[] result) {
+		if (n == 0)
+			return 0;
+		int x0 = grid.cellOf(Math.max(px - r, xmin));
+		int x1 = grid.cellOf(Math.min(px + r, xmax));
+		int y0 = grid.cellOf(Math.max(py - r, ymin));
+		int y1 = grid.cellOf(Math.min(py + r, ymax));
+		int found = 0;
+		double r2 = r * r;
+		for (int gy = y0; gy <= y1; gy++) {
+			for (int gx = x0; gx <= x1; gx++) {
+				int b = grid.bucket(gx, gy);
+				for (int k = grid.cellStart[b]; k < grid.cellStart[b + 1]; k++) {
+					int i = grid.cellIndex[k];
+					if (grid.cellX[i] == gx && grid.cellY[i] == gy && distance2(i, px, py) <= r2) {
+						if (found < result.length)
+							result[found] = i;
+						found++;
+					}
+				}
+			}
+		}
+		return found;
+	}
+
+	private double distance2(int i, double px, double py) {
+		double dx = x[i] - px;
+		double dy = y[i] - py;
+		return dx * dx + dy * dy;
+	}
+
+	public int size() {
+		return n;
+	}
+
+	public double getMinX() {
+		return xmin;
+	}
+
+	public double getMaxX() {
+		return xmax;
+	}
+
+	public double getMinY() {
+		return ymin;
+	}
+
+	public double getMaxY() {
+		return ymax;
+	}
+
+	public double getCentroidX() {
+		return n == 0 ? 0 : sumX / n;
+	}
+
+	public double getCentroidY() {
+		return n == 0 ? 0 : sumY / n;
+	}
+
+	/**
+	 * @return how often the index was built, e.g. to check that queries do not rebuild it
+	 */
+	public int getBuilds() {
+		return builds;
+	}
+}
@@ -0,0 +1,169 @@
+package newOne;
+
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Keeps all particles of a system as structure of arrays (x[], y[], vx[], vy[], ...).
+ * Hot loops like PhysicEngine.evaluate(), Events and TestParticleGUI.paint() walk these arrays
+ * sequentially instead of going through one Particle object per particle.
+ * A Particle is only a view on an index of this store.
+ *
+ * The arrays are replaced when the store grows, so always read them from the store and do not keep them.
+ * Only the first size() entries are valid.
+ */
+public class ParticleStore {
+
+	/**
+	 * Location of the particles
+	 */
+	public double[] x, y;
+	/**
+	 * Speed of the particles
+	 */
+	public double[] vx, vy;
+	/**
+	 * 0 = body, 1 = eyes, 2 = mouth
+	 */
+	public int[] kind;
+	/**
+	 * Texture a body particle is rendered with (1-5)
+	 */
+	public int[] choice;
+	/**
+	 * Is set when the particle is being used by an event and shouldn't be computed by the PE
+	 */
+	private BitSet locked = new BitSet();
+	private int size = 0;
+	private Random rnd = new Random();
+	/**
+	 * Counts interactions from outside the physics (Events), a sleeping blob wakes up when it changes
+	 */
+	private volatile int touches = 0;
+	/**
+	 * Changes whenever particles are moved, added or removed, so a ParticleIndex knows when it is stale
+	 */
+	private volatile int version = 0;
+
+	public ParticleStore(int capacity) {
+		allocate(Math.max(capacity, 1));
+	}
+
+	/**
+	 * Adds a particle at the given location and returns its index
+	 */
+	public int add(double pos_x, double pos_y) {
+		if (size == x.length) {
+			allocate(2 * size);
+		}
+		int i = size++;
+		version++;
+		x[i] = pos_x;
+		y[i] = pos_y;
+		vx[i] = 0;
+		vy[i] = 0;
+		kind[i] = 0;
+		choice[i] = rnd.nextInt(5) + 1;
+		locked.clear(i);
+		return i;
+	}
+
+	/**
+	 * Removes particle i in O(1) by moving the last particle into its place
+	 * @return old index of the particle that now is at i (i itself if it was the last one)
+	 */
+	public int remove(int i) {
+		int last = --size;
+		version++;
+		if (i != last) {
+			x[i] = x[last];
+			y[i] = y[last];
+			vx[i] = vx[last];
+			vy[i] = vy[last];
+			kind[i] = kind[last];
+			choice[i] = choice[last];
+			locked.set(i, locked.get(last));
+		}
+		locked.clear(last);
+		return last;
+	}
+
+	/**
+	 * Removes all particles, the arrays are kept
+	 */
+	public void clear() {
+		size = 0;
+		version++;
+		locked.clear();
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Seeds the random texture choice, so a seeded PMgnt creates the same blob every time
+	 */
+	public void setSeed(long seed) {
+		rnd.setSeed(seed);
+	}
+
+	/**
+	 * Tells the physics that the particles were changed from outside and have to be simulated again
+	 */
+	public void touch() {
+		touches++;
+		version++;
+	}
+
+	public int getTouches() {
+		return touches;
+	}
+
+	/**
+	 * Tells indices over this store that locations changed, e.g. after a physics step
+	 */
+	public void moved() {
+		version++;
+	}
+
+	public int getVersion() {
+		return version;
+	}
+
+	public boolean isLocked(int i) {
+		return locked.get(i);
+	}
+
+	public void setLocked(int i, boolean lock) {
+		locked.set(i, lock);
+	}
+
+	/**
+	 * Grows all arrays to the new capacity and copies the used part
+	 */
+	private void allocate(int capacity) {
+		x = grow(x, capacity);
+		y = grow(y, capacity);
+		vx = grow(vx, capacity);
+		vy = grow(vy, capacity);
+		kind = grow(kind, capacity);
+		choice = grow(choice, capacity);
+	}
+
+	private double[] grow(double[] old, int capacity) {
+		double[] result = new double[capacity];
+		if (old != null) {
+			System.arraycopy(old, 0, result, 0, size);
+		}
+		return result;
+	}
+
+	private int[] grow(int[] old, int capacity) {
+		int[] result = new int[capacity];
+		if (old != null) {
+			System.arraycopy(old, 0, result, 0, size);
+		}
+		return result;
+	}
+}
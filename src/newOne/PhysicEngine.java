@@ -11,6 +11,10 @@ public class PhysicEngine {
 	 * The Particle System to be worked with
 	 */
 	private Particle[] pm;
+	/**
+	 * The store the particles of pm are views on
+	 */
+	private ParticleStore store;
 	/**
 	 * Helper Particle Management used for creation of Helper Particle System
 	 */
@@ -20,6 +24,65 @@ public class PhysicEngine {
 	 */
 	private Particle[] tmp_pm;
 	
+	/**
+	 * Flat buffers used by the buffered step, laid out like vars in PhysicEngine_alt
+	 * 0	1	2	3		4	...
+	 * Ux	Uy	Vx	Vy		U1x	...
+	 * They are allocated once and only grow when the amount of particles changes
+	 */
+	private double[] vars, next;
+	/**
+	 * Integration scheme of the buffered step
+	 */
+	private Integrator integrator = new RungeKuttaIntegrator();
+	/**
+	 * Number of force evaluations since the engine was created
+	 */
+	private long evaluations = 0;
+	/**
+	 * true when next holds a result that modifyObjects() can apply
+	 */
+	private boolean stepped = false;
+	/**
+	 * Amount of particles of the last step, particles added after it are not touched by modifyObjects()
+	 */
+	private int steppedN = 0;
+	/**
+	 * Uses the allocation free step on the flat buffers, false falls back to the old Particle based step
+	 */
+	private boolean bufferedStep = true;
+	/**
+	 * Cell list used for the cutoff force model, rebuilt once per evaluation
+	 */
+	private SpatialGrid grid = new SpatialGrid();
+	/**
+	 * Quadtree used by the Barnes-Hut model, rebuilt once per evaluation
+	 */
+	private QuadTree tree = new QuadTree();
+	/**
+	 * Number of threads evaluating the forces and the amount of particles from which on they are used
+	 */
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int parallelThreshold = 500;
+	private ForceWorkers workers;
+	/**
+	 * Quadtree traversal stack of every thread
+	 */
+	private int[][] stacks = new int[][] {new int[QuadTree.STACK_SIZE]};
+	/**
+	 * The all pairs model visits every pair only once and adds +f to one particle and -f to the other
+	 */
+	private boolean symmetric = true;
+	/**
+	 * The pairs are split into a fixed number of blocks, each with its own accumulation buffer.
+	 * The buffers are always summed in the same order, so the result does not depend on the number of threads
+	 */
+	private static final int PAIR_BLOCKS = 16;
+	private double[][] pairAcc = new double[PAIR_BLOCKS][];
+	private int[] pairRows = new int[PAIR_BLOCKS + 1];
+	private int pairRowsN = -1;
+	private boolean pairBlocks = false;
+	
 	
 	/*
 	 * Physical Constants can be changed via getter/setter methods
@@ -30,27 +93,84 @@ public class PhysicEngine {
 	private double LEN = 100;
 	private double GRAVITY = 0;
 	private double DAMPING = 0.1;
+	/**
+	 * Particles farther apart than CUTOFF don't pull at each other. 0 connects every particle with every other one
+	 */
+	private double CUTOFF = 0;
+	/**
+	 * Opening angle of the Barnes-Hut model. Clusters seen under a smaller angle (size / distance)
+	 * are used as one pseudo particle. 0 computes all pairs exactly
+	 */
+	private double THETA = 0;
 	/*
 	 * End Physical Constants
 	 */
 	
 	/**
 	 * Applies forces to particles and step() computates the next step in the simulation
-	 * The method modifyObjects() applies the computed locations and speeds to the pm
+	 * The method modifyObjects() applies the computed locations and speeds to the pm.
+	 * An empty pm gets an empty store of its own, so the engine simply has nothing to move
 	 */
 	public PhysicEngine(Particle[] pm) {
 		this.pm = pm;
+		this.store = pm.length > 0 ? pm[0].getStore() : new ParticleStore(0);
+	}
+	
+	/**
+	 * Works directly on all particles of the store
+	 */
+	public PhysicEngine(ParticleStore store) {
+		this.store = store;
+		this.pm = new Particle[store.size()];
+		for (int i = 0; i < pm.length; i++) {
+			pm[i] = new Particle(store, i);
+		}
 	}
 	
 	/**
-	 * Runge Kutta Algorithm, computes the most accurate forecast of position and speed for 4 iterations
+	 * Computes the next step of the simulation with the current Integrator (Runge Kutta by default)
 	 */
 	public void step(double stepSize) {
+		if (!bufferedStep) {
+			stepParticles(stepSize);
+			return;
+		}
+		int i;
+		int N = store.size();
+		ensureBuffers(N);
+		double[] x = store.x, y = store.y, vx = store.vx, vy = store.vy;
+		for (i = 0; i < N; i++) {
+			vars[4*i] = x[i];
+			vars[4*i + 1] = y[i];
+			vars[4*i + 2] = vx[i];
+			vars[4*i + 3] = vy[i];
+		}
+		integrator.step(this, store, vars, next, N, stepSize);
+		stepped = true;
+		steppedN = N;
+	}
+	
+	/**
+	 * Makes sure the flat buffers can hold N particles. They only grow, so a steady state step does not allocate.
+	 * The amount of particles is read from the store every step, so particles can be added or removed between steps
+	 * @param N amount of particles
+	 */
+	private void ensureBuffers(int N) {
+		if (vars != null && vars.length >= 4 * N)
+			return;
+		vars = new double[4 * N];
+		next = new double[4 * N];
+	}
+	
+	/**
+	 * Old Runge Kutta step working on Particle objects. Builds six helper particle systems per call
+	 * and is only kept for comparison with the buffered step
+	 */
+	private void stepParticles(double stepSize) {
 		/*
 		 * Reset the Helper pm
 		 */
-		// VERY IMPORTANT -> change first parameter if you change the amount of particles
-		tmp_pmgnt = new PMgnt(20,600,600,10);
+		tmp_pmgnt = new PMgnt(pm.length,600,600,10);
 		tmp_pmgnt.createParticle();
 		tmp_pm = tmp_pmgnt.particlesystem;
 		int i;
@@ -155,16 +275,464 @@ public class PhysicEngine {
 				change[i].setSpeed(x,y);
 			}
 		}
+	/**
+	 * Same as evaluate(Particle[], Particle[]) but on the flat vars layout, does not allocate
+	 * @param x input in the vars layout
+	 * @param change derivatives in the vars layout
+	 * @param N amount of particles in x
+	 */
+	public void evaluate(double[] x, double[] change, int N) {
+		evaluations++;
+		// grid and tree are built once, the particles can then be evaluated in any order
+		if (CUTOFF > 0)
+			grid.build(x, 4, N, CUTOFF);
+		else if (THETA > 0)
+			tree.build(x, 4, N);
+		pairBlocks = symmetric && CUTOFF <= 0 && THETA <= 0;
+		if (pairBlocks)
+			preparePairBlocks(N);
+		if (threads > 1 && N >= parallelThreshold) {
+			if (workers == null || workers.getThreads() != threads)
+				startWorkers();
+			workers.evaluate(x, change, N);
+		}
+		else
+			work(x, change, N, 0, 1);
+		if (pairBlocks)
+			reducePairBlocks(x, change, N);
+	}
+	
+	/**
+	 * Part of one evaluation done by one thread. The split only depends on N and the number of threads
+	 * @param worker number of the thread, 0 is the calling thread
+	 * @param threads number of threads working on this evaluation
+	 */
+	void work(double[] x, double[] change, int N, int worker, int threads) {
+		if (pairBlocks) {
+			for (int b = worker; b < PAIR_BLOCKS; b += threads)
+				evaluatePairBlock(x, N, b);
+		}
+		else
+			evaluateRange(x, change, N, (int) ((long) N * worker / threads), (int) ((long) N * (worker + 1) / threads), worker);
+	}
+	
+	/**
+	 * Splits the rows of the pair triangle into PAIR_BLOCKS blocks with about the same amount of pairs
+	 */
+	private void preparePairBlocks(int N) {
+		if (pairAcc[0] == null || pairAcc[0].length < 2 * N) {
+			for (int b = 0; b < PAIR_BLOCKS; b++)
+				pairAcc[b] = new double[2 * N];
+		}
+		if (pairRowsN == N)
+			return;
+		double pairs = (double) N * (N - 1) / 2;
+		int row = 0;
+		double done = 0;
+		pairRows[0] = 0;
+		for (int b = 1; b < PAIR_BLOCKS; b++) {
+			while (row < N && done < pairs * b / PAIR_BLOCKS) {
+				done += N - 1 - row;
+				row++;
+			}
+			pairRows[b] = row;
+		}
+		pairRows[PAIR_BLOCKS] = N;
+		pairRowsN = N;
+	}
+	
+	/**
+	 * Visits every pair (i, t > i) of the rows of block b once and adds the spring force
+	 * to i and the opposite force to t in the accumulation buffer of the block
+	 */
+	private void evaluatePairBlock(double[] x, int N, int b) {
+		double[] acc = pairAcc[b];
+		int from = pairRows[b];
+		int to = pairRows[b + 1];
+		// the block only touches rows from from on
+		for (int k = 2 * from; k < 2 * N; k++)
+			acc[k] = 0;
+		double c = SPRINGCONSTANT / MASS;
+		for (int i = from; i < to; i++) {
+			double ux = x[4*i];
+			double uy = x[4*i + 1];
+			double fx = 0;
+			double fy = 0;
+			for (int t = i + 1; t < N; t++) {
+				double xx = x[4*t] - ux;  // x distance between objects
+				double yy = x[4*t + 1] - uy;  // y distance betw objects
+				double len = Math.sqrt(xx*xx + yy*yy);  // total distance between objects
+				double f = c * (len - LEN) / len;// Springforce
+				fx += f * xx;
+				fy += f * yy;
+				acc[2*t] -= f * xx;
+				acc[2*t + 1] -= f * yy;
+			}
+			acc[2*i] += fx;
+			acc[2*i + 1] += fy;
+		}
+	}
+	
+	/**
+	 * Sums the accumulation buffers of all blocks in a fixed order and adds gravity and damping
+	 */
+	private void reducePairBlocks(double[] x, double[] change, int N) {
+		for (int i = 0; i < N; i++) {
+			change[4*i] = x[4*i + 2];// derivative of position U is velocity V
+			change[4*i + 1] = x[4*i + 3];
+			double fx = 0;
+			double fy = 0;
+			for (int b = 0; b < PAIR_BLOCKS; b++) {
+				// rows before the block are not written by it
+				if (i < pairRows[b])
+					break;
+				fx += pairAcc[b][2*i];
+				fy += pairAcc[b][2*i + 1];
+			}
+			fy -= GRAVITY * (N - 1);
+			if (DAMPING != 0){
+				fx -= (DAMPING/MASS)*x[4*i + 2];
+				fy -= (DAMPING/MASS)*x[4*i + 3];
+			}
+			change[4*i + 2] = fx;
+			change[4*i + 3] = fy;
+		}
+	}
+	
+	/**
+	 * Evaluates the particles from (inclusive) to to (exclusive) with the current force model.
+	 * Each particle is always computed the same way, so splitting the range does not change the result
+	 * @param worker number of the calling thread, selects the traversal stack of the Barnes-Hut model
+	 */
+	void evaluateRange(double[] x, double[] change, int N, int from, int to, int worker) {
+		if (CUTOFF > 0)
+			evaluateGrid(x, change, N, from, to);
+		else if (THETA > 0)
+			evaluateBarnesHut(x, change, N, from, to, worker);
+		else
+			evaluateAllPairs(x, change, N, from, to);
+	}
+	
+	/**
+	 * Every particle is connected with every other one by a spring of length LEN
+	 */
+	private void evaluateAllPairs(double[] x, double[] change, int N, int from, int to) {
+		for (int i = from; i < to; i++) {
+				change[4*i] = x[4*i + 2];// derivative of position U is velocity V
+				change[4*i + 1] = x[4*i + 3];
+				double ux = x[4*i];
+				double uy = x[4*i + 1];
+				double fx=0;
+				double fy=0;
+					for (int t = 0; t < N; t++) {
+						if ((i != t)) {
+							double xx = x[4*t] - ux;  // x distance between objects
+				            double yy = x[4*t + 1] - uy;  // y distance betw objects
+				            double len = Math.sqrt(xx*xx + yy*yy);  // total distance between objects
+							double f = (SPRINGCONSTANT / MASS) * (len - LEN) / len;// Springforce
+							fx += f * xx;
+							fy += -GRAVITY + f * yy;
+						}	
+				}
+					if (DAMPING != 0){
+						fx -= (DAMPING/MASS)*x[4*i + 2];
+						fy -= (DAMPING/MASS)*x[4*i + 3];
+					}
+				change[4*i + 2] = fx;
+				change[4*i + 3] = fy;
+			}
+		}
+	/**
+	 * Cutoff force model: the particles are sorted into a grid with cells of size CUTOFF,
+	 * so every particle only has to look at the particles in its own and the 8 adjacent cells
+	 */
+	private void evaluateGrid(double[] x, double[] change, int N, int from, int to) {
+		int[] cellX = grid.cellX;
+		int[] cellY = grid.cellY;
+		int[] cellStart = grid.cellStart;
+		int[] cellIndex = grid.cellIndex;
+		double cutoff2 = CUTOFF * CUTOFF;
+		for (int i = from; i < to; i++) {
+			change[4*i] = x[4*i + 2];// derivative of position U is velocity V
+			change[4*i + 1] = x[4*i + 3];
+			double ux = x[4*i];
+			double uy = x[4*i + 1];
+			double fx = 0;
+			double fy = 0;
+			for (int cy = cellY[i] - 1; cy <= cellY[i] + 1; cy++) {
+				for (int cx = cellX[i] - 1; cx <= cellX[i] + 1; cx++) {
+					int b = grid.bucket(cx, cy);
+					for (int k = cellStart[b]; k < cellStart[b + 1]; k++) {
+						int t = cellIndex[k];
+						// skip itself and particles of other cells sharing the bucket
+						if (t == i || cellX[t] != cx || cellY[t] != cy)
+							continue;
+						double xx = x[4*t] - ux;
+						double yy = x[4*t + 1] - uy;
+						double len2 = xx*xx + yy*yy;
+						if (len2 >= cutoff2)
+							continue;
+						double len = Math.sqrt(len2);
+						double f = (SPRINGCONSTANT / MASS) * (len - LEN) / len;// Springforce
+						fx += f * xx;
+						fy += -GRAVITY + f * yy;
+					}
+				}
+			}
+			if (DAMPING != 0){
+				fx -= (DAMPING/MASS)*x[4*i + 2];
+				fy -= (DAMPING/MASS)*x[4*i + 3];
+			}
+			change[4*i + 2] = fx;
+			change[4*i + 3] = fy;
+		}
+	}
+	
+	/**
+	 * Barnes-Hut model: the particles are sorted into a quadtree and a node that is seen under an angle
+	 * smaller than THETA pulls like one particle with the mass of all its particles sitting in their centre of mass
+	 */
+	private void evaluateBarnesHut(double[] x, double[] change, int N, int from, int to, int worker) {
+		int[] count = tree.count;
+		int[] leaf = tree.leaf;
+		int[] next = tree.next;
+		int[] child = tree.child;
+		int[] stack = stacks[worker];
+		double[] sumX = tree.sumX, sumY = tree.sumY, nodeSize = tree.nodeSize;
+		for (int i = from; i < to; i++) {
+			change[4*i] = x[4*i + 2];// derivative of position U is velocity V
+			change[4*i + 1] = x[4*i + 3];
+			double ux = x[4*i];
+			double uy = x[4*i + 1];
+			double fx = 0;
+			double fy = 0;
+			int top = 0;
+			stack[top++] = 0;
+			while (top > 0) {
+				int n = stack[--top];
+				if (leaf[n] != -2) {
+					// leaf: exact springs to all its particles
+					for (int t = leaf[n]; t != -1; t = next[t]) {
+						if (t == i)
+							continue;
+						double xx = x[4*t] - ux;
+						double yy = x[4*t + 1] - uy;
+						double len = Math.sqrt(xx*xx + yy*yy);
+						double f = (SPRINGCONSTANT / MASS) * (len - LEN) / len;// Springforce
+						fx += f * xx;
+						fy += -GRAVITY + f * yy;
+					}
+					continue;
+				}
+				double xx = sumX[n] / count[n] - ux;
+				double yy = sumY[n] / count[n] - uy;
+				double len = Math.sqrt(xx*xx + yy*yy);
+				if (nodeSize[n] < THETA * len && !tree.contains(n, ux, uy)) {
+					// far away cluster as one pseudo particle
+					double f = count[n] * (SPRINGCONSTANT / MASS) * (len - LEN) / len;
+					fx += f * xx;
+					fy += count[n] * -GRAVITY + f * yy;
+					continue;
+				}
+				for (int q = 0; q < 4; q++) {
+					int c = child[4*n + q];
+					if (c != -1)
+						stack[top++] = c;
+				}
+			}
+			if (DAMPING != 0){
+				fx -= (DAMPING/MASS)*x[4*i + 2];
+				fy -= (DAMPING/MASS)*x[4*i + 3];
+			}
+			change[4*i + 2] = fx;
+			change[4*i + 3] = fy;
+		}
+	}
+	
+	/**
+	 * Compares the forces of the current force model (CUTOFF or THETA) with the exact all pairs forces
+	 * for the current state of the particles. Meant for picking THETA, it allocates its own buffers.
+	 * @return {relative rms error, largest relative error of a single particle}
+	 */
+	public double[] getForceError() {
+		int N = store.size();
+		double[] state = new double[4 * N];
+		double[] exact = new double[4 * N];
+		double[] approx = new double[4 * N];
+		for (int i = 0; i < N; i++) {
+			state[4*i] = store.x[i];
+			state[4*i + 1] = store.y[i];
+			state[4*i + 2] = store.vx[i];
+			state[4*i + 3] = store.vy[i];
+		}
+		evaluateAllPairs(state, exact, N, 0, N);
+		evaluate(state, approx, N);
+		double diff = 0;
+		double norm = 0;
+		double max = 0;
+		for (int i = 0; i < N; i++) {
+			double dx = approx[4*i + 2] - exact[4*i + 2];
+			double dy = approx[4*i + 3] - exact[4*i + 3];
+			double e = dx*dx + dy*dy;
+			double f = exact[4*i + 2]*exact[4*i + 2] + exact[4*i + 3]*exact[4*i + 3];
+			diff += e;
+			norm += f;
+			if (f > 0)
+				max = Math.max(max, Math.sqrt(e / f));
+		}
+		return new double[] {norm > 0 ? Math.sqrt(diff / norm) : 0, max};
+	}
+	
 	/**
 	 * Applies the computed new positions and speeds to the actual pm
 	 */
 	public void modifyObjects() {
+		if (bufferedStep) {
+			if (!stepped)
+				return;
+			double[] x = store.x, y = store.y, vx = store.vx, vy = store.vy;
+			int N = Math.min(steppedN, store.size());
+			for (int i = 0; i < N; i++) {
+				if (!store.isLocked(i)) {
+					x[i] = next[4*i];
+					y[i] = next[4*i + 1];
+					vx[i] = next[4*i + 2];
+					vy[i] = next[4*i + 3];
+				}
+			}
+			store.moved();
+			return;
+		}
 		for (int i = 0; i < pm.length; i++) {
 			pm[i].setLocation((tmp_pm[i].getLocation(0)), (tmp_pm[i].getLocation(1) ));
 			pm[i].setSpeed((tmp_pm[i].getSpeed(0)), (tmp_pm[i].getSpeed(1)));
 		}
 	}
 
+	public double getCUTOFF() {
+		return CUTOFF;
+	}
+	/**
+	 * @param cUTOFF interaction radius of the cutoff force model, 0 switches back to all pairs
+	 */
+	public void setCUTOFF(double cUTOFF) {
+		CUTOFF = cUTOFF;
+	}
+	public double getTHETA() {
+		return THETA;
+	}
+	/**
+	 * @param tHETA opening angle of the Barnes-Hut model (about 0.3 - 1), 0 switches back to all pairs.
+	 * A CUTOFF > 0 takes precedence
+	 */
+	public void setTHETA(double tHETA) {
+		THETA = tHETA;
+	}
+	public int getThreads() {
+		return threads;
+	}
+	/**
+	 * @param threads number of threads used for evaluate(), 1 always evaluates on the calling thread
+	 */
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+	public int getParallelThreshold() {
+		return parallelThreshold;
+	}
+	/**
+	 * @param parallelThreshold amount of particles from which on the forces are evaluated in parallel
+	 */
+	public void setParallelThreshold(int parallelThreshold) {
+		this.parallelThreshold = parallelThreshold;
+	}
+	
+	/**
+	 * Stops the worker threads, they are started again by the next parallel evaluation
+	 */
+	public void stopWorkers() {
+		if (workers != null) {
+			workers.shutdown();
+			workers = null;
+		}
+	}
+	
+	private void startWorkers() {
+		stopWorkers();
+		stacks = new int[threads][QuadTree.STACK_SIZE];
+		workers = new ForceWorkers(this, threads);
+	}
+	public boolean isSymmetric() {
+		return symmetric;
+	}
+	/**
+	 * @param symmetric true visits every pair of the all pairs model once, false computes every pair from both sides
+	 */
+	public void setSymmetric(boolean symmetric) {
+		this.symmetric = symmetric;
+	}
+	public Integrator getIntegrator() {
+		return integrator;
+	}
+	/**
+	 * @param integrator scheme used by step(), e.g. VerletIntegrator for one force evaluation per step
+	 */
+	public void setIntegrator(Integrator integrator) {
+		this.integrator = integrator;
+	}
+	
+	/**
+	 * @return number of force evaluations (evaluate() calls) since the engine was created
+	 */
+	public long getEvaluations() {
+		return evaluations;
+	}
+	
+	/**
+	 * @return kinetic energy of all particles
+	 */
+	public double getKineticEnergy() {
+		double e = 0;
+		for (int i = 0; i < store.size(); i++) {
+			e += store.vx[i]*store.vx[i] + store.vy[i]*store.vy[i];
+		}
+		return MASS * e / 2;
+	}
+	
+	/**
+	 * @return speed of the fastest particle
+	 */
+	public double getMaxSpeed() {
+		double max = 0;
+		for (int i = 0; i < store.size(); i++) {
+			max = Math.max(max, store.vx[i]*store.vx[i] + store.vy[i]*store.vy[i]);
+		}
+		return Math.sqrt(max);
+	}
+	
+	/**
+	 * Kinetic energy plus the energy of the springs of the all pairs model, without gravity.
+	 * Without damping it should stay constant, so its drift tells how good an integrator is
+	 */
+	public double getEnergy() {
+		double e = 0;
+		int N = store.size();
+		for (int i = 0; i < N; i++) {
+			for (int t = i + 1; t < N; t++) {
+				double xx = store.x[t] - store.x[i];
+				double yy = store.y[t] - store.y[i];
+				double len = Math.sqrt(xx*xx + yy*yy);
+				e += SPRINGCONSTANT * (len - LEN) * (len - LEN) / 2;
+			}
+		}
+		return getKineticEnergy() + e;
+	}
+	public boolean isBufferedStep() {
+		return bufferedStep;
+	}
+	public void setBufferedStep(boolean bufferedStep) {
+		this.bufferedStep = bufferedStep;
+	}
 	public double getSPRINGCONSTANT() {
 		return SPRINGCONSTANT;
 	}
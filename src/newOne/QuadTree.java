@@ -0,0 +1,181 @@
+package newOne;
+
+/**
+ * Barnes-Hut quadtree over the particle positions.
+ * Every node knows how many particles it holds and their centre of mass, so a cluster
+ * that is far away can be used as one pseudo particle instead of all its particles.
+ *
+ * The nodes are kept in arrays which are reused by every build() and only grow,
+ * so building the tree each evaluation does not allocate.
+ */
+public class QuadTree {
+
+	/**
+	 * Nodes deeper than this keep all their particles in one leaf (e.g. particles on the same spot)
+	 */
+	private static final int MAX_DEPTH = 24;
+	/**
+	 * A depth first traversal never holds more than 3 siblings per level plus the current node
+	 */
+	static final int STACK_SIZE = 4 * (MAX_DEPTH + 2);
+
+	private int nodes = 0;
+	/**
+	 * Lower left corner and edge length of the square of every node
+	 */
+	double[] nodeX = new double[0], nodeY = new double[0], nodeSize = new double[0];
+	/**
+	 * Number of particles and sum of their locations (centre of mass = sum / count)
+	 */
+	int[] count = new int[0];
+	double[] sumX = new double[0], sumY = new double[0];
+	/**
+	 * child[4*n + q] is the child of node n in quadrant q or -1
+	 */
+	int[] child = new int[0];
+	/**
+	 * First particle of a leaf or -1, inner nodes have leaf[n] = -2
+	 */
+	int[] leaf = new int[0];
+	private int[] depth = new int[0];
+	/**
+	 * Next particle in the same leaf or -1
+	 */
+	int[] next = new int[0];
+
+	private double[] pos;
+	private int stride;
+
+	/**
+	 * Builds the tree over N particles located at pos[stride*i], pos[stride*i + 1]
+	 */
+	public void build(double[] pos, int stride, int N) {
+		this.pos = pos;
+		this.stride = stride;
+		if (next.length < N) {
+			next = new int[N];
+		}
+		double xmin = Double.MAX_VALUE, ymin = Double.MAX_VALUE;
+		double xmax = -Double.MAX_VALUE, ymax = -Double.MAX_VALUE;
+		for (int i = 0; i < N; i++) {
+			double x = pos[stride * i];
+			double y = pos[stride * i + 1];
+			if (x < xmin) xmin = x;
+			if (x > xmax) xmax = x;
+			if (y < ymin) ymin = y;
+			if (y > ymax) ymax = y;
+		}
+		nodes = 0;
+		double size = Math.max(xmax - xmin, ymax - ymin) * 1.0001 + 1e-9;
+		newNode(xmin, ymin, size, 0);
+		for (int i = 0; i < N; i++) {
+			insert(0, i);
+		}
+	}
+
+	public int getNodeCount() {
+		return nodes;
+	}
+
+	/**
+	 * Inserts particle p below node n
+	 */
+	private void insert(int n, int p) {
+		double x = pos[stride * p];
+		double y = pos[stride * p + 1];
+		while (true) {
+			count[n]++;
+			sumX[n] += x;
+			sumY[n] += y;
+			if (leaf[n] != -2) {
+				if (leaf[n] == -1 || depth[n] >= MAX_DEPTH) {
+					next[p] = leaf[n];
+					leaf[n] = p;
+					return;
+				}
+				// split the leaf and move its particles one level down
+				int q = leaf[n];
+				leaf[n] = -2;
+				while (q != -1) {
+					int following = next[q];
+					insert(childFor(n, pos[stride * q], pos[stride * q + 1]), q);
+					q = following;
+				}
+			}
+			n = childFor(n, x, y);
+		}
+	}
+
+	/**
+	 * @return child of node n containing (x, y), created if necessary
+	 */
+	private int childFor(int n, double x, double y) {
+		double half = nodeSize[n] / 2;
+		int q = 0;
+		double cx = nodeX[n];
+		double cy = nodeY[n];
+		if (x >= cx + half) {
+			q += 1;
+			cx += half;
+		}
+		if (y >= cy + half) {
+			q += 2;
+			cy += half;
+		}
+		int c = child[4 * n + q];
+		if (c == -1) {
+			c = newNode(cx, cy, half, depth[n] + 1);
+			child[4 * n + q] = c;
+		}
+		return c;
+	}
+
+	private int newNode(double x, double y, double size, int d) {
+		if (nodes == count.length) {
+			grow(Math.max(64, 2 * nodes));
+		}
+		int n = nodes++;
+		nodeX[n] = x;
+		nodeY[n] = y;
+		nodeSize[n] = size;
+		depth[n] = d;
+		count[n] = 0;
+		sumX[n] = 0;
+		sumY[n] = 0;
+		leaf[n] = -1;
+		child[4 * n] = child[4 * n + 1] = child[4 * n + 2] = child[4 * n + 3] = -1;
+		return n;
+	}
+
+	/**
+	 * @return true if (x, y) lies inside the square of node n
+	 */
+	boolean contains(int n, double x, double y) {
+		return x >= nodeX[n] && x < nodeX[n] + nodeSize[n]
+				&& y >= nodeY[n] && y < nodeY[n] + nodeSize[n];
+	}
+
+	private void grow(int capacity) {
+		nodeX = copy(nodeX, capacity);
+		nodeY = copy(nodeY, capacity);
+		nodeSize = copy(nodeSize, capacity);
+		sumX = copy(sumX, capacity);
+		sumY = copy(sumY, capacity);
+		count = copy(count, capacity);
+		leaf = copy(leaf, capacity);
+		depth = copy(depth, capacity);
+		child = copy(child, 4 * capacity);
+	}
+
+	private double[] copy(double[] old, int capacity) {
+		double[] result = new double[capacity];
+		System.arraycopy(old, 0, result, 0, old.length);
+		return result;
+	}
+
+	private int[] copy(int[] old, int capacity) {
+		int[] result = new int[capacity];
+		System.arraycopy(old, 0, result, 0, old.length);
+		return result;
+	}
+}
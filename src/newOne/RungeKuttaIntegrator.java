@@ -0,0 +1,40 @@
+package newOne;
+
+/**
+ * Classical Runge Kutta, four force evaluations per step
+ */
+public class RungeKuttaIntegrator implements Integrator {
+
+	private double[] inp, k1, k2, k3, k4;
+
+	public void step(PhysicEngine engine, ParticleStore store, double[] vars, double[] next, int N, double stepSize) {
+		int i;
+		int n = 4 * N;
+		if (inp == null || inp.length < n) {
+			inp = new double[n];
+			k1 = new double[n];
+			k2 = new double[n];
+			k3 = new double[n];
+			k4 = new double[n];
+		}
+		engine.evaluate(vars, k1, N); // evaluate at time t
+		for (i = 0; i < n; i++)
+			inp[i] = vars[i] + k1[i] * stepSize / 2;
+		engine.evaluate(inp, k2, N); // evaluate at time t+stepSize/2
+		for (i = 0; i < n; i++)
+			inp[i] = vars[i] + k2[i] * stepSize / 2;
+		engine.evaluate(inp, k3, N); // evaluate at time t+stepSize/2
+		for (i = 0; i < n; i++)
+			inp[i] = vars[i] + k3[i] * stepSize;
+		engine.evaluate(inp, k4, N); // evaluate at time t+stepSize
+		/*
+		 * (new) = (old) + (k1 + 2* k2 + 2*k3 + k4)*stepSize / 6, locked particles keep their values
+		 */
+		for (i = 0; i < n; i++) {
+			if (store.isLocked(i/4))
+				next[i] = vars[i];
+			else
+				next[i] = vars[i] + (k1[i] + 2 * k2[i] + 2 * k3[i] + k4[i]) * stepSize / 6;
+		}
+	}
+}
@@ -0,0 +1,303 @@
+package newOne;
+
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Physics loop of the blob, running on its own thread. The physics runs in fixed ticks of TICK_TIME,
+ * driven by System.nanoTime() and an accumulator, independent of how often the blob is drawn.
+ * After every tick the state is published through a SnapshotExchange, the GUI draws it on the EDT
+ * interpolated between the last two ticks. In between the thread is parked instead of spinning.
+ */
+public class SimulationLoop implements Runnable {
+
+	/**
+	 * If the loop falls behind it does not try to catch up more than this many ticks at once
+	 */
+	private static final int MAX_TICKS_PER_FRAME = 5;
+
+	private final PhysicEngine pe;
+	private final ParticleStore store;
+	/**
+	 * Particle management whose inserts and removes are applied between two ticks, may be null
+	 */
+	private final PMgnt pm;
+	/**
+	 * Events whose queued input is applied at the start of every tick, may be null
+	 */
+	private Events input;
+	/**
+	 * Gets the particles after every tick, may be null
+	 */
+	private TrajectoryRecorder recorder;
+	private final SnapshotExchange exchange;
+	private final long tickNanos;
+	private final double stepSize;
+	private final BlobSnapshot state = new BlobSnapshot();
+	private volatile boolean running = false;
+	private Thread thread;
+
+	/*
+	 * Statistics
+	 */
+	private volatile long ticks = 0;
+	private volatile long droppedTicks = 0;
+	private volatile long tickTime = 0;
+	private volatile long maxTickTime = 0;
+
+	/*
+	 * Sleep mode: when no particle is faster than sleepSpeed for sleepNanos the blob stops being simulated
+	 * and published (so the GUI stops repainting) until the store is touched by an event
+	 */
+	private double sleepSpeed = 1;
+	private long sleepNanos = 2000 * 1000000L;
+	private volatile boolean sleeping = false;
+	private long calm = 0;
+	private int touches;
+	private volatile long sleptTicks = 0;
+
+	/**
+	 * @param pe engine to step
+	 * @param store particles of the engine
+	 * @param exchange gets the state after every tick, may be null
+	 * @param tickTime real time of one physics tick in ms
+	 * @param stepSize simulated time of one physics tick
+	 */
+	public SimulationLoop(PhysicEngine pe, ParticleStore store, SnapshotExchange exchange, int tickTime, double stepSize) {
+		this(pe, store, null, exchange, tickTime, stepSize);
+	}
+
+	/**
+	 * Same as above, but also applies PMgnt.insertparticle() and removeparticle() at the start of every tick
+	 */
+	public SimulationLoop(PhysicEngine pe, PMgnt pm, SnapshotExchange exchange, int tickTime, double stepSize) {
+		this(pe, pm.store, pm, exchange, tickTime, stepSize);
+	}
+
+	private SimulationLoop(PhysicEngine pe, ParticleStore store, PMgnt pm, SnapshotExchange exchange, int tickTime, double stepSize) {
+		this.pe = pe;
+		this.store = store;
+		this.pm = pm;
+		this.exchange = exchange;
+		this.tickNanos = tickTime * 1000000L;
+		this.stepSize = stepSize;
+		this.touches = store.getTouches();
+	}
+
+	/**
+	 * Switches the events to queued mode, their commands are then applied by the physics thread
+	 * at the start of every tick instead of by the EDT. Call before start()
+	 */
+	public void setInput(Events events) {
+		this.input = events;
+		events.setQueued(true);
+	}
+
+	/**
+	 * Records the particles after every tick and the applied input from now on, pass null to stop.
+	 * Call before start(), the recorder is not closed by the loop
+	 */
+	public void setRecorder(TrajectoryRecorder recorder) {
+		this.recorder = recorder;
+		if (input != null)
+			input.setRecorder(recorder);
+		if (pm != null)
+			pm.setRecorder(recorder);
+		if (recorder != null)
+			record();
+	}
+
+	private void record() {
+		try {
+			recorder.record(store, ticks);
+		} catch (IOException e) {
+			// keep simulating without recording
+			e.printStackTrace();
+			setRecorder(null);
+		}
+	}
+
+	/**
+	 * Runs the loop on a new physics thread
+	 */
+	public void start() {
+		thread = new Thread(this, "Physics");
+		thread.start();
+	}
+
+	public void run() {
+		running = true;
+		touches = store.getTouches();
+		state.reset(store, ticks);
+		if (exchange != null)
+			exchange.publish(state);
+		long last = System.nanoTime();
+		long accumulator = 0;
+		while (running) {
+			long now = System.nanoTime();
+			accumulator += now - last;
+			last = now;
+			int done = 0;
+			while (accumulator >= tickNanos) {
+				if (done == MAX_TICKS_PER_FRAME) {
+					// too far behind, forget the rest instead of spiralling
+					droppedTicks += accumulator / tickNanos;
+					accumulator %= tickNanos;
+					break;
+				}
+				tick();
+				accumulator -= tickNanos;
+				done++;
+			}
+			long wait = last + (tickNanos - accumulator) - System.nanoTime();
+			if (wait > 0)
+				LockSupport.parkNanos(wait);
+		}
+		// the engine's force workers belong to this thread
+		pe.stopWorkers();
+	}
+
+	/**
+	 * Stops the loop and waits for the physics thread if it was started with start().
+	 * The force workers of the engine are stopped too, the next tick starts them again
+	 */
+	public void stop() {
+		boolean wasRunning = running;
+		running = false;
+		if (thread != null && thread != Thread.currentThread()) {
+			LockSupport.unpark(thread);
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (!wasRunning)
+			// only ticked by tickNow(), else run() stops them on its own thread
+			pe.stopWorkers();
+		if (input != null)
+			// from now on the events are applied by the caller again
+			input.setQueued(false);
+	}
+
+	/**
+	 * Runs one tick on the calling thread, as fast as the caller wants. For headless runs,
+	 * don't mix with start()
+	 */
+	public void tickNow() {
+		tick();
+	}
+
+	/**
+	 * One physics tick
+	 */
+	private void tick() {
+		if (input != null)
+			input.drain();
+		boolean resized = pm != null && pm.applyChanges();
+		if (store.getTouches() != touches) {
+			// something was done to the blob
+			touches = store.getTouches();
+			sleeping = false;
+			calm = 0;
+		}
+		if (sleeping) {
+			sleptTicks++;
+			return;
+		}
+		long t0 = System.nanoTime();
+		pe.step(stepSize);
+		pe.modifyObjects();
+		ticks++;
+		if (recorder != null)
+			record();
+		if (exchange != null) {
+			if (resized)
+				// removed particles were swapped, interpolating with the old locations would mix up particles
+				state.reset(store, ticks);
+			else
+				state.capture(store, ticks);
+			exchange.publish(state);
+		}
+		long t = System.nanoTime() - t0;
+		tickTime += t;
+		if (t > maxTickTime)
+			maxTickTime = t;
+		if (sleepSpeed > 0 && pe.getMaxSpeed() < sleepSpeed) {
+			calm += tickNanos;
+			if (calm >= sleepNanos)
+				sleeping = true;
+		}
+		else
+			calm = 0;
+	}
+
+	/**
+	 * @param speed the blob falls asleep when no particle is faster, 0 never sleeps
+	 * @param time ms the blob has to stay below the speed before it falls asleep
+	 */
+	public void setSleep(double speed, int time) {
+		this.sleepSpeed = speed;
+		this.sleepNanos = time * 1000000L;
+	}
+
+	public boolean isSleeping() {
+		return sleeping;
+	}
+
+	/**
+	 * @return ticks skipped because the blob was asleep
+	 */
+	public long getSleptTicks() {
+		return sleptTicks;
+	}
+
+	/**
+	 * @return share of the ticks the blob was asleep in percent
+	 */
+	public double getSleepPercentage() {
+		long all = ticks + sleptTicks;
+		return all == 0 ? 0 : 100.0 * sleptTicks / all;
+	}
+
+	/**
+	 * @return estimated CPU time saved by sleeping in ms (slept ticks times the average tick time)
+	 */
+	public double getSavedTime() {
+		return sleptTicks * getAverageTickTime();
+	}
+
+	public long getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * @return ticks skipped because the loop was too far behind
+	 */
+	public long getDroppedTicks() {
+		return droppedTicks;
+	}
+
+	/**
+	 * @return average time of step(), modifyObjects() and publishing in ms
+	 */
+	public double getAverageTickTime() {
+		return ticks == 0 ? 0 : tickTime / 1e6 / ticks;
+	}
+
+	public double getMaxTickTime() {
+		return maxTickTime / 1e6;
+	}
+
+	/**
+	 * @return real time of one tick in ns
+	 */
+	public long getTickNanos() {
+		return tickNanos;
+	}
+
+	public String toString() {
+		return String.format("ticks: %d (%.3f ms avg, %.3f ms max, %d dropped) asleep: %.1f%% (%.1f ms saved)",
+				ticks, getAverageTickTime(), getMaxTickTime(), droppedTicks, getSleepPercentage(), getSavedTime());
+	}
+}
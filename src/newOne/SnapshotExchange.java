@@ -0,0 +1,119 @@
+package newOne;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hands BlobSnapshots from the physics thread to the renderer without locks (triple buffering).
+ * The physics thread writes into its back buffer and swaps it with the ready one,
+ * the renderer swaps its front buffer with the ready one when there is a new snapshot.
+ * Both sides only ever touch their own buffer, so the renderer always draws a complete tick
+ * and neither side waits for the other.
+ */
+public class SnapshotExchange {
+
+	private final AtomicReference<BlobSnapshot> ready = new AtomicReference<BlobSnapshot>(new BlobSnapshot());
+	private BlobSnapshot back = new BlobSnapshot();	// only used by the physics thread
+	private BlobSnapshot front = new BlobSnapshot();	// only used by the renderer
+
+	/*
+	 * Statistics
+	 */
+	private volatile long published = 0;
+	private volatile long dropped = 0;
+	private volatile long frames = 0;
+	private volatile long duplicated = 0;
+	private long lastFrame = 0;
+	private volatile long frameTime = 0;
+	private volatile long maxFrameTime = 0;
+
+	/**
+	 * Physics side: publishes a copy of the state
+	 */
+	public void publish(BlobSnapshot state) {
+		back.copyFrom(state);
+		back.consumed = false;
+		BlobSnapshot old = ready.getAndSet(back);
+		// the renderer never saw the old one
+		if (!old.consumed)
+			dropped++;
+		back = old;
+		published++;
+	}
+
+	/**
+	 * Renderer side: returns the latest snapshot. If nothing new was published since the last call
+	 * the same snapshot is returned again
+	 */
+	public BlobSnapshot take() {
+		long now = System.nanoTime();
+		if (frames > 0) {
+			long interval = now - lastFrame;
+			frameTime += interval;
+			if (interval > maxFrameTime)
+				maxFrameTime = interval;
+		}
+		lastFrame = now;
+		frames++;
+		if (ready.get().consumed) {
+			duplicated++;
+			return front;
+		}
+		// front was drawn already, so handing it back is never counted as dropped
+		front = ready.getAndSet(front);
+		front.consumed = true;
+		return front;
+	}
+
+	/**
+	 * @param tickNanos real time of one physics tick
+	 * @return true if nothing new was published and the last snapshot is fully interpolated,
+	 * so a repaint would draw the same picture again (e.g. while the blob sleeps)
+	 */
+	public boolean isSettled(long tickNanos) {
+		return ready.get().consumed && System.nanoTime() - front.getTime() > tickNanos;
+	}
+
+	/**
+	 * @return snapshots published by the physics thread
+	 */
+	public long getPublished() {
+		return published;
+	}
+
+	/**
+	 * @return snapshots replaced before the renderer took them
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * @return frames drawn by the renderer
+	 */
+	public long getFrames() {
+		return frames;
+	}
+
+	/**
+	 * @return frames drawn without a new snapshot
+	 */
+	public long getDuplicated() {
+		return duplicated;
+	}
+
+	/**
+	 * @return average time between two frames in ms
+	 */
+	public double getAverageFrameTime() {
+		return frames < 2 ? 0 : frameTime / 1e6 / (frames - 1);
+	}
+
+	public double getMaxFrameTime() {
+		return maxFrameTime / 1e6;
+	}
+
+	public String toString() {
+		return String.format("published: %d (%d dropped) frames: %d (%d duplicated, %.3f ms avg, %.3f ms max)",
+				published, dropped, frames, duplicated, getAverageFrameTime(), getMaxFrameTime());
+	}
+}
@@ -0,0 +1,372 @@
+package newOne;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.SourceDataLine;
+
+import javazoom.jl.decoder.Bitstream;
+import javazoom.jl.decoder.Decoder;
+import javazoom.jl.decoder.Header;
+import javazoom.jl.decoder.JavaLayerException;
+import javazoom.jl.decoder.SampleBuffer;
+
+/**
+ * Plays the sounds of the blob. Every MP3 of the sound directory is decoded once to PCM
+ * (44.1 kHz, 16 bit, stereo) and kept in memory. One mixer thread adds up the playing clips and writes
+ * them to a single SourceDataLine, so playing a sound neither starts a thread nor opens a file.
+ * At most MAX_VOICES clips play at the same time, a new one replaces the oldest.
+ * Without a sound device the engine stays silent.
+ *
+ * Sounds are played by cue: "good", "bad", "lol" (a random laugh) and "nlol" (a random complaint).
+ */
+public class SoundEngine implements Runnable {
+
+	public static final float SAMPLE_RATE = 44100;
+	public static final int MAX_VOICES = 4;
+	/**
+	 * Frames mixed and written at once, about 23 ms
+	 */
+	private static final int BLOCK = 1024;
+
+	/**
+	 * Which files belong to which cue, like Mp3 chose them
+	 */
+	private static final String[][] CUES = {
+		{"good", "CrazyLaugh"},
+		{"bad", "burp-1"},
+		{"lol", "laugh_1", "laugh_2", "laugh_3", "laugh_4", "laugh_5", "laugh_6"},
+		{"nlol", "Angry", "come_on_1", "no-5", "no-6", "oh-my-god-2", "shes-a-crazy-psycho-2", "sigh-2", "sigh-1"}};
+
+	private static SoundEngine instance;
+
+	private final File directory;
+	private final Map<String, short[]> clips = new HashMap<String, short[]>();
+	private final Map<String, List<short[]>> cues = new HashMap<String, List<short[]>>();
+	private volatile boolean loaded = false;
+	private final Random rnd = new Random();
+
+	/**
+	 * Clips to start, filled by play() from any thread
+	 */
+	private final ConcurrentLinkedQueue<short[]> started = new ConcurrentLinkedQueue<short[]>();
+	/*
+	 * Voices, only used by the mixing thread. position is in samples (2 per frame)
+	 */
+	private final short[][] voices = new short[MAX_VOICES][];
+	private final int[] position = new int[MAX_VOICES];
+	private final long[] startedAt = new long[MAX_VOICES];
+	private long voiceCounter = 0;
+	private int[] sum = new int[2 * BLOCK];
+
+	private volatile boolean running = false;
+	private volatile boolean silent = false;
+	private Thread thread;
+	private SourceDataLine line;
+
+	/*
+	 * Statistics
+	 */
+	private volatile long played = 0, stolen = 0, dropped = 0;
+	private long loadTime = 0;
+
+	public SoundEngine(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * @return engine of the sounds directory, started on first use
+	 */
+	public static synchronized SoundEngine getDefault() {
+		if (instance == null) {
+			instance = new SoundEngine(new File("sounds"));
+			instance.start();
+		}
+		return instance;
+	}
+
+	/**
+	 * Decodes all MP3s of the directory, called by the mixer thread when it has opened the device.
+	 * play() ignores cues until the clips are loaded
+	 */
+	public synchronized void load() {
+		if (loaded)
+			return;
+		long t0 = System.nanoTime();
+		String[] files = directory.list(new FilenameFilter() {
+			public boolean accept(File dir, String name) {
+				return name.toLowerCase().endsWith(".mp3");
+			}
+		});
+		if (files == null)
+			files = new String[0];
+		Arrays.sort(files);
+		for (String file : files) {
+			try {
+				clips.put(file.substring(0, file.length() - 4), decode(new File(directory, file)));
+			} catch (IOException e) {
+				e.printStackTrace();
+			} catch (JavaLayerException e) {
+				e.printStackTrace();
+			}
+		}
+		for (String[] cue : CUES) {
+			List<short[]> list = new ArrayList<short[]>();
+			for (int i = 1; i < cue.length; i++) {
+				short[] clip = clips.get(cue[i]);
+				if (clip != null)
+					list.add(clip);
+			}
+			cues.put(cue[0], list);
+		}
+		loadTime = System.nanoTime() - t0;
+		loaded = true;
+	}
+
+	/**
+	 * Decodes a whole MP3 and converts it to SAMPLE_RATE stereo
+	 */
+	static short[] decode(File file) throws IOException, JavaLayerException {
+		InputStream in = new BufferedInputStream(new FileInputStream(file));
+		Bitstream bitstream = new Bitstream(in);
+		try {
+			Decoder decoder = new Decoder();
+			short[] pcm = new short[1 << 16];
+			int length = 0;
+			int channels = 2, frequency = (int) SAMPLE_RATE;
+			Header header;
+			while ((header = bitstream.readFrame()) != null) {
+				SampleBuffer out = (SampleBuffer) decoder.decodeFrame(header, bitstream);
+				channels = out.getChannelCount();
+				frequency = out.getSampleFrequency();
+				int n = out.getBufferLength();
+				if (length + n > pcm.length)
+					pcm = Arrays.copyOf(pcm, Math.max(2 * pcm.length, length + n));
+				System.arraycopy(out.getBuffer(), 0, pcm, length, n);
+				length += n;
+				bitstream.closeFrame();
+			}
+			return resample(pcm, length, channels, frequency);
+		} finally {
+			bitstream.close();
+		}
+	}
+
+	/**
+	 * Linear interpolation to SAMPLE_RATE, mono is copied to both channels
+	 */
+	static short[] resample(short[] pcm, int length, int channels, int frequency) {
+		int frames = length / channels;
+		int outFrames = (int) ((long) frames * (long) SAMPLE_RATE / frequency);
+		short[] out = new short[2 * outFrames];
+		double step = frequency / (double) SAMPLE_RATE;
+		for (int i = 0; i < outFrames; i++) {
+			double src = i * step;
+			int f = (int) src;
+			double t = src - f;
+			int g = Math.min(f + 1, frames - 1);
+			for (int c = 0; c < 2; c++) {
+				int ch = Math.min(c, channels - 1);
+				double a = pcm[f * channels + ch];
+				double b = pcm[g * channels + ch];
+				out[2 * i + c] = (short) Math.round(a + (b - a) * t);
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Opens the sound device and starts the mixer thread. Without device the engine stays silent
+	 */
+	public void start() {
+		running = true;
+		thread = new Thread(this, "Sound");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public void run() {
+		AudioFormat format = new AudioFormat(SAMPLE_RATE, 16, 2, true, false);
+		try {
+			line = AudioSystem.getSourceDataLine(format);
+			line.open(format, 4 * BLOCK * 4);
+			line.start();
+		} catch (Exception e) {
+			// no sound device, e.g. headless, nothing has to be decoded
+			silent = true;
+			return;
+		}
+		load();
+		byte[] out = new byte[4 * BLOCK];
+		while (running) {
+			if (!mix(out, BLOCK)) {
+				// nothing to play, wait for play()
+				LockSupport.park(this);
+				continue;
+			}
+			line.write(out, 0, out.length);
+		}
+		line.drain();
+		line.close();
+	}
+
+	/**
+	 * Stops the mixer thread
+	 */
+	public void stop() {
+		running = false;
+		if (thread != null)
+			LockSupport.unpark(thread);
+	}
+
+	/**
+	 * Plays a random clip of the cue ("good", "bad", "lol", "nlol") or a single clip by file name
+	 */
+	public void play(String cue) {
+		if (silent || !loaded) {
+			dropped++;
+			return;
+		}
+		List<short[]> list = cues.get(cue);
+		short[] clip;
+		if (list != null && !list.isEmpty()) {
+			synchronized (rnd) {
+				clip = list.get(rnd.nextInt(list.size()));
+			}
+		}
+		else
+			clip = clips.get(cue);
+		if (clip == null) {
+			dropped++;
+			return;
+		}
+		started.add(clip);
+		played++;
+		if (thread != null)
+			LockSupport.unpark(thread);
+	}
+
+	/**
+	 * Mixes the next frames of all voices into out (16 bit little endian stereo).
+	 * Only called by one thread, the mixer thread when started
+	 * @return false if nothing is playing, out is then left unchanged
+	 */
+	public boolean mix(byte[] out, int frames) {
+		short[] clip;
+		while ((clip = started.poll()) != null)
+			startVoice(clip);
+		boolean any = false;
+		for (int v = 0; v < MAX_VOICES; v++)
+			any |= voices[v] != null;
+		if (!any)
+			return false;
+		if (sum.length < 2 * frames)
+			sum = new int[2 * frames];
+		Arrays.fill(sum, 0, 2 * frames, 0);
+		for (int v = 0; v < MAX_VOICES; v++) {
+			short[] voice = voices[v];
+			if (voice == null)
+				continue;
+			int p = position[v];
+			int n = Math.min(2 * frames, voice.length - p);
+			for (int i = 0; i < n; i++)
+				sum[i] += voice[p + i];
+			position[v] = p + n;
+			if (position[v] >= voice.length)
+				voices[v] = null;
+		}
+		for (int i = 0; i < 2 * frames; i++) {
+			int s = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sum[i]));
+			out[2 * i] = (byte) s;
+			out[2 * i + 1] = (byte) (s >> 8);
+		}
+		return true;
+	}
+
+	/**
+	 * Puts the clip into a free voice or replaces the oldest one
+	 */
+	private void startVoice(short[] clip) {
+		int slot = -1;
+		for (int v = 0; v < MAX_VOICES && slot == -1; v++) {
+			if (voices[v] == null)
+				slot = v;
+		}
+		if (slot == -1) {
+			slot = 0;
+			for (int v = 1; v < MAX_VOICES; v++) {
+				if (startedAt[v] < startedAt[slot])
+					slot = v;
+			}
+			stolen++;
+		}
+		voices[slot] = clip;
+		position[slot] = 0;
+		startedAt[slot] = voiceCounter++;
+	}
+
+	/**
+	 * @return number of clips playing right now, as seen by the mixing thread
+	 */
+	public int getVoices() {
+		int n = 0;
+		for (int v = 0; v < MAX_VOICES; v++)
+			if (voices[v] != null)
+				n++;
+		return n;
+	}
+
+	public boolean isSilent() {
+		return silent;
+	}
+
+	public boolean isLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * @return decoded clips by file name without .mp3
+	 */
+	public int getClipCount() {
+		return clips.size();
+	}
+
+	public long getPlayed() {
+		return played;
+	}
+
+	/**
+	 * @return clips that replaced a playing one because all voices were busy
+	 */
+	public long getStolen() {
+		return stolen;
+	}
+
+	/**
+	 * @return play() calls without effect (not loaded, no device, unknown cue)
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * @return time to decode all clips in ms
+	 */
+	public double getLoadTime() {
+		return loadTime / 1e6;
+	}
+}
@@ -0,0 +1,117 @@
+package newOne;
+
+/**
+ * Uniform spatial hash grid (cell list) over particle positions.
+ * Every particle is sorted into the cell (floor(x/cellSize), floor(y/cellSize)).
+ * Cells are hashed into a table, so the grid does not need to know the size of the area.
+ * Several cells can share a bucket, so callers have to compare cellX()/cellY() of a candidate
+ * with the cell they asked for.
+ *
+ * build() is meant to be called once per evaluation, all arrays are reused and only grow.
+ */
+public class SpatialGrid {
+
+	private double cellSize = 1;
+	private int mask = 0;
+	private int size = 0;
+	/**
+	 * Cell coordinates of every particle
+	 */
+	int[] cellX = new int[0];
+	int[] cellY = new int[0];
+	/**
+	 * Particles of bucket b are cellIndex[cellStart[b]] ... cellIndex[cellStart[b+1]-1]
+	 */
+	int[] cellStart = new int[1];
+	int[] cellIndex = new int[0];
+
+	/**
+	 * Sorts N particles into the grid. The location of particle i is pos[stride*i] and pos[stride*i + 1]
+	 * @param pos locations, e.g. the vars layout of the PhysicEngine with stride 4
+	 * @param stride distance between two particles in pos
+	 * @param N amount of particles
+	 * @param cellSize edge length of a cell
+	 */
+	public void build(double[] pos, int stride, int N, double cellSize) {
+		prepare(N, cellSize);
+		for (int i = 0; i < N; i++) {
+			cellX[i] = (int) Math.floor(pos[stride * i] / cellSize);
+			cellY[i] = (int) Math.floor(pos[stride * i + 1] / cellSize);
+		}
+		sort();
+	}
+
+	/**
+	 * Sorts N particles with separate x and y arrays into the grid, e.g. the arrays of a ParticleStore
+	 */
+	public void build(double[] x, double[] y, int N, double cellSize) {
+		prepare(N, cellSize);
+		for (int i = 0; i < N; i++) {
+			cellX[i] = (int) Math.floor(x[i] / cellSize);
+			cellY[i] = (int) Math.floor(y[i] / cellSize);
+		}
+		sort();
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public double getCellSize() {
+		return cellSize;
+	}
+
+	public int cellOf(double coordinate) {
+		return (int) Math.floor(coordinate / cellSize);
+	}
+
+	/**
+	 * @return bucket the cell (cx, cy) is hashed into
+	 */
+	public int bucket(int cx, int cy) {
+		return (cx * 73856093 ^ cy * 19349663) & mask;
+	}
+
+	private void prepare(int N, double cellSize) {
+		this.size = N;
+		this.cellSize = cellSize;
+		int buckets = 16;
+		while (buckets < 2 * N) {
+			buckets <<= 1;
+		}
+		mask = buckets - 1;
+		if (cellStart.length < buckets + 1) {
+			cellStart = new int[buckets + 1];
+		}
+		if (cellX.length < N) {
+			cellX = new int[N];
+			cellY = new int[N];
+			cellIndex = new int[N];
+		}
+	}
+
+	/**
+	 * Counting sort of all particles by bucket
+	 */
+	private void sort() {
+		int buckets = mask + 1;
+		for (int b = 0; b <= buckets; b++) {
+			cellStart[b] = 0;
+		}
+		for (int i = 0; i < size; i++) {
+			cellStart[bucket(cellX[i], cellY[i]) + 1]++;
+		}
+		for (int b = 0; b < buckets; b++) {
+			cellStart[b + 1] += cellStart[b];
+		}
+		// cellStart[b] is used as insert position and moved back afterwards
+		for (int i = 0; i < size; i++) {
+			int b = bucket(cellX[i], cellY[i]);
+			cellIndex[cellStart[b]++] = i;
+		}
+		for (int b = buckets; b > 0; b--) {
+			cellStart[b] = cellStart[b - 1];
+		}
+		cellStart[0] = 0;
+	}
+}
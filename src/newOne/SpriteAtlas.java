@@ -0,0 +1,222 @@
+package newOne;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.ImageObserver;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+
+/**
+ * All textures of a directory decoded once and packed into one image.
+ * The PNGs are decoded in parallel, then copied into a single image compatible with the screen,
+ * so Java2D can keep it in video memory. A Sprite is only a rectangle in that image,
+ * switching a texture means switching a Sprite reference.
+ */
+public class SpriteAtlas {
+
+	/**
+	 * Free pixels around every sprite, so scaled drawing does not bleed into the neighbours
+	 */
+	private static final int PADDING = 1;
+	/**
+	 * Sprites are packed in rows of at most this width (or the widest sprite)
+	 */
+	private static final int ATLAS_WIDTH = 1024;
+
+	/**
+	 * A texture inside an atlas image
+	 */
+	public static final class Sprite {
+		private final BufferedImage image;
+		private final int x, y, width, height;
+
+		Sprite(BufferedImage image, int x, int y, int width, int height) {
+			this.image = image;
+			this.x = x;
+			this.y = y;
+			this.width = width;
+			this.height = height;
+		}
+
+		/**
+		 * Draws the sprite with its upper left corner at dx, dy
+		 */
+		public void draw(Graphics g, int dx, int dy, ImageObserver observer) {
+			g.drawImage(image, dx, dy, dx + width, dy + height, x, y, x + width, y + height, observer);
+		}
+
+		public int getWidth() {
+			return width;
+		}
+
+		public int getHeight() {
+			return height;
+		}
+
+		/**
+		 * @return the sprite as image of its own, shares the pixels with the atlas
+		 */
+		public BufferedImage toImage() {
+			return image.getSubimage(x, y, width, height);
+		}
+	}
+
+	private final Map<String, Sprite> sprites = new HashMap<String, Sprite>();
+	private BufferedImage atlas;
+	private long loadTime;
+
+	/**
+	 * Decodes all PNGs of the directory in parallel and packs them into one atlas.
+	 * Images which can't be read are reported and left out
+	 */
+	public static SpriteAtlas load(File directory) {
+		long start = System.nanoTime();
+		String[] files = directory.list(new FilenameFilter() {
+			public boolean accept(File dir, String name) {
+				return name.toLowerCase().endsWith(".png");
+			}
+		});
+		if (files == null) {
+			files = new String[0];
+		}
+		Arrays.sort(files);
+		List<String> names = new ArrayList<String>();
+		List<BufferedImage> images = new ArrayList<BufferedImage>();
+		int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), files.length));
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<BufferedImage>> decoded = new ArrayList<Future<BufferedImage>>();
+			for (final String file : files) {
+				final File f = new File(directory, file);
+				decoded.add(pool.submit(new Callable<BufferedImage>() {
+					public BufferedImage call() throws Exception {
+						return ImageIO.read(f);
+					}
+				}));
+			}
+			for (int i = 0; i < files.length; i++) {
+				try {
+					BufferedImage image = decoded.get(i).get();
+					if (image != null) {
+						names.add(files[i].substring(0, files[i].length() - 4));
+						images.add(image);
+					}
+				} catch (ExecutionException e) {
+					e.getCause().printStackTrace();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			pool.shutdown();
+		}
+		SpriteAtlas result = new SpriteAtlas();
+		result.pack(names, images);
+		result.loadTime = System.nanoTime() - start;
+		return result;
+	}
+
+	/**
+	 * Shelf packing: the images are sorted by height and put into rows from left to right
+	 */
+	private void pack(final List<String> names, final List<BufferedImage> images) {
+		Integer[] order = new Integer[images.size()];
+		int width = ATLAS_WIDTH;
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+			width = Math.max(width, images.get(i).getWidth() + 2 * PADDING);
+		}
+		Arrays.sort(order, Collections.reverseOrder(new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return images.get(a).getHeight() - images.get(b).getHeight();
+			}
+		}));
+		int[] px = new int[order.length];
+		int[] py = new int[order.length];
+		int x = 0, y = 0, row = 0;
+		for (int k = 0; k < order.length; k++) {
+			BufferedImage image = images.get(order[k]);
+			int w = image.getWidth() + 2 * PADDING;
+			if (x + w > width) {
+				x = 0;
+				y += row;
+				row = 0;
+			}
+			px[k] = x + PADDING;
+			py[k] = y + PADDING;
+			x += w;
+			row = Math.max(row, image.getHeight() + 2 * PADDING);
+		}
+		atlas = createImage(width, Math.max(1, y + row));
+		Graphics2D g = atlas.createGraphics();
+		g.setComposite(AlphaComposite.Src);
+		for (int k = 0; k < order.length; k++) {
+			BufferedImage image = images.get(order[k]);
+			g.drawImage(image, px[k], py[k], null);
+			sprites.put(names.get(order[k]), new Sprite(atlas, px[k], py[k], image.getWidth(), image.getHeight()));
+		}
+		g.dispose();
+	}
+
+	/**
+	 * @return translucent image in the format of the screen, a plain ARGB image without screen
+	 */
+	private static BufferedImage createImage(int width, int height) {
+		if (!GraphicsEnvironment.isHeadless()) {
+			return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+					.getDefaultConfiguration().createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+		}
+		return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+	}
+
+	/**
+	 * Makes a single image usable where a Sprite is expected
+	 */
+	public static Sprite wrap(BufferedImage image) {
+		return new Sprite(image, 0, 0, image.getWidth(), image.getHeight());
+	}
+
+	/**
+	 * @param name file name without .png
+	 * @return null if there was no such texture
+	 */
+	public Sprite get(String name) {
+		return sprites.get(name);
+	}
+
+	public int size() {
+		return sprites.size();
+	}
+
+	/**
+	 * @return the image all sprites are drawn from
+	 */
+	public BufferedImage getImage() {
+		return atlas;
+	}
+
+	/**
+	 * @return time to decode and pack all textures in ms
+	 */
+	public double getLoadTime() {
+		return loadTime / 1e6;
+	}
+}
@@ -1,5 +1,8 @@
 package newOne;
 
+import java.io.File;
+import java.io.IOException;
+
 	public class TestController{
 
 		private static final int XAREA = 600;			// GUI size
@@ -9,12 +12,16 @@ package newOne;
 		private static final int XAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel
 		private static final int YAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel 
 		
-		private static final int REFRESH_TIME = 60;	// Refresh rate (17)
-		private static final int PARTICLES = 20;		// Amount of Particles - If oyu change this you need to change it in physicsengine also in helperparticlesystem
+		private static final int REFRESH_TIME = 60;	// Physics tick in ms
+		private static final int FRAME_TIME = 17;	// Time between two frames in ms
+		private static final double STEPSIZE = 0.05;	// Simulated time of one physics tick
+		private static final int PARTICLES = 20;		// Amount of Particles
 		private static final int PARTICLE_RADIUS = 20;  // Particle radius
+		private static final int KEYFRAMES = 100;	// Ticks between two keyframes of a recording
 		
 		
-	    public static void main(String str[]) {
+	    //with a file name as argument everything the blob does is recorded for the TrajectoryReplayer
+	    public static void main(String str[]) throws IOException {
 	    	PMgnt pm = new PMgnt(PARTICLES,XAREA_PART_MGNT,YAREA_PART_MGNT,PARTICLE_RADIUS/2);
 			TestParticleGUI t1 = new TestParticleGUI(pm,PARTICLE_RADIUS, XAREA,YAREA);
 			
@@ -22,22 +29,25 @@ package newOne;
 			PhysicEngine pe = new PhysicEngine(pm.particlesystem);
 			
 			//pe.stop();
-			while(true){
-				wait(REFRESH_TIME);	// waits for 300 ms
-					pe.step(0.05);
-					pe.modifyObjects();
-					t1.repaint();
+			SnapshotExchange exchange = new SnapshotExchange();
+			SimulationLoop loop = new SimulationLoop(pe, pm, exchange, REFRESH_TIME, STEPSIZE);
+			loop.setInput(t1.getEvents());
+			if(str.length>0){
+				final TrajectoryRecorder recorder = new TrajectoryRecorder(new File(str[0]), loop.getTickNanos(), STEPSIZE, KEYFRAMES);
+				loop.setRecorder(recorder);
+				Runtime.getRuntime().addShutdownHook(new Thread() {
+					public void run() {
+						try {
+							recorder.close();
+						} catch (IOException e) {
+							e.printStackTrace();
+						}
+					}
+				});
 			}
+			t1.attach(exchange, loop.getTickNanos(), FRAME_TIME);
+			loop.start();
 	    }
-	    
-	    public static void wait (int timeToWait){
-	        long t0,t1;
-	        t0 = System.currentTimeMillis();
-	        do{
-	            t1 = System.currentTimeMillis();
-	        }
-	        while(t1 - t0 < timeToWait);
-	}
 
 	    
 }
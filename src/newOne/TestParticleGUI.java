@@ -1,7 +1,6 @@
 package newOne;
 
 import java.awt.AWTException;
-import java.awt.Color;
 import java.awt.Container;
 import java.awt.Dimension;
 import java.awt.Graphics;
@@ -16,10 +15,10 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Random;
 
-import javax.imageio.ImageIO;
 import javax.swing.JButton;
 import javax.swing.JPanel;
 import javax.swing.JWindow;
+import javax.swing.Timer;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 
@@ -29,13 +28,27 @@ public class TestParticleGUI extends JWindow {
 	 * 
 	 */
 	private static final long serialVersionUID = 1L;
-	private static BufferedImage texture;
-	private static BufferedImage texturea;
-	private static BufferedImage textureb;
-	private static BufferedImage texturec;
-	private static BufferedImage textured;
-	private static BufferedImage texture2;
-	private static BufferedImage texture3;
+	//all textures of images/, decoded once for all windows
+	private static SpriteAtlas atlas;
+	//body textures by choice 1-5, eyes and mouth
+	private static SpriteAtlas.Sprite[] body = new SpriteAtlas.Sprite[5];
+	private static SpriteAtlas.Sprite texture2;
+	private static SpriteAtlas.Sprite texture3;
+	//eyes and mouth for sauer = 10, 20, ... 80, null keeps the mouth
+	private static final String[] EYES = {"Auge6", "Auge4", "Auge2", "Auge1", "Auge5", "Auge3", "Auge8", "Auge7"};
+	private static final String[] MOUTHS = {null, "Mund3", "Mund2", "Mund1", "Mund5", "Mund5", "Mund5", "Mund4"};
+	//body textures for gut = 0, -4..-1, below -5, 1 and 2
+	private static final String[][] BODIES = {
+		{"texture01", "texture011", "texture0111", "texture01111", "texture011111"},
+		{"texture04", "texture044", "texture0444", "texture04444", "texture044444"},
+		{"texture05", "texture055", "texture0555", "texture05555", "texture055555"},
+		{"texture03", "texture033", "texture0333", "texture03333", "texture033333"},
+		{"texture02", "texture02", "texture02", "texture02", "texture02"}};
+	//where a body texture is drawn relative to its particle, also used by the BenchmarkSuite to render the same layout
+	public static final int[][] BODY_OFFSET = {{75, 70}, {70, 80}, {40, 30}, {30, 15}, {35, 25}};
+	private SpriteAtlas.Sprite[] eyeSprites = new SpriteAtlas.Sprite[EYES.length];
+	private SpriteAtlas.Sprite[] mouthSprites = new SpriteAtlas.Sprite[MOUTHS.length];
+	private SpriteAtlas.Sprite[][] bodySprites = new SpriteAtlas.Sprite[BODIES.length][];
 	private PMgnt pm;
 	private int radius;
 	private Events event;
@@ -43,7 +56,12 @@ public class TestParticleGUI extends JWindow {
 	private int state=0;
 	public int sauer=0;  // texture for eyes and mouth
 	public int gut=0;	// texturecolor
-	public int particlecounterstate=0; //for adding or removeing particles - not yet fully implemented
+	public int particlecounterstate=0; //last gut state particles were added or removed for
+	private SnapshotExchange exchange; //snapshots of the physics thread
+	private long tickNanos = 1;
+	private Timer frameTimer;
+	private BlobSnapshot direct; //used when there is no SimulationLoop
+	private BlobRenderer renderer; //repaints only the parts of the window where sprites moved
 
 	//resize the screen and center it -> no longer used for chemie
 	public void size(int x, int y){
@@ -52,127 +70,67 @@ public class TestParticleGUI extends JWindow {
 	}
 	
 	//changes the mouth and eyes of the slimey depending on its current "sauerness"
+	//all sprites are in the atlas already, so this only switches references
 	public void sauer(){
-		if(sauer==10)
-		try {
-			texture2 = ImageIO.read( new File( "images/Auge6.png" ) );
-		} catch (IOException e1) {
-			e1.printStackTrace();
+		if(sauer%10==0 && sauer>=10 && sauer<=80){
+			int mood = sauer/10-1;
+			texture2 = eyeSprites[mood];
+			if(mouthSprites[mood]!=null) texture3 = mouthSprites[mood];
 		}
-		if(sauer==20)
-			try {
-				texture2 = ImageIO.read( new File( "images/Auge4.png" ) );
-				texture3 = ImageIO.read( new File( "images/Mund3.png" ) );
-			} catch (IOException e1) {
-				e1.printStackTrace();
-			}
-		if(sauer==30)
-			try {
-				texture2 = ImageIO.read( new File( "images/Auge2.png" ) );
-				texture3 = ImageIO.read( new File( "images/Mund2.png" ) );
-			} catch (IOException e1) {
-				e1.printStackTrace();
-			}
-		if(sauer==40)
-			try {
-				texture2 = ImageIO.read( new File( "images/Auge1.png" ) );
-				texture3 = ImageIO.read( new File( "images/Mund1.png" ) );
-			} catch (IOException e1) {
-				e1.printStackTrace();
-			}
-		if(sauer==50)
-			try {
-				texture2 = ImageIO.read( new File( "images/Auge5.png" ) );
-				texture3 = ImageIO.read( new File( "images/Mund5.png" ) );
-			} catch (IOException e1) {
-				e1.printStackTrace();
-			}
-		if(sauer==60)
-			try {
-				texture2 = ImageIO.read( new File( "images/Auge3.png" ) );
-				texture3 = ImageIO.read( new File( "images/Mund5.png" ) );
-			} catch (IOException e1) {
-				e1.printStackTrace();
-			}
-		if(sauer==70)
-			try {
-				texture2 = ImageIO.read( new File( "images/Auge8.png" ) );
-				texture3 = ImageIO.read( new File( "images/Mund5.png" ) );
-			} catch (IOException e1) {
-				e1.printStackTrace();
-			}
-		if(sauer==80)
-			try {
-				texture2 = ImageIO.read( new File( "images/Auge7.png" ) );
-				texture3 = ImageIO.read( new File( "images/Mund4.png" ) );
-			} catch (IOException e1) {
-				e1.printStackTrace();
-			}
 		
 		//changes texture depending on use of homeo or chemie
-		if(gut==0)
-		try {
-			texture = ImageIO.read( new File( "images/texture01.png" ) );
-			texturea = ImageIO.read( new File( "images/texture011.png" ) );
-			textureb = ImageIO.read( new File( "images/texture0111.png" ) );
-			texturec = ImageIO.read( new File( "images/texture01111.png" ) );
-			textured = ImageIO.read( new File( "images/texture011111.png" ) );
-		} catch (IOException e1) {
-			e1.printStackTrace();
-		}
-		if(gut<0 && gut>(-5))
-		try {
-			texture = ImageIO.read( new File( "images/texture04.png" ) );
-			texturea = ImageIO.read( new File( "images/texture044.png" ) );
-			textureb = ImageIO.read( new File( "images/texture0444.png" ) );
-			texturec = ImageIO.read( new File( "images/texture04444.png" ) );
-			textured = ImageIO.read( new File( "images/texture044444.png" ) );
-			//removing/adding particles is not activated in this version.
+		//every change of gut adds or removes one particle, applied by the SimulationLoop before the next tick
+		int state = -1;
+		if(gut==0) state = 0;
+		if(gut<0 && gut>(-5)){
+			state = 1;
 			if(particlecounterstate!=1){particlecounterstate=1; pm.insertparticle(1);}
-		} catch (IOException e1) {
-			e1.printStackTrace();
 		}
-		if(gut<(-5))
-			try {
-				texture = ImageIO.read( new File( "images/texture05.png" ) );
-				texturea = ImageIO.read( new File( "images/texture055.png" ) );
-				textureb = ImageIO.read( new File( "images/texture0555.png" ) );
-				texturec = ImageIO.read( new File( "images/texture05555.png" ) );
-				textured = ImageIO.read( new File( "images/texture055555.png" ) );
-				if(particlecounterstate!=2){particlecounterstate=2; pm.insertparticle(1);}
-			} catch (IOException e1) {
-				e1.printStackTrace();
-			}
-		if(gut==1)
-		try {
-			texture = ImageIO.read( new File( "images/texture03.png" ) );
-			texturea = ImageIO.read( new File( "images/texture033.png" ) );
-			textureb = ImageIO.read( new File( "images/texture0333.png" ) );
-			texturec = ImageIO.read( new File( "images/texture03333.png" ) );
-			textured = ImageIO.read( new File( "images/texture033333.png" ) );
-			if(particlecounterstate!=3){particlecounterstate+=3; pm.removeparticle(1);}
-		} catch (IOException e1) {
-			e1.printStackTrace();
+		if(gut<(-5)){
+			state = 2;
+			if(particlecounterstate!=2){particlecounterstate=2; pm.insertparticle(1);}
 		}
-		if(gut==2)
-			try {
-				texture = ImageIO.read( new File( "images/texture02.png" ) );
-				texturea = ImageIO.read( new File( "images/texture02.png" ) );
-				textureb = ImageIO.read( new File( "images/texture02.png" ) );
-				texturec = ImageIO.read( new File( "images/texture02.png" ) );
-				textured = ImageIO.read( new File( "images/texture02.png" ) );
-				if(particlecounterstate!=4){particlecounterstate+=4; pm.removeparticle(1);}
-			} catch (IOException e1) {
-				e1.printStackTrace();
+		if(gut==1){
+			state = 3;
+			if(particlecounterstate!=3){particlecounterstate=3; pm.removeparticle(1);}
+		}
+		if(gut==2){
+			state = 4;
+			if(particlecounterstate!=4){particlecounterstate=4; pm.removeparticle(1);}
+		}
+		if(state!=-1) body = bodySprites[state];
+	}
+
+	//looks up all mood sprites once, missing textures are reported like failed reads were
+	private void loadSprites() {
+		if(atlas==null) atlas = SpriteAtlas.load(new File("images"));
+		for(int i=0; i<EYES.length; i++){
+			eyeSprites[i] = sprite(EYES[i]);
+			mouthSprites[i] = MOUTHS[i]==null ? null : sprite(MOUTHS[i]);
+		}
+		for(int i=0; i<BODIES.length; i++){
+			bodySprites[i] = new SpriteAtlas.Sprite[BODIES[i].length];
+			for(int j=0; j<BODIES[i].length; j++){
+				bodySprites[i][j] = sprite(BODIES[i][j]);
 			}
-		
-		
-		
+		}
+		texture2 = eyeSprites[0];
+		texture3 = mouthSprites[1];
+		body = bodySprites[0];
+	}
+
+	private SpriteAtlas.Sprite sprite(String name) {
+		SpriteAtlas.Sprite s = atlas.get(name);
+		if(s==null){
+			new IOException("images/" + name + ".png could not be read").printStackTrace();
+			s = SpriteAtlas.wrap(new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB));
+		}
+		return s;
 	}
 
 	public TestParticleGUI(PMgnt pm, int radius, int xarea, int yarea) {
 		 event = new Events(pm,this);
-		addMouseListener(new MouseAdapter() {
+		MouseAdapter mouse = new MouseAdapter() {
 			@Override
 			//Click Event
 			public void mouseClicked(MouseEvent e) {
@@ -224,8 +182,7 @@ public class TestParticleGUI extends JWindow {
 //				System.out.println("Entered");
 				sauer=sauer-1;
 				sauer();
-				Mp3 player = new Mp3("lol");
-				player.start();
+				event.playlol();
 				
 			}
 
@@ -235,8 +192,7 @@ public class TestParticleGUI extends JWindow {
 //				System.out.println("left");
 //				sauer=sauer-1;
 //				sauer();
-//				Mp3 player = new Mp3("lol");
-//				player.start();
+//				event.playlol();
 			}
 
 			@Override
@@ -285,8 +241,13 @@ public class TestParticleGUI extends JWindow {
 
 			@Override
 			public void mouseDragged(MouseEvent e) {
-				// TODO Auto-generated method stub
-				
+				//every drag step is queued, the physics thread only applies the last one of a tick
+				if(state==1){
+					event.move(e.getX(), e.getY(), false);
+				}
+				else if(state==2){
+					event.verzerren(e.getX(), e.getY(), false);
+				}
 			}
 
 			@Override
@@ -294,22 +255,17 @@ public class TestParticleGUI extends JWindow {
 				// TODO Auto-generated method stub
 				
 			}
-		});
+		};
+		addMouseListener(mouse);
+		addMouseMotionListener(mouse);
 		this.pm = pm;
 		this.radius = radius;
-		try {
-			texture2 = ImageIO.read( new File( "images/Auge6.png" ) );
-			texture = ImageIO.read( new File( "images/texture01.png" ) );
-			texture3 = ImageIO.read( new File( "images/Mund3.png" ) );
-			texturea = ImageIO.read( new File( "images/texture011.png" ) );
-			textureb = ImageIO.read( new File( "images/texture0111.png" ) );
-			texturec = ImageIO.read( new File( "images/texture01111.png" ) );
-			textured = ImageIO.read( new File( "images/texture011111.png" ) );
-			
-		} catch (IOException e1) {
-			// TODO Auto-generated catch block
-			e1.printStackTrace();
-		}
+		loadSprites();
+		renderer = new BlobRenderer(this, new BlobRenderer.Background() {
+			public void paintBackground(Graphics g) {
+				TestParticleGUI.super.paint(g);
+			}
+		}, BODY_OFFSET);
 
 		/**/
 
@@ -334,56 +290,55 @@ public class TestParticleGUI extends JWindow {
 
 	}
 
-	public void paint(Graphics g) {
-		
-		double xmin=0;
-		double xmax=0;
-		double ymin=0;
-		double ymax=0;
-		double centerx=0;
-		double centery=0;
-		int i=0;
-		
-		for (Particle p : pm.particlesystem) {
-			if(i==0){xmin = p.getLocation(0); xmax = p.getLocation(0); ymin = p.getLocation(1); ymax = p.getLocation(1); i=1;}
-			if(p.getLocation(0) < xmin)	xmin = p.getLocation(0);
-			if(p.getLocation(0) > xmax)	xmax = p.getLocation(0);
-			if(p.getLocation(1) < ymin)	ymin = p.getLocation(1);
-			if(p.getLocation(1) > ymax)	ymax = p.getLocation(1);
-			}
-		
-		centerx=(xmax-xmin)/2;
-		centery=(ymax-ymin)/2;
-		
-		super.paint(g);
-		g.setColor(Color.green);
-		i=0;
-		for (Particle p : pm.particlesystem) {
-			if(p.isLocked()){g.fillOval((int) centerx, (int) centery, (int) p.getLocation(0), (int)p.getLocation(1));}
-			if(p.kind==0){
-				int x = (int) p.getLocation(0);
-				int y = (int) p.getLocation(1);
-				if(p.choice==1) g.drawImage(texture, x-75,y-70, this);
-				if(p.choice==2) g.drawImage(texturea, x-70,y-80, this);
-				if(p.choice==3) g.drawImage(textureb, x-40,y-30, this);
-				if(p.choice==4) g.drawImage(texturec, x-30,y-15, this);
-				if(p.choice==5) g.drawImage(textured, x-35,y-25, this);
-//				g.fillOval(x, y, 20, 20);
-			}
-			else if(p.kind==1){
-				int x = (int) p.getLocation(0);
-				int y = (int) p.getLocation(1);
-				g.drawImage(texture2,x,y,this);
-//				g.fillOval(x, y, 20, 20);
-			}
-			else{
-				int x = (int) p.getLocation(0);
-				int y = (int) p.getLocation(1);
-				g.drawImage(texture3,x,y,this);
-//				g.fillOval(x, y, 20, 20);
+	/**
+	 * Draws the snapshots published by the physics thread. A swing timer repaints every frameTime ms,
+	 * each paint takes the latest snapshot and interpolates between its two ticks.
+	 * @param exchange filled by the SimulationLoop
+	 * @param tickNanos real time of one physics tick
+	 * @param frameTime time between two frames in ms
+	 */
+	public void attach(SnapshotExchange exchange, long tickNanos, int frameTime) {
+		this.exchange = exchange;
+		this.tickNanos = tickNanos;
+		if(frameTimer!=null) frameTimer.stop();
+		frameTimer = new Timer(frameTime, new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				frame();
 			}
-			i++;
+		});
+		frameTimer.start();
+	}
+
+	//takes the newest snapshot and repaints where sprites moved
+	private void frame() {
+		renderer.setSprites(body, texture2, texture3);
+		//nothing moves while the blob sleeps, only a new mood has to be drawn
+		if(exchange.isSettled(tickNanos) && !renderer.isStale()) return;
+		BlobSnapshot f = exchange.take();
+		//position between the two ticks of the snapshot
+		double a = (double) (System.nanoTime() - f.getTime()) / tickNanos;
+		a = Math.max(0, Math.min(1, a));
+		Rectangle dirty = renderer.update(f, a);
+		if(dirty!=null) repaint(dirty.x, dirty.y, dirty.width, dirty.height);
+	}
+
+	public void paint(Graphics g) {
+		if(exchange==null){
+			//no loop running, draw the particles as they are
+			if(direct==null) direct = new BlobSnapshot();
+			direct.reset(pm.store, 0);
+			renderer.setSprites(body, texture2, texture3);
+			renderer.update(direct, 1);
 		}
+		renderer.paint(g, g.getClipBounds());
+	}
+
+	public BlobRenderer getRenderer() {
+		return renderer;
+	}
+
+	public Events getEvents() {
+		return event;
 	}
 
 	public void setParticleMgnt(PMgnt pm) {
@@ -416,27 +371,29 @@ public class TestParticleGUI extends JWindow {
 	}
 
 	public static BufferedImage getTexture() {
-		return texture;
+		return body[0]==null ? null : body[0].toImage();
 	}
 
 	public static void setTexture(BufferedImage texture) {
-		TestParticleGUI.texture = texture;
+		//the sets of loadSprites() stay as they are
+		body = body.clone();
+		body[0] = SpriteAtlas.wrap(texture);
 	}
 
 	public static BufferedImage getTexture2() {
-		return texture2;
+		return texture2==null ? null : texture2.toImage();
 	}
 
 	public static void setTexture2(BufferedImage texture2) {
-		TestParticleGUI.texture2 = texture2;
+		TestParticleGUI.texture2 = SpriteAtlas.wrap(texture2);
 	}
 
 	public static BufferedImage getTexture3() {
-		return texture3;
+		return texture3==null ? null : texture3.toImage();
 	}
 
 	public static void setTexture3(BufferedImage texture3) {
-		TestParticleGUI.texture3 = texture3;
+		TestParticleGUI.texture3 = SpriteAtlas.wrap(texture3);
 	}
 	
 	
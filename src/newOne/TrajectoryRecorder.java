@@ -0,0 +1,265 @@
+package newOne;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Records what the blob did, so a glitch can be watched again with the TrajectoryReplayer.
+ * After every tick SimulationLoop hands the particles to record(), Events hands every applied input to input().
+ *
+ * The file starts with a header, followed by records of one type byte each:
+ * <ul>
+ * <li>KEYFRAME: tick, n, then per particle x, y, vx, vy as doubles and kind, choice, locked as bytes.
+ * Written every keyframe interval and whenever particles were added, removed or swapped</li>
+ * <li>DELTA: tick, n, then per particle the change of x, y, vx, vy since the last record, quantized to
+ * POSITION_QUANT and SPEED_QUANT and written as zigzag varints (mostly 1-2 bytes), followed by the locked particles</li>
+ * <li>INPUT: tick, InputTrace.Action, x, y, end, applied before the step to tick + 1</li>
+ * </ul>
+ * The deltas are taken from the values the replayer will reconstruct, so the error never adds up over the ticks.
+ * Records are collected in a direct buffer and written to the FileChannel in batches.
+ */
+public class TrajectoryRecorder {
+
+	static final int MAGIC = 0x424C4F42;	// "BLOB"
+	static final short VERSION = 1;
+	static final byte KEYFRAME = 'K', DELTA = 'D', INPUT = 'I';
+	/**
+	 * Resolution of the recorded locations in pixels
+	 */
+	public static final double POSITION_QUANT = 1.0 / 1024;
+	/**
+	 * Resolution of the recorded speeds
+	 */
+	public static final double SPEED_QUANT = 1.0 / 256;
+	private static final int BUFFER = 256 * 1024;
+
+	private final FileChannel channel;
+	private final RandomAccessFile file;
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER);
+	private final int keyframeInterval;
+
+	/*
+	 * The state as the replayer sees it
+	 */
+	private double[] x = new double[0], y = new double[0], vx = new double[0], vy = new double[0];
+	private int[] kind = new int[0], choice = new int[0];
+	private int size = -1;
+	private long lastKeyframe = Long.MIN_VALUE / 2;
+	private long tick = 0;
+
+	/*
+	 * Statistics
+	 */
+	private long records = 0, keyframes = 0, inputs = 0;
+	private long written = 0;
+	private long time = 0;
+
+	/**
+	 * Creates or overwrites the file and writes the header
+	 * @param tickNanos real time of one tick
+	 * @param stepSize simulated time of one tick
+	 * @param keyframeInterval a keyframe every this many ticks, the replayer seeks to them
+	 */
+	public TrajectoryRecorder(File target, long tickNanos, double stepSize, int keyframeInterval) throws IOException {
+		this.keyframeInterval = keyframeInterval;
+		file = new RandomAccessFile(target, "rw");
+		file.setLength(0);
+		channel = file.getChannel();
+		buffer.putInt(MAGIC);
+		buffer.putShort(VERSION);
+		buffer.putLong(tickNanos);
+		buffer.putDouble(stepSize);
+		buffer.putInt(keyframeInterval);
+		buffer.putDouble(POSITION_QUANT);
+		buffer.putDouble(SPEED_QUANT);
+	}
+
+	/**
+	 * Records the particles after a tick
+	 */
+	public synchronized void record(ParticleStore store, long tick) throws IOException {
+		long t0 = System.nanoTime();
+		this.tick = tick;
+		int n = store.size();
+		boolean key = n != size || tick - lastKeyframe >= keyframeInterval;
+		for (int i = 0; i < n && !key; i++) {
+			// a removed particle was swapped or an eye became a body particle
+			key = store.kind[i] != kind[i] || store.choice[i] != choice[i];
+		}
+		if (key)
+			keyframe(store, tick, n);
+		else
+			delta(store, tick, n);
+		records++;
+		time += System.nanoTime() - t0;
+	}
+
+	private void keyframe(ParticleStore store, long tick, int n) throws IOException {
+		ensure(1 + 8 + 4 + n * (4 * 8 + 3));
+		if (x.length < n) {
+			x = new double[n];
+			y = new double[n];
+			vx = new double[n];
+			vy = new double[n];
+			kind = new int[n];
+			choice = new int[n];
+		}
+		buffer.put(KEYFRAME);
+		buffer.putLong(tick);
+		buffer.putInt(n);
+		for (int i = 0; i < n; i++) {
+			x[i] = store.x[i];
+			y[i] = store.y[i];
+			vx[i] = store.vx[i];
+			vy[i] = store.vy[i];
+			kind[i] = store.kind[i];
+			choice[i] = store.choice[i];
+			buffer.putDouble(x[i]);
+			buffer.putDouble(y[i]);
+			buffer.putDouble(vx[i]);
+			buffer.putDouble(vy[i]);
+			buffer.put((byte) kind[i]);
+			buffer.put((byte) choice[i]);
+			buffer.put((byte) (store.isLocked(i) ? 1 : 0));
+		}
+		size = n;
+		lastKeyframe = tick;
+		keyframes++;
+	}
+
+	private void delta(ParticleStore store, long tick, int n) throws IOException {
+		// 4 varints of at most 10 bytes and a locked index per particle
+		ensure(1 + 8 + 4 + n * (4 * 10 + 5) + 5);
+		buffer.put(DELTA);
+		buffer.putLong(tick);
+		buffer.putInt(n);
+		int locked = 0;
+		for (int i = 0; i < n; i++) {
+			long q;
+			q = Math.round((store.x[i] - x[i]) / POSITION_QUANT);
+			x[i] += q * POSITION_QUANT;
+			putVarint(buffer, q);
+			q = Math.round((store.y[i] - y[i]) / POSITION_QUANT);
+			y[i] += q * POSITION_QUANT;
+			putVarint(buffer, q);
+			q = Math.round((store.vx[i] - vx[i]) / SPEED_QUANT);
+			vx[i] += q * SPEED_QUANT;
+			putVarint(buffer, q);
+			q = Math.round((store.vy[i] - vy[i]) / SPEED_QUANT);
+			vy[i] += q * SPEED_QUANT;
+			putVarint(buffer, q);
+			if (store.isLocked(i))
+				locked++;
+		}
+		putVarint(buffer, locked);
+		for (int i = 0; i < n && locked > 0; i++) {
+			if (store.isLocked(i)) {
+				putVarint(buffer, i);
+				locked--;
+			}
+		}
+	}
+
+	/**
+	 * Records an input the Events apply now, i.e. between the last recorded tick and the next
+	 * @param x mouse location, for FEED the state and for INSERT and REMOVE the number of particles
+	 */
+	public synchronized void input(InputTrace.Action action, int x, int y, boolean end) {
+		try {
+			ensure(1 + 8 + 1 + 4 + 4 + 1);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		}
+		buffer.put(INPUT);
+		buffer.putLong(tick);
+		buffer.put((byte) action.ordinal());
+		buffer.putInt(x);
+		buffer.putInt(y);
+		buffer.put((byte) (end ? 1 : 0));
+		inputs++;
+	}
+
+	/**
+	 * Makes room for a record, writes the collected batch when the buffer is full
+	 */
+	private void ensure(int bytes) throws IOException {
+		if (buffer.remaining() >= bytes)
+			return;
+		flush();
+		if (buffer.capacity() < bytes)
+			buffer = ByteBuffer.allocateDirect(Math.max(bytes, 2 * buffer.capacity()));
+	}
+
+	/**
+	 * Writes the collected records to the file
+	 */
+	public synchronized void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			written += channel.write(buffer);
+		buffer.clear();
+	}
+
+	public synchronized void close() throws IOException {
+		flush();
+		channel.force(false);
+		file.close();
+	}
+
+	static void putVarint(ByteBuffer buffer, long value) {
+		// zigzag, small negative numbers become small positive ones
+		long v = (value << 1) ^ (value >> 63);
+		while ((v & ~0x7FL) != 0) {
+			buffer.put((byte) ((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		buffer.put((byte) v);
+	}
+
+	static long getVarint(ByteBuffer buffer) {
+		long v = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get();
+			v |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	public long getRecords() {
+		return records;
+	}
+
+	public long getKeyframes() {
+		return keyframes;
+	}
+
+	public long getInputs() {
+		return inputs;
+	}
+
+	/**
+	 * @return bytes written to the file so far, the rest is still buffered
+	 */
+	public long getWritten() {
+		return written;
+	}
+
+	/**
+	 * @return average time of record() including the batched writes in ms
+	 */
+	public double getAverageRecordTime() {
+		return records == 0 ? 0 : time / 1e6 / records;
+	}
+
+	public String toString() {
+		return String.format("%d ticks (%d keyframes), %d inputs, %d bytes, %.4f ms per tick",
+				records, keyframes, inputs, written + buffer.position(), getAverageRecordTime());
+	}
+}
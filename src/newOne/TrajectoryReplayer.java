@@ -0,0 +1,297 @@
+package newOne;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays a file of the TrajectoryRecorder back. The file is mapped and scanned once for its keyframes,
+ * so seek() only has to decode from the keyframe before the wanted tick. The particles are restored
+ * into getStore(), which can be looked at headless, stepped on with new PhysicEngine(getStore())
+ * or shown in a TestParticleGUI with play().
+ *
+ * Usage: java newOne.TrajectoryReplayer file [speed] [from tick] [headless]
+ */
+public class TrajectoryReplayer {
+
+	private static final int XAREA = 600;			// GUI size
+	private static final int YAREA = 600;			// GUI size
+	private static final int FRAME_TIME = 17;	// Time between two frames in ms
+	private static final int PARTICLE_RADIUS = 20;  // Particle radius
+
+	private final MappedByteBuffer data;
+	private final long tickNanos;
+	private final double stepSize;
+	private final int keyframeInterval;
+	private final double positionQuant, speedQuant;
+	/**
+	 * Start of the first record
+	 */
+	private final int begin;
+
+	/*
+	 * Keyframes by tick, found while scanning
+	 */
+	private long[] keyTicks = new long[16];
+	private int[] keyOffsets = new int[16];
+	private int keyCount = 0;
+	private long firstTick = -1, lastTick = -1;
+	private final InputTrace input = new InputTrace();
+
+	private final ParticleStore store = new ParticleStore(32);
+	private long tick = -1;
+
+	public TrajectoryReplayer(File file) throws IOException {
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			data = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+		} finally {
+			// the mapping stays valid
+			in.close();
+		}
+		if (data.getInt() != TrajectoryRecorder.MAGIC)
+			throw new IOException(file + " is no blob recording");
+		short version = data.getShort();
+		if (version != TrajectoryRecorder.VERSION)
+			throw new IOException(file + " has version " + version);
+		tickNanos = data.getLong();
+		stepSize = data.getDouble();
+		keyframeInterval = data.getInt();
+		positionQuant = data.getDouble();
+		speedQuant = data.getDouble();
+		begin = data.position();
+		scan();
+		if (keyCount > 0)
+			seek(firstTick);
+	}
+
+	/**
+	 * Finds keyframes and inputs, skips the deltas
+	 */
+	private void scan() throws IOException {
+		data.position(begin);
+		while (data.hasRemaining()) {
+			int offset = data.position();
+			byte type = data.get();
+			long t = data.getLong();
+			if (type == TrajectoryRecorder.INPUT) {
+				InputTrace.Action action = InputTrace.Action.values()[data.get()];
+				int x = data.getInt();
+				int y = data.getInt();
+				input.add(t, action, x, y, data.get() != 0);
+				continue;
+			}
+			int n = data.getInt();
+			if (type == TrajectoryRecorder.KEYFRAME) {
+				if (keyCount == keyTicks.length) {
+					keyTicks = Arrays.copyOf(keyTicks, 2 * keyCount);
+					keyOffsets = Arrays.copyOf(keyOffsets, 2 * keyCount);
+				}
+				keyTicks[keyCount] = t;
+				keyOffsets[keyCount++] = offset;
+				data.position(data.position() + n * (4 * 8 + 3));
+			}
+			else if (type == TrajectoryRecorder.DELTA) {
+				for (int i = 0; i < 4 * n; i++)
+					TrajectoryRecorder.getVarint(data);
+				for (long l = TrajectoryRecorder.getVarint(data); l > 0; l--)
+					TrajectoryRecorder.getVarint(data);
+			}
+			else
+				throw new IOException("broken record at " + offset);
+			if (firstTick < 0)
+				firstTick = t;
+			lastTick = t;
+		}
+	}
+
+	/**
+	 * Restores the particles of the tick, or of the last recorded tick before it
+	 */
+	public void seek(long target) {
+		int k = Arrays.binarySearch(keyTicks, 0, keyCount, target);
+		if (k < 0)
+			k = Math.max(0, -k - 2);
+		data.position(keyOffsets[k]);
+		next();
+		while (tick < target && peekTick() <= target && next());
+	}
+
+	/**
+	 * Tick of the next particle record, Long.MAX_VALUE at the end
+	 */
+	private long peekTick() {
+		int p = data.position();
+		long t = Long.MAX_VALUE;
+		while (data.hasRemaining()) {
+			byte type = data.get();
+			if (type != TrajectoryRecorder.INPUT) {
+				t = data.getLong();
+				break;
+			}
+			data.position(data.position() + 8 + 1 + 4 + 4 + 1);
+		}
+		data.position(p);
+		return t;
+	}
+
+	/**
+	 * Restores the next recorded tick
+	 * @return false at the end of the recording
+	 */
+	public boolean next() {
+		while (data.hasRemaining()) {
+			byte type = data.get();
+			long t = data.getLong();
+			if (type == TrajectoryRecorder.INPUT) {
+				data.position(data.position() + 1 + 4 + 4 + 1);
+				continue;
+			}
+			int n = data.getInt();
+			if (type == TrajectoryRecorder.KEYFRAME)
+				readKeyframe(n);
+			else
+				readDelta(n);
+			tick = t;
+			store.moved();
+			return true;
+		}
+		return false;
+	}
+
+	private void readKeyframe(int n) {
+		store.clear();
+		for (int i = 0; i < n; i++) {
+			store.add(data.getDouble(), data.getDouble());
+			store.vx[i] = data.getDouble();
+			store.vy[i] = data.getDouble();
+			store.kind[i] = data.get();
+			store.choice[i] = data.get();
+			store.setLocked(i, data.get() != 0);
+		}
+	}
+
+	private void readDelta(int n) {
+		double[] x = store.x, y = store.y, vx = store.vx, vy = store.vy;
+		for (int i = 0; i < n; i++) {
+			// same arithmetic as the recorder, so both have exactly the same values
+			x[i] += TrajectoryRecorder.getVarint(data) * positionQuant;
+			y[i] += TrajectoryRecorder.getVarint(data) * positionQuant;
+			vx[i] += TrajectoryRecorder.getVarint(data) * speedQuant;
+			vy[i] += TrajectoryRecorder.getVarint(data) * speedQuant;
+			store.setLocked(i, false);
+		}
+		for (long l = TrajectoryRecorder.getVarint(data); l > 0; l--)
+			store.setLocked((int) TrajectoryRecorder.getVarint(data), true);
+	}
+
+	/**
+	 * Publishes the recording from the current tick on until its end. One tick takes tickNanos / speed,
+	 * faster than real time whole ticks are skipped. Blocks, so run it on its own thread
+	 */
+	public void play(SnapshotExchange exchange, double speed) {
+		BlobSnapshot state = new BlobSnapshot();
+		state.reset(store, tick);
+		exchange.publish(state);
+		long period = getPeriod(speed);
+		double perPublish = Math.max(1, speed);
+		double target = tick;
+		long next = System.nanoTime();
+		while (tick < lastTick) {
+			next += period;
+			LockSupport.parkNanos(next - System.nanoTime());
+			target += perPublish;
+			int n = store.size();
+			while (tick < target && next());
+			if (store.size() != n)
+				state.reset(store, tick);
+			else
+				state.capture(store, tick);
+			exchange.publish(state);
+		}
+	}
+
+	/**
+	 * @return real time between two snapshots of play()
+	 */
+	public long getPeriod(double speed) {
+		return speed < 1 ? (long) (tickNanos / speed) : tickNanos;
+	}
+
+	public ParticleStore getStore() {
+		return store;
+	}
+
+	/**
+	 * @return tick of the particles in the store
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+	public long getFirstTick() {
+		return firstTick;
+	}
+
+	public long getLastTick() {
+		return lastTick;
+	}
+
+	public int getKeyframes() {
+		return keyCount;
+	}
+
+	/**
+	 * @return ticks between two keyframes, at most this many deltas are decoded by seek()
+	 */
+	public int getKeyframeInterval() {
+		return keyframeInterval;
+	}
+
+	/**
+	 * @return the recorded inputs, e.g. for a HeadlessRunner
+	 */
+	public InputTrace getInput() {
+		return input;
+	}
+
+	public long getTickNanos() {
+		return tickNanos;
+	}
+
+	public double getStepSize() {
+		return stepSize;
+	}
+
+	public String toString() {
+		return String.format("ticks %d-%d, %d keyframes, %d inputs, %d bytes", firstTick, lastTick, keyCount, input.size(), data.capacity());
+	}
+
+	public static void main(String[] args) throws IOException {
+		TrajectoryReplayer replayer = new TrajectoryReplayer(new File(args[0]));
+		double speed = args.length > 1 ? Double.parseDouble(args[1]) : 1;
+		long from = args.length > 2 ? Long.parseLong(args[2]) : replayer.getFirstTick();
+		boolean headless = args.length > 3 && args[3].equals("headless");
+		System.out.println(replayer);
+		replayer.seek(from);
+		if (headless) {
+			long t0 = System.nanoTime();
+			long ticks = 0;
+			while (replayer.next())
+				ticks++;
+			System.out.println(String.format("%d ticks decoded in %.1f ms", ticks, (System.nanoTime() - t0) / 1e6));
+			return;
+		}
+		// the window only needs a PMgnt for its events, it draws the snapshots of the recording
+		PMgnt pm = new PMgnt(replayer.getStore().size(), 100, 100, PARTICLE_RADIUS / 2);
+		TestParticleGUI gui = new TestParticleGUI(pm, PARTICLE_RADIUS, XAREA, YAREA);
+		gui.setVisible(true);
+		SnapshotExchange exchange = new SnapshotExchange();
+		gui.attach(exchange, replayer.getPeriod(speed), FRAME_TIME);
+		replayer.play(exchange, speed);
+	}
+}
@@ -0,0 +1,64 @@
+package newOne;
+
+/**
+ * Velocity Verlet (kick - drift - kick). The acceleration at the end of a step is kept for the next one,
+ * so a step costs one force evaluation as long as nobody moved the particles in between.
+ * The damping depends on the speed, it is computed with the half step speed.
+ */
+public class VerletIntegrator implements Integrator {
+
+	private double[] acc, half, last;
+	private int lastN = -1;
+
+	public void step(PhysicEngine engine, ParticleStore store, double[] vars, double[] next, int N, double stepSize) {
+		int n = 4 * N;
+		if (acc == null || acc.length < n) {
+			acc = new double[n];
+			half = new double[n];
+			last = new double[n];
+			lastN = -1;
+		}
+		if (!sameState(vars, N)) {
+			engine.evaluate(vars, acc, N);
+		}
+		// kick and drift
+		for (int i = 0; i < N; i++) {
+			double vx = vars[4*i + 2] + acc[4*i + 2] * stepSize / 2;
+			double vy = vars[4*i + 3] + acc[4*i + 3] * stepSize / 2;
+			half[4*i] = vars[4*i] + vx * stepSize;
+			half[4*i + 1] = vars[4*i + 1] + vy * stepSize;
+			half[4*i + 2] = vx;
+			half[4*i + 3] = vy;
+		}
+		engine.evaluate(half, acc, N);
+		// kick
+		boolean locked = false;
+		for (int i = 0; i < N; i++) {
+			if (store.isLocked(i)) {
+				System.arraycopy(vars, 4*i, next, 4*i, 4);
+				locked = true;
+				continue;
+			}
+			next[4*i] = half[4*i];
+			next[4*i + 1] = half[4*i + 1];
+			next[4*i + 2] = half[4*i + 2] + acc[4*i + 2] * stepSize / 2;
+			next[4*i + 3] = half[4*i + 3] + acc[4*i + 3] * stepSize / 2;
+		}
+		System.arraycopy(next, 0, last, 0, n);
+		// acc was computed with the locked particles moved along, it does not belong to next
+		lastN = locked ? -1 : N;
+	}
+
+	/**
+	 * @return true if vars is the result of the last step, so acc still belongs to it
+	 */
+	private boolean sameState(double[] vars, int N) {
+		if (lastN != N)
+			return false;
+		for (int i = 0; i < 4 * N; i++) {
+			if (vars[i] != last[i])
+				return false;
+		}
+		return true;
+	}
+}
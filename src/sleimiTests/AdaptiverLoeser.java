@@ -0,0 +1,74 @@
+package sleimiTests;
+import static org.junit.Assert.*;
+
+import com.myphysicslab.simlab.DormandPrince45;
+import com.myphysicslab.simlab.RungeKutta;
+
+import org.junit.Test;
+
+
+public class AdaptiverLoeser {
+
+	/** Ruhige Feder mit hoechstens einem Schritt pro Bild, steife Feder genau wo RungeKutta explodiert, Parameter wirken sofort **/
+	@Test
+	public void test() {
+		// Test vorbereiten
+		final double FRAME = 0.05;			// Zeitschritt pro Bild
+		final int FRAMES = 400;				// 20 Sekunden
+		Feder ruhig = new Feder(1);
+		Feder ruhigRK = new Feder(1);
+		Feder steif = new Feder(10000);
+		Feder steifRK = new Feder(10000);
+		Feder gehalten = new Feder(1);
+		gehalten.calc[0] = false;
+		DormandPrince45 dp = new DormandPrince45(ruhig);
+		DormandPrince45 dpSteif = new DormandPrince45(steif);
+		DormandPrince45 dpGehalten = new DormandPrince45(gehalten);
+		RungeKutta rk = new RungeKutta(ruhigRK);
+		RungeKutta rkSteif = new RungeKutta(steifRK);
+		Feder entspannt = new Feder(1);
+		DormandPrince45 dpEntspannt = new DormandPrince45(entspannt);
+
+		// Test aufruf
+		double fehler = 0, fehlerSteif = 0;
+		for (int i = 0; i < FRAMES; i++) {
+			dp.step(FRAME);
+			rk.step(FRAME);
+			dpSteif.step(FRAME);
+			rkSteif.step(FRAME);
+			dpGehalten.step(FRAME);
+			fehler = Math.max(fehler, ruhig.fehler());
+			fehlerSteif = Math.max(fehlerSteif, steif.fehler());
+		}
+		long auswertungen = ruhig.evaluations;
+		// von aussen verschoben, wie beim Ziehen mit der Maus
+		ruhig.vars[0] = 2;
+		ruhig.vars[1] = 0;
+		ruhig.vars[2] = 0;
+		for (int i = 0; i < FRAMES; i++) {
+			dp.step(FRAME);
+		}
+		// Feder per Regler ausgehaengt, danach darf sich die Geschwindigkeit nicht mehr aendern
+		for (int i = 0; i < 10; i++)
+			dpEntspannt.step(FRAME);
+		entspannt.k = 0;
+		dpEntspannt.reset();
+		dpEntspannt.step(FRAME);
+		double v = entspannt.vars[1];
+		for (int i = 0; i < 10; i++)
+			dpEntspannt.step(FRAME);
+
+		// Aufruf auswerten
+		System.out.println(dp + " / RungeKutta evaluations=" + ruhigRK.evaluations);
+		assertTrue(fehler < 1e-4);
+		assertTrue(auswertungen <= 6 * FRAMES + 1);	// hoechstens ein Schritt pro Bild
+		assertTrue(fehlerSteif < 1e-2);
+		assertFalse(steifRK.fehler() < 1e-2);
+		assertEquals(1, gehalten.vars[0], 0);
+		assertEquals(-FRAMES * FRAME, gehalten.vars[1], 1e-9);
+		assertEquals(2, dp.getRestarts());
+		assertEquals(2 * Math.cos(FRAMES * FRAME), ruhig.vars[0], 1e-3);
+		assertEquals(v, entspannt.vars[1], 0);
+		assertTrue(v != 0);
+	}
+}
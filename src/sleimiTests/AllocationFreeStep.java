@@ -0,0 +1,54 @@
+package sleimiTests;
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+
+import newOne.PMgnt;
+import newOne.PhysicEngine;
+
+import org.junit.Test;
+
+
+public class AllocationFreeStep {
+
+	/** Ein eingeschwungener step() darf keinen Speicher mehr anfordern **/
+	@Test
+	public void test() {
+		// Test vorbereiten
+		final int XAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel
+		final int YAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel 
+		
+		final int PARTICLES = 20;			// Amount of Particles
+		final int PARTICLE_RADIUS = 20;  	// Particle radius
+		
+		PMgnt pm = new PMgnt(PARTICLES,XAREA_PART_MGNT,YAREA_PART_MGNT,PARTICLE_RADIUS/2);
+		PhysicEngine pe = new PhysicEngine(pm.particlesystem);
+		
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assertTrue(bean.isThreadAllocatedMemorySupported());
+		bean.setThreadAllocatedMemoryEnabled(true);
+		long id = Thread.currentThread().getId();
+		
+		// Puffer anlegen lassen und aufwaermen
+		for(int i = 0; i < 2000; i++){
+			pe.step(0.05);
+			pe.modifyObjects();
+		}
+		
+		// Kosten der Messung selbst
+		long before = bean.getThreadAllocatedBytes(id);
+		long overhead = bean.getThreadAllocatedBytes(id) - before;
+		
+		// Test aufruf
+		before = bean.getThreadAllocatedBytes(id);
+		for(int i = 0; i < 1000; i++){
+			pe.step(0.05);
+			pe.modifyObjects();
+		}
+		long allocated = bean.getThreadAllocatedBytes(id) - before - overhead;
+		
+		// Aufruf auswerten
+		assertEquals(0, allocated);
+	}
+
+}
@@ -0,0 +1,80 @@
+package sleimiTests;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import newOne.PMgnt;
+import newOne.PhysicEngine;
+import newOne.SimulationLoop;
+
+import org.junit.Test;
+
+
+public class ArbeiterBeenden {
+
+	/** Nach dem Anhalten der Schleife oder der Arbeiter laeuft kein Arbeiter-Thread mehr, auch nicht nach vielen Neustarts **/
+	@Test
+	public void test() throws InterruptedException {
+		// Test vorbereiten
+		final int XAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel
+		final int YAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel
+
+		final int PARTICLES = 50;			// Amount of Particles
+		final int PARTICLE_RADIUS = 20;  	// Particle radius
+		final int RESTARTS = 200;			// Neustarts der Arbeiter
+
+		PMgnt pm = new PMgnt(PARTICLES,XAREA_PART_MGNT,YAREA_PART_MGNT,PARTICLE_RADIUS/2, PMgnt.Layout.CLUMPED, 7);
+		PhysicEngine pe = new PhysicEngine(pm.particlesystem);
+		pe.setThreads(4);
+		pe.setParallelThreshold(0);
+
+		// Test aufruf
+		// direkt nach einer Auswertung anhalten, die Arbeiter sind dann meist zwischen den Schranken
+		for (int i = 0; i < RESTARTS; i++) {
+			pe.step(0.05);
+			pe.modifyObjects();
+			pe.stopWorkers();
+		}
+		boolean stoppedEngine = workersEnd();
+
+		SimulationLoop loop = new SimulationLoop(pe, pm, null, 1, 0.05);
+		loop.setSleep(0, 0);
+		for (int i = 0; i < 10; i++)
+			loop.tickNow();
+		boolean startedByTick = workers().size() == 3;
+		loop.stop();
+		boolean stoppedTicked = workersEnd();
+
+		loop.start();
+		while (loop.getTicks() < 20)
+			Thread.sleep(1);
+		loop.stop();
+		boolean stoppedThread = workersEnd();
+
+		// Aufruf auswerten
+		assertTrue(stoppedEngine);
+		assertTrue(startedByTick);
+		assertTrue(stoppedTicked);
+		assertTrue(stoppedThread);
+	}
+
+	private static List<Thread> workers() {
+		List<Thread> list = new ArrayList<Thread>();
+		for (Thread t : Thread.getAllStackTraces().keySet()) {
+			if (t.getName().startsWith("PhysicEngine worker") && t.isAlive())
+				list.add(t);
+		}
+		return list;
+	}
+
+	/** wartet auf alle Arbeiter, false wenn einer nach einer Sekunde noch laeuft **/
+	private static boolean workersEnd() throws InterruptedException {
+		for (Thread t : workers()) {
+			t.join(1000);
+			if (t.isAlive())
+				return false;
+		}
+		return true;
+	}
+}
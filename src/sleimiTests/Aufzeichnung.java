@@ -0,0 +1,93 @@
+package sleimiTests;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import newOne.HeadlessRunner;
+import newOne.InputTrace;
+import newOne.PMgnt;
+import newOne.ParticleStore;
+import newOne.TrajectoryRecorder;
+import newOne.TrajectoryReplayer;
+
+import org.junit.Test;
+
+
+public class Aufzeichnung {
+
+	/** Ein aufgezeichneter Lauf kann an jeder Stelle wieder angeschaut werden, bis auf die Quantisierung genau **/
+	@Test
+	public void test() throws IOException {
+		// Test vorbereiten
+		final int XAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel
+		final int YAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel 
+		
+		final int PARTICLES = 20;			// Amount of Particles
+		final int PARTICLE_RADIUS = 20;  	// Particle radius
+		final int TICKS = 500;
+		final int SEEK = 237;
+		final int KEYFRAMES = 50;
+		final double STEPSIZE = 0.05;
+		
+		PMgnt pm = new PMgnt(PARTICLES,XAREA_PART_MGNT,YAREA_PART_MGNT,PARTICLE_RADIUS/2, PMgnt.Layout.CLUMPED, 4);
+		HeadlessRunner runner = new HeadlessRunner(pm, InputTrace.random(4, TICKS, 600), STEPSIZE);
+		runner.getEvents().setSeed(4);
+		File file = File.createTempFile("blob", ".rec");
+		file.deleteOnExit();
+		TrajectoryRecorder recorder = new TrajectoryRecorder(file, runner.getLoop().getTickNanos(), STEPSIZE, KEYFRAMES);
+		runner.getLoop().setRecorder(recorder);
+		
+		// Test aufruf
+		runner.run(SEEK);
+		int n = pm.size();
+		double[] x = new double[n], y = new double[n];
+		for (int i = 0; i < n; i++) {
+			x[i] = pm.store.x[i];
+			y[i] = pm.store.y[i];
+		}
+		runner.run(TICKS - SEEK);
+		recorder.close();
+		TrajectoryReplayer replayer = new TrajectoryReplayer(file);
+		replayer.seek(SEEK);
+		ParticleStore replayed = replayer.getStore();
+		// die aufgezeichneten Eingaben, mit Wachsen und Schrumpfen, spielen die Sitzung nach
+		int groesse = 0;
+		for (InputTrace.Entry e : replayer.getInput().getEntries())
+			if (e.action == InputTrace.Action.INSERT || e.action == InputTrace.Action.REMOVE)
+				groesse++;
+		PMgnt nachgespielt = new PMgnt(PARTICLES,XAREA_PART_MGNT,YAREA_PART_MGNT,PARTICLE_RADIUS/2, PMgnt.Layout.CLUMPED, 4);
+		HeadlessRunner nochmal = new HeadlessRunner(nachgespielt, replayer.getInput(), STEPSIZE);
+		nochmal.getEvents().setSeed(4);
+		nochmal.run(TICKS);
+		
+		// Aufruf auswerten
+		System.out.println(recorder);
+		assertEquals(0, replayer.getFirstTick());
+		assertEquals(TICKS, replayer.getLastTick());
+		assertTrue(groesse > 0);
+		assertEquals(runner.getEvents().getApplied() + groesse, replayer.getInput().size());
+		assertEquals(pm.size(), nachgespielt.size());
+		for (int i = 0; i < pm.size(); i++) {
+			assertEquals(pm.store.x[i], nachgespielt.store.x[i], 0);
+			assertEquals(pm.store.y[i], nachgespielt.store.y[i], 0);
+		}
+		assertTrue(replayer.getKeyframes() >= TICKS / KEYFRAMES);
+		assertEquals(SEEK, replayer.getTick());
+		assertEquals(n, replayed.size());
+		for (int i = 0; i < n; i++) {
+			assertEquals(x[i], replayed.x[i], TrajectoryRecorder.POSITION_QUANT);
+			assertEquals(y[i], replayed.y[i], TrajectoryRecorder.POSITION_QUANT);
+		}
+		replayer.seek(10);
+		assertEquals(10, replayer.getTick());
+		assertTrue(replayer.next());
+		assertEquals(11, replayer.getTick());
+		replayer.seek(TICKS);
+		assertFalse(replayer.next());
+		for (int i = 0; i < pm.size(); i++) {
+			assertEquals(pm.store.x[i], replayed.x[i], TrajectoryRecorder.POSITION_QUANT);
+		}
+	}
+
+}
@@ -1,7 +1,8 @@
 package sleimiTests;
 import static org.junit.Assert.*;
 
-import newOne.Events;
+import newOne.HeadlessRunner;
+import newOne.InputTrace;
 import newOne.PMgnt;
 
 import org.junit.Test;
@@ -9,32 +10,43 @@ import org.junit.Test;
 
 public class Automation {
 
-	
+	/** 10 Sekunden Spielen mit dem Blob laufen ohne Fenster durch, so schnell es geht und mit gleichem Seed gleich **/
 	@Test
 	public void test() {
-		boolean test = false;
 		// Test vorbereiten
 		final int XAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel
 		final int YAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel 
 		
 		final int PARTICLES = 20;			// Amount of Particles
 		final int PARTICLE_RADIUS = 20;  	// Particle radius
+		final int TICKS = 10000 / 60;		// 10 Sekunden bei 60 ms pro Tick
+		final double STEPSIZE = 0.05;
 		
-    	PMgnt pm = new PMgnt(PARTICLES,XAREA_PART_MGNT,YAREA_PART_MGNT,PARTICLE_RADIUS/2);
-    	PMgnt pm_unchanged1 = new PMgnt(PARTICLES,XAREA_PART_MGNT,YAREA_PART_MGNT,PARTICLE_RADIUS/2);
-    	
-		Events event = new Events(pm,null);
-		long autoTime = System.currentTimeMillis()+10000; // 1 Minute
+		PMgnt pm = new PMgnt(PARTICLES,XAREA_PART_MGNT,YAREA_PART_MGNT,PARTICLE_RADIUS/2, PMgnt.Layout.CLUMPED, 3);
+		PMgnt pm_same = new PMgnt(PARTICLES,XAREA_PART_MGNT,YAREA_PART_MGNT,PARTICLE_RADIUS/2, PMgnt.Layout.CLUMPED, 3);
+		double x_before = pm.store.x[0];
+		HeadlessRunner runner = new HeadlessRunner(pm, InputTrace.random(3, TICKS, 600), STEPSIZE);
+		HeadlessRunner same = new HeadlessRunner(pm_same, InputTrace.random(3, TICKS, 600), STEPSIZE);
+		runner.getEvents().setSeed(3);
+		same.getEvents().setSeed(3);
 		
-		while(System.currentTimeMillis() != autoTime);
+		// Test aufruf
+		long t0 = System.currentTimeMillis();
+		runner.run(TICKS);
+		long time = System.currentTimeMillis() - t0;
+		same.run(TICKS);
 
 		// Aufruf auswerten
-		if(pm.particlesystem == pm_unchanged1.particlesystem){
-			test = false;
-		}else{
-			test = true;
+		System.out.println(runner);
+		assertEquals(TICKS, runner.getTicks());
+		assertTrue(runner.getActions() > 0);
+		assertTrue(time < 10000);
+		assertTrue(x_before != pm.store.x[0]);
+		assertEquals(pm.size(), pm_same.size());
+		for (int i = 0; i < pm.size(); i++) {
+			assertEquals(pm.store.x[i], pm_same.store.x[i], 0);
+			assertEquals(pm.store.y[i], pm_same.store.y[i], 0);
 		}
-		assertTrue(test);
 	}
 
 }
@@ -0,0 +1,58 @@
+package sleimiTests;
+import static org.junit.Assert.*;
+
+import newOne.PMgnt;
+import newOne.PhysicEngine;
+
+import org.junit.Test;
+
+
+public class BarnesHut {
+
+	/** Barnes-Hut Kraefte weichen hoechstens um THETA^2 / 3 von allen Paaren ab, THETA -> 0 ist exakt, gesperrte Partikel bleiben stehen **/
+	@Test
+	public void test() {
+		// Test vorbereiten
+		final int XAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel
+		final int YAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel
+
+		final int PARTICLES = 200;			// Amount of Particles
+		final int PARTICLE_RADIUS = 20;  	// Particle radius
+		final double[] THETAS = {0.25, 0.5, 1.0};
+
+		PMgnt pm = new PMgnt(PARTICLES, XAREA_PART_MGNT, YAREA_PART_MGNT, PARTICLE_RADIUS / 2, PMgnt.Layout.CLUMPED, 7);
+		PhysicEngine pe = new PhysicEngine(pm.particlesystem);
+		pe.setThreads(1);
+
+		// Test aufruf
+		double[] fehler = new double[THETAS.length];
+		for (int k = 0; k < THETAS.length; k++) {
+			pe.setTHETA(THETAS[k]);
+			fehler[k] = pe.getForceError()[0];
+		}
+		pe.setTHETA(1e-9);
+		double[] exakt = pe.getForceError();
+		// gesperrtes Partikel, wie beim Festhalten mit der Maus
+		pe.setTHETA(0.5);
+		pm.store.setLocked(0, true);
+		double x0 = pm.store.x[0], y0 = pm.store.y[0];
+		double x1 = pm.store.x[1], y1 = pm.store.y[1];
+		for (int i = 0; i < 50; i++) {
+			pe.step(0.05);
+			pe.modifyObjects();
+		}
+
+		// Aufruf auswerten
+		for (int k = 0; k < THETAS.length; k++) {
+			assertTrue(fehler[k] > 0);
+			assertTrue(fehler[k] < THETAS[k] * THETAS[k] / 3);
+			if (k > 0)
+				assertTrue(fehler[k] > fehler[k - 1]);
+		}
+		assertEquals(0, exakt[0], 1e-12);
+		assertEquals(0, exakt[1], 1e-12);
+		assertEquals(x0, pm.store.x[0], 0);
+		assertEquals(y0, pm.store.y[0], 0);
+		assertTrue(x1 != pm.store.x[1] || y1 != pm.store.y[1]);
+	}
+}
@@ -0,0 +1,78 @@
+package sleimiTests;
+import static org.junit.Assert.*;
+
+import newOne.Events;
+import newOne.PMgnt;
+
+import org.junit.Test;
+
+
+public class Eingabewarteschlange {
+
+	/** Ein Ziehen wird pro Tick zu einem Schritt zusammengefasst und von mehreren Threads geht kein Event verloren **/
+	@Test
+	public void test() throws InterruptedException {
+		// Test vorbereiten
+		final int XAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel
+		final int YAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel
+
+		final int PARTICLES = 20;			// Amount of Particles
+		final int PARTICLE_RADIUS = 20;  	// Particle radius
+		final int DRAGS = 1000;				// Mausereignisse eines Ziehens
+		final int PRODUCERS = 4;
+		final int POKES = 10000;			// Pokes pro Thread
+
+		PMgnt pm = new PMgnt(PARTICLES,XAREA_PART_MGNT,YAREA_PART_MGNT,PARTICLE_RADIUS/2, PMgnt.Layout.CLUMPED, 3);
+		PMgnt pm_queued = new PMgnt(PARTICLES,XAREA_PART_MGNT,YAREA_PART_MGNT,PARTICLE_RADIUS/2, PMgnt.Layout.CLUMPED, 3);
+		Events event = new Events(pm,null);
+		final Events event_queued = new Events(pm_queued,null);
+		event_queued.setQueued(true);
+
+		double x_before = pm_queued.store.x[0];
+
+		// Test aufruf
+		for(int i = 0; i < DRAGS; i++){
+			event.move(250+i, 250+i/2, i==DRAGS-1);
+			event_queued.move(250+i, 250+i/2, i==DRAGS-1);
+		}
+		// bis zum naechsten Tick bleibt der Schleimi wo er ist
+		assertEquals(x_before, pm_queued.store.x[0], 0);
+		int applied = event_queued.drain();
+
+		// Aufruf auswerten
+		// erster Schritt, letzter Zwischenschritt und Loslassen
+		assertEquals(3, applied);
+		assertEquals(DRAGS - 3, event_queued.getCoalesced());
+		for (int i = 0; i < PARTICLES; i++) {
+			assertEquals(pm.store.x[i], pm_queued.store.x[i], 1e-9);
+			assertEquals(pm.store.y[i], pm_queued.store.y[i], 1e-9);
+		}
+
+		// mehrere Threads schreiben gleichzeitig in die Warteschlange
+		Thread[] producers = new Thread[PRODUCERS];
+		for (int t = 0; t < PRODUCERS; t++) {
+			producers[t] = new Thread() {
+				public void run() {
+					for (int i = 0; i < POKES; i++) {
+						event_queued.poke(i, i);
+					}
+				}
+			};
+			producers[t].start();
+		}
+		long done = 0;
+		boolean running = true;
+		while (running || done < PRODUCERS * POKES) {
+			running = false;
+			for (Thread t : producers) {
+				running |= t.isAlive();
+			}
+			int n = event_queued.drain();
+			assertTrue(n <= Events.MAX_COMMANDS_PER_TICK);
+			done += n;
+			if (!running && n == 0) break;
+		}
+		assertEquals(PRODUCERS * POKES, done);
+		assertEquals(PRODUCERS * POKES + 3, event_queued.getApplied());
+	}
+}
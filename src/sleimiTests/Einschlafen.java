@@ -0,0 +1,47 @@
+package sleimiTests;
+import static org.junit.Assert.*;
+
+import newOne.Events;
+import newOne.PMgnt;
+import newOne.PhysicEngine;
+import newOne.SimulationLoop;
+
+import org.junit.Test;
+
+
+public class Einschlafen {
+
+	/** Ein ruhiger Schleimi wird nicht mehr gerechnet und wacht bei jedem Event sofort auf **/
+	@Test
+	public void test() throws InterruptedException {
+		// Test vorbereiten
+		final int XAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel
+		final int YAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel 
+		
+		final int PARTICLES = 20;			// Amount of Particles
+		final int PARTICLE_RADIUS = 20;  	// Particle radius
+		
+		PMgnt pm = new PMgnt(PARTICLES,XAREA_PART_MGNT,YAREA_PART_MGNT,PARTICLE_RADIUS/2);
+		Events event = new Events(pm,null);
+		SimulationLoop loop = new SimulationLoop(new PhysicEngine(pm.particlesystem), pm.store, null, 1, 0.05);
+		// jede Geschwindigkeit gilt als ruhig, also schlaeft er nach dem ersten Tick
+		loop.setSleep(1e9, 0);
+		loop.start();
+		Thread.sleep(200);
+		
+		assertTrue(loop.isSleeping());
+		long ticks = loop.getTicks();
+		Thread.sleep(100);
+		assertEquals(ticks, loop.getTicks());
+		assertTrue(loop.getSleptTicks() > 0);
+		
+		// Test aufruf
+		event.poke(250, 250);
+		Thread.sleep(100);
+		loop.stop();
+		
+		// Aufruf auswerten
+		assertTrue(loop.getTicks() > ticks);
+	}
+
+}
@@ -0,0 +1,39 @@
+package sleimiTests;
+
+import com.myphysicslab.simlab.DiffEq;
+
+/** Ungedaempfte Feder x'' = -k x fuer die Loeser-Tests, vars: Ort, Geschwindigkeit, Zeit **/
+class Feder implements DiffEq {
+	double[] vars = {1, 0, 0};
+	boolean[] calc = {true, true, true};
+	double k;
+	long evaluations = 0;
+
+	Feder(double k) {
+		this.k = k;
+	}
+
+	public double[] getVars() {
+		return vars;
+	}
+
+	public boolean[] getCalc() {
+		return calc;
+	}
+
+	public void evaluate(double[] x, double[] change) {
+		evaluations++;
+		change[0] = x[1];
+		change[1] = -k * x[0];
+		change[2] = 1;
+	}
+
+	double energie() {
+		return 0.5 * vars[1] * vars[1] + 0.5 * k * vars[0] * vars[0];
+	}
+
+	/** Abstand zur exakten Loesung cos(sqrt(k) t), solange niemand die Feder verschoben hat **/
+	double fehler() {
+		return Math.abs(vars[0] - Math.cos(Math.sqrt(k) * vars[2]));
+	}
+}
@@ -0,0 +1,57 @@
+package sleimiTests;
+import static org.junit.Assert.*;
+
+import newOne.PMgnt;
+import newOne.ParticleStore;
+
+import org.junit.Test;
+
+
+public class Initialisierung {
+
+	/** Gleicher Seed gibt den gleichen Schleimi, kein Partikel liegt auf einem anderen und grosse Schleimis sind schnell erzeugt **/
+	@Test
+	public void test() {
+		// Test vorbereiten
+		final int XAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel
+		final int YAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel
+
+		final int PARTICLES = 20;			// Amount of Particles
+		final int PARTICLE_RADIUS = 20;  	// Particle radius
+		final int BIG = 5000;				// Amount of Particles of a big blob
+
+		// Test aufruf
+		for (PMgnt.Layout layout : PMgnt.Layout.values()) {
+			PMgnt pm = new PMgnt(PARTICLES,XAREA_PART_MGNT,YAREA_PART_MGNT,PARTICLE_RADIUS/2, layout, 42);
+			PMgnt pm_same = new PMgnt(PARTICLES,XAREA_PART_MGNT,YAREA_PART_MGNT,PARTICLE_RADIUS/2, layout, 42);
+
+			// Aufruf auswerten
+			assertEquals(PARTICLES, pm.store.size());
+			assertEquals(2, pm.particlesystem[PARTICLES-2].getKind());
+			assertEquals(1, pm.particlesystem[PARTICLES-1].getKind());
+			for (int i = 0; i < PARTICLES; i++) {
+				assertEquals(pm.store.x[i], pm_same.store.x[i], 0);
+				assertEquals(pm.store.y[i], pm_same.store.y[i], 0);
+				assertEquals(pm.store.choice[i], pm_same.store.choice[i]);
+			}
+			assertMinDistance(pm.store, PARTICLE_RADIUS/4);
+		}
+
+		long start = System.nanoTime();
+		PMgnt big = new PMgnt(BIG,XAREA_PART_MGNT,YAREA_PART_MGNT,PARTICLE_RADIUS/2, PMgnt.Layout.CLUMPED, 7);
+		long time = System.nanoTime() - start;
+		assertEquals(BIG, big.store.size());
+		assertMinDistance(big.store, PARTICLE_RADIUS/4);
+		assertTrue("creating " + BIG + " particles took " + time / 1000000 + " ms", time < 1000000000L);
+	}
+
+	private void assertMinDistance(ParticleStore s, double distance) {
+		for (int i = 0; i < s.size(); i++) {
+			for (int j = i + 1; j < s.size(); j++) {
+				double dx = s.x[i] - s.x[j];
+				double dy = s.y[i] - s.y[j];
+				assertTrue(Math.sqrt(dx * dx + dy * dy) >= distance - 1e-9);
+			}
+		}
+	}
+}
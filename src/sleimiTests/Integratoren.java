@@ -0,0 +1,100 @@
+package sleimiTests;
+import static org.junit.Assert.*;
+
+import newOne.DormandPrinceIntegrator;
+import newOne.EulerIntegrator;
+import newOne.Integrator;
+import newOne.PMgnt;
+import newOne.PhysicEngine;
+import newOne.VerletIntegrator;
+
+import org.junit.Test;
+
+
+public class Integratoren {
+
+	static final double STEPSIZE = 0.01;
+	static final int STEPS = 2000;
+
+	/** Ungedaempfter Blob ueber STEPS Schritte, Partikel 0 wahlweise festgehalten wie mit der Maus **/
+	static class Lauf {
+		final PMgnt pm = new PMgnt(20, 100, 100, 10, PMgnt.Layout.CLUMPED, 5);
+		final PhysicEngine pe = new PhysicEngine(pm.particlesystem);
+		final double x0, y0;
+		double drift = 0;
+
+		/** @param integrator null fuer Runge-Kutta **/
+		Lauf(Integrator integrator, boolean gesperrt) {
+			if (integrator != null)
+				pe.setIntegrator(integrator);
+			pe.setThreads(1);
+			pe.setDAMPING(0);		// ohne Daempfung bleibt die Energie erhalten
+			pm.store.setLocked(0, gesperrt);
+			x0 = pm.store.x[0];
+			y0 = pm.store.y[0];
+			double e0 = pe.getEnergy();
+			for (int i = 0; i < STEPS; i++) {
+				pe.step(STEPSIZE);
+				pe.modifyObjects();
+				drift = Math.max(drift, Math.abs(pe.getEnergy() - e0) / e0);
+			}
+		}
+
+		/** der gesperrte Partikel steht noch am Anfang, die anderen sind anders gelaufen als mit Runge-Kutta **/
+		void pruefeWeg(Lauf rk) {
+			assertEquals(x0, pm.store.x[0], 0);
+			assertEquals(y0, pm.store.y[0], 0);
+			assertTrue(pm.store.x[1] != rk.pm.store.x[1] || pm.store.y[1] != rk.pm.store.y[1]);
+		}
+	}
+
+	/** Euler, Verlet und Dormand-Prince gegen Runge-Kutta: Auswertungen pro Schritt, Energiefehler, gesperrte Partikel bleiben stehen **/
+	@Test
+	public void test() {
+		// Test vorbereiten
+		DormandPrinceIntegrator dp = new DormandPrinceIntegrator();
+		// unerfuellbare Toleranz, nur die Begrenzung der Teilschritte beendet den Schritt
+		DormandPrinceIntegrator unerfuellbar = new DormandPrinceIntegrator();
+		unerfuellbar.setTolerance(0, 0);
+		PMgnt pmStreng = new PMgnt(20, 100, 100, 10, PMgnt.Layout.CLUMPED, 5);
+		PhysicEngine streng = new PhysicEngine(pmStreng.particlesystem);
+		streng.setIntegrator(unerfuellbar);
+		streng.setThreads(1);
+
+		// Test aufruf
+		Lauf rk = new Lauf(null, true);
+		Lauf rkFrei = new Lauf(null, false);
+		Lauf euler = new Lauf(new EulerIntegrator(), true);
+		Lauf verlet = new Lauf(new VerletIntegrator(), true);
+		// ohne gesperrte Partikel gilt die gemerkte Beschleunigung fuer den naechsten Schritt
+		Lauf verletFrei = new Lauf(new VerletIntegrator(), false);
+		Lauf dormandPrince = new Lauf(dp, true);
+		streng.step(STEPSIZE);
+		streng.modifyObjects();
+
+		// Aufruf auswerten
+		System.out.println("drift RK " + rk.drift + " Euler " + euler.drift + " Verlet " + verlet.drift + " DP " + dormandPrince.drift);
+		// symplektischer Euler: eine Auswertung pro Schritt, Energiefehler hoechstens 10 mal der von Runge-Kutta
+		euler.pruefeWeg(rk);
+		assertEquals(STEPS, euler.pe.getEvaluations());
+		assertTrue(euler.drift < 10 * rk.drift);
+		assertTrue(euler.drift < 0.2);
+
+		// Velocity Verlet: eine Auswertung pro Schritt, mit gesperrtem Partikel zwei, Energiefehler hoechstens 4 mal der von Runge-Kutta
+		verlet.pruefeWeg(rk);
+		assertEquals(STEPS + 1, verletFrei.pe.getEvaluations());
+		assertEquals(2 * STEPS, verlet.pe.getEvaluations());
+		assertEquals(4 * STEPS, rk.pe.getEvaluations());
+		assertTrue(verlet.drift < 4 * rk.drift);
+		assertTrue(verlet.drift < 0.05);
+		assertTrue(verletFrei.drift < 4 * rkFrei.drift);
+
+		// Dormand-Prince: Energiefehler ein Zehntel von Runge-Kutta, unerfuellbare Toleranz endet nach hoechstens 1000 Teilschritten
+		dormandPrince.pruefeWeg(rk);
+		assertTrue(dormandPrince.drift < rk.drift / 10);
+		assertTrue(dp.getSubsteps() >= STEPS);
+		assertEquals(1001, unerfuellbar.getSubsteps() + unerfuellbar.getRejected());
+		assertEquals(1, unerfuellbar.getSubsteps());
+		assertFalse(Double.isNaN(pmStreng.store.x[1]));
+	}
+}
@@ -0,0 +1,48 @@
+package sleimiTests;
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import newOne.SoundEngine;
+
+import org.junit.Test;
+
+
+public class Klangmischer {
+
+	/** Alle Sounds werden einmal dekodiert, es spielen nie mehr als MAX_VOICES gleichzeitig und danach ist Ruhe **/
+	@Test
+	public void test() {
+		// Test vorbereiten
+		final int SOUNDS = 17;				// mp3 Dateien in sounds/
+		final int PLAYS = 10;				// mehr als MAX_VOICES
+		final int FRAMES = 1024;
+
+		SoundEngine engine = new SoundEngine(new File("sounds"));
+		engine.load();
+		byte[] out = new byte[4 * FRAMES];
+
+		// Test aufruf
+		for (int i = 0; i < PLAYS; i++) {
+			engine.play(i % 2 == 0 ? "lol" : "nlol");
+		}
+		engine.play("gibtsnicht");
+		boolean first = engine.mix(out, FRAMES);
+		int voices = engine.getVoices();
+		int blocks = 1;
+		while (engine.mix(out, FRAMES)) {
+			blocks++;
+		}
+
+		// Aufruf auswerten
+		assertEquals(SOUNDS, engine.getClipCount());
+		assertTrue(first);
+		assertEquals(SoundEngine.MAX_VOICES, voices);
+		assertEquals(PLAYS, engine.getPlayed());
+		assertEquals(PLAYS - SoundEngine.MAX_VOICES, engine.getStolen());
+		assertEquals(1, engine.getDropped());
+		assertTrue(blocks > 1);
+		assertEquals(0, engine.getVoices());
+		assertFalse(engine.mix(out, FRAMES));
+	}
+}
@@ -0,0 +1,48 @@
+package sleimiTests;
+import static org.junit.Assert.*;
+
+import com.myphysicslab.simlab.DoublePendulum;
+import com.myphysicslab.simlab.Simulation;
+import com.myphysicslab.simlab.SimulationModel;
+import com.myphysicslab.simlab.SpringSim1;
+
+import org.junit.Test;
+
+
+public class KopfloseSimulation {
+
+	/** Simulationen ohne Fenster laufen auf mehreren Threads gleichzeitig und rechnen wie allein **/
+	@Test
+	public void test() throws Exception {
+		// Test vorbereiten
+		final int SCHRITTE = 2000;
+		final SimulationModel[] parallel = {new DoublePendulum(null), new DoublePendulum(null), new SpringSim1(null)};
+		SimulationModel[] allein = {new DoublePendulum(null), new SpringSim1(null)};
+		Thread[] threads = new Thread[parallel.length];
+		for (int t = 0; t < threads.length; t++) {
+			final SimulationModel sim = parallel[t];
+			threads[t] = new Thread() {
+				public void run() {
+					for (int i = 0; i < SCHRITTE; i++)
+						sim.step(0.01);
+				}
+			};
+		}
+
+		// Test aufruf
+		for (Thread t : threads)
+			t.start();
+		for (SimulationModel sim : allein)
+			for (int i = 0; i < SCHRITTE; i++)
+				sim.step(0.01);
+		for (Thread t : threads)
+			t.join();
+
+		// Aufruf auswerten
+		assertFalse(((Simulation) parallel[0]).hasView());
+		assertTrue(allein[0].getVars()[0] != Math.PI / 8);	// hat sich bewegt
+		assertArrayEquals(allein[0].getVars(), parallel[0].getVars(), 0);
+		assertArrayEquals(allein[0].getVars(), parallel[1].getVars(), 0);
+		assertArrayEquals(allein[1].getVars(), parallel[2].getVars(), 0);
+	}
+}
@@ -0,0 +1,28 @@
+package sleimiTests;
+import static org.junit.Assert.*;
+
+import newOne.Particle;
+import newOne.PhysicEngine;
+
+import org.junit.Test;
+
+
+public class LeeresSystem {
+
+	/** Eine PhysicEngine ohne Partikel laesst sich anlegen und rechnet nichts **/
+	@Test
+	public void test() {
+		// Test vorbereiten
+		PhysicEngine pe = new PhysicEngine(new Particle[0]);
+
+		// Test aufruf
+		for (int i = 0; i < 3; i++) {
+			pe.step(0.05);
+			pe.modifyObjects();
+		}
+
+		// Aufruf auswerten
+		assertEquals(0, pe.getEnergy(), 0);
+		assertEquals(0, pe.getMaxSpeed(), 0);
+	}
+}
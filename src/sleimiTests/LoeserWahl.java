@@ -0,0 +1,71 @@
+package sleimiTests;
+import static org.junit.Assert.*;
+
+import com.myphysicslab.simlab.DormandPrince45;
+import com.myphysicslab.simlab.DoublePendulum;
+import com.myphysicslab.simlab.DoubleSpringSim;
+import com.myphysicslab.simlab.ImplicitMidpoint;
+import com.myphysicslab.simlab.Molecule3;
+import com.myphysicslab.simlab.PendulumSim;
+import com.myphysicslab.simlab.RungeKutta;
+import com.myphysicslab.simlab.SimulationModel;
+import com.myphysicslab.simlab.Spring2DSim;
+import com.myphysicslab.simlab.SpringSim1;
+import com.myphysicslab.simlab.Verlet;
+
+import org.junit.Test;
+
+
+public class LoeserWahl {
+
+	/** Steife Feder, die ihre Struktur als STIFF angibt **/
+	static class SteifeFeder extends SimulationModel {
+		SteifeFeder() {
+			super(2);
+		}
+
+		protected int getStructure() {
+			return STIFF;
+		}
+
+		public void evaluate(double[] x, double[] change) {
+			change[0] = x[1];
+			change[1] = -10000 * x[0];
+		}
+
+		public void modifyObjects() {
+		}
+	}
+
+	/** AUTOMATIC waehlt den Loeser nach der angegebenen Struktur, eine andere Wahl gilt nur fuer die eine Simulation **/
+	@Test
+	public void test() {
+		// Test vorbereiten
+		SpringSim1 feder = new SpringSim1(null);
+		SpringSim1 andereFeder = new SpringSim1(null);
+
+		// Test aufruf
+		andereFeder.setSolverType(SimulationModel.RUNGE_KUTTA);
+		SpringSim1 neueFeder = new SpringSim1(null);
+
+		// Aufruf auswerten
+		// SEPARABLE
+		assertTrue(feder.getDiffEqSolver() instanceof Verlet);
+		assertTrue(new PendulumSim(null).getDiffEqSolver() instanceof Verlet);
+		assertTrue(new Spring2DSim(null).getDiffEqSolver() instanceof Verlet);
+		// VARYING
+		assertTrue(new DoublePendulum(null).getDiffEqSolver() instanceof DormandPrince45);
+		assertTrue(new Molecule3(null, 3).getDiffEqSolver() instanceof DormandPrince45);
+		// STIFF
+		assertTrue(new SteifeFeder().getDiffEqSolver() instanceof ImplicitMidpoint);
+		// GENERAL
+		assertTrue(new DoubleSpringSim(null, 2).getDiffEqSolver() instanceof RungeKutta);
+
+		assertEquals(SimulationModel.RUNGE_KUTTA, andereFeder.getSolverType());
+		assertTrue(andereFeder.getDiffEqSolver() instanceof RungeKutta);
+		assertEquals(SimulationModel.AUTOMATIC, neueFeder.getSolverType());
+		assertTrue(neueFeder.getDiffEqSolver() instanceof Verlet);
+		assertEquals(SimulationModel.AUTOMATIC, feder.getSolverType());
+		assertTrue(feder.getDiffEqSolver() instanceof Verlet);
+	}
+}
@@ -0,0 +1,80 @@
+package sleimiTests;
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import newOne.PMgnt;
+import newOne.PhysicEngine;
+
+import org.junit.Test;
+
+
+public class Nachbarzellen {
+
+	/** Das Gitter findet dieselben Nachbarn wie die Suche ueber alle Paare, auch genau an den Zellgrenzen **/
+	@Test
+	public void test() {
+		// Test vorbereiten
+		final int XAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel
+		final int YAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel
+
+		final int PARTICLES = 300;			// Amount of Particles
+		final int PARTICLE_RADIUS = 20;  	// Particle radius
+		final double CUTOFF = 150;
+
+		PMgnt pm = new PMgnt(PARTICLES, XAREA_PART_MGNT, YAREA_PART_MGNT, PARTICLE_RADIUS / 2, PMgnt.Layout.CLUMPED, 3);
+		PhysicEngine pe = new PhysicEngine(pm.particlesystem);
+		pe.setThreads(1);
+		pe.setGRAVITY(0.5);
+		Random rnd = new Random(3);
+		double[] x = new double[4 * PARTICLES];
+		for (int i = 0; i < PARTICLES; i++) {
+			for (int d = 0; d < 2; d++) {
+				double u = -600 + 1200 * rnd.nextDouble();
+				// jedes zweite Partikel knapp neben, auf oder hinter einer Zellgrenze
+				if (i % 2 == 0)
+					u = Math.round(u / CUTOFF) * CUTOFF + (rnd.nextInt(3) - 1) * 1e-9;
+				x[4*i + d] = u;
+			}
+			x[4*i + 2] = rnd.nextDouble() - 0.5;
+			x[4*i + 3] = rnd.nextDouble() - 0.5;
+		}
+		double[] gitter = new double[4 * PARTICLES];
+
+		// Test aufruf
+		pe.setCUTOFF(CUTOFF);
+		pe.evaluate(x, gitter, PARTICLES);
+		// ueber alle Paare mit Abstand kleiner CUTOFF
+		double c = pe.getSPRINGCONSTANT() / pe.getMASS();
+		double[] paare = new double[4 * PARTICLES];
+		int nachbarn = 0;
+		for (int i = 0; i < PARTICLES; i++) {
+			double fx = 0, fy = 0;
+			for (int t = 0; t < PARTICLES; t++) {
+				double xx = x[4*t] - x[4*i];
+				double yy = x[4*t + 1] - x[4*i + 1];
+				double len = Math.sqrt(xx*xx + yy*yy);
+				if (t == i || xx*xx + yy*yy >= CUTOFF * CUTOFF)
+					continue;
+				double f = c * (len - pe.getLEN()) / len;
+				fx += f * xx;
+				fy += -pe.getGRAVITY() + f * yy;
+				nachbarn++;
+			}
+			paare[4*i] = x[4*i + 2];
+			paare[4*i + 1] = x[4*i + 3];
+			paare[4*i + 2] = fx - pe.getDAMPING() / pe.getMASS() * x[4*i + 2];
+			paare[4*i + 3] = fy - pe.getDAMPING() / pe.getMASS() * x[4*i + 3];
+		}
+		// ein CUTOFF groesser als der Blob verbindet alle Partikel
+		pe.setCUTOFF(1e6);
+		double[] alle = pe.getForceError();
+
+		// Aufruf auswerten
+		assertTrue(nachbarn > PARTICLES);
+		for (int k = 0; k < 4 * PARTICLES; k++)
+			assertEquals(paare[k], gitter[k], 1e-9 * (1 + Math.abs(paare[k])));
+		assertEquals(0, alle[0], 1e-12);
+		assertEquals(0, alle[1], 1e-12);
+	}
+}
@@ -0,0 +1,95 @@
+package sleimiTests;
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import javax.swing.JPanel;
+
+import newOne.BlobRenderer;
+import newOne.BlobSnapshot;
+import newOne.PMgnt;
+import newOne.SpriteAtlas;
+
+import org.junit.Test;
+
+
+public class Neuzeichnen {
+
+	/** Nur der Bereich eines bewegten Partikels wird neu gezeichnet und das Bild ist trotzdem gleich wie komplett gezeichnet **/
+	@Test
+	public void test() {
+		// Test vorbereiten
+		final int XAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel
+		final int YAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel
+
+		final int PARTICLES = 20;			// Amount of Particles
+		final int PARTICLE_RADIUS = 20;  	// Particle radius
+		final int[][] OFFSET = {{10, 10}, {10, 10}, {10, 10}, {10, 10}, {10, 10}};
+
+		PMgnt pm = new PMgnt(PARTICLES,XAREA_PART_MGNT,YAREA_PART_MGNT,PARTICLE_RADIUS/2, PMgnt.Layout.CLUMPED, 5);
+		SpriteAtlas.Sprite[] body = new SpriteAtlas.Sprite[5];
+		for (int i = 0; i < body.length; i++) {
+			body[i] = SpriteAtlas.wrap(square(20, new Color(50 * i, 100, 0)));
+		}
+		SpriteAtlas.Sprite eyes = SpriteAtlas.wrap(square(8, Color.white));
+		SpriteAtlas.Sprite mouth = SpriteAtlas.wrap(square(12, Color.red));
+		BlobRenderer.Background background = new BlobRenderer.Background() {
+			public void paintBackground(Graphics g) {
+				g.setColor(Color.blue);
+				g.fillRect(0, 0, 400, 400);
+			}
+		};
+		JPanel window = new JPanel();
+		window.setSize(400, 400);
+		BlobRenderer renderer = new BlobRenderer(window, background, OFFSET);
+		renderer.setSprites(body, eyes, mouth);
+		BufferedImage screen = new BufferedImage(400, 400, BufferedImage.TYPE_INT_RGB);
+		Graphics g = screen.getGraphics();
+		BlobSnapshot f = new BlobSnapshot();
+		f.reset(pm.store, 1);
+
+		// Test aufruf
+		Rectangle first = renderer.update(f, 1);
+		renderer.paint(g, first);
+		f.capture(pm.store, 2);
+		Rectangle resting = renderer.update(f, 1);
+		pm.particlesystem[3].setLocation(pm.store.x[3] + 30, pm.store.y[3] + 5);
+		f.capture(pm.store, 3);
+		Rectangle moved = renderer.update(f, 1);
+		renderer.paint(g, moved);
+
+		// Aufruf auswerten
+		assertEquals(new Rectangle(0, 0, 400, 400), first);
+		assertNull(resting);
+		assertNotNull(moved);
+		assertTrue(moved.width * moved.height <= (20 + 30) * (20 + 5));
+		assertEquals(1, renderer.getFullRedraws());
+		assertEquals(1, renderer.getCleanFrames());
+
+		BlobRenderer complete = new BlobRenderer(null, background, OFFSET);
+		complete.setSprites(body, eyes, mouth);
+		complete.update(f, 1);
+		BufferedImage expected = new BufferedImage(400, 400, BufferedImage.TYPE_INT_RGB);
+		Graphics e = expected.getGraphics();
+		complete.renderTo(e, null);
+		for (int y = 0; y < 400; y++) {
+			for (int x = 0; x < 400; x++) {
+				assertEquals(expected.getRGB(x, y), screen.getRGB(x, y));
+			}
+		}
+		e.dispose();
+		g.dispose();
+	}
+
+	private BufferedImage square(int size, Color color) {
+		BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+		Graphics g = image.getGraphics();
+		g.setColor(color);
+		g.fillRect(0, 0, size, size);
+		g.dispose();
+		return image;
+	}
+}
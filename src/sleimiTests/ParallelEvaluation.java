@@ -0,0 +1,52 @@
+package sleimiTests;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import newOne.PMgnt;
+import newOne.PhysicEngine;
+
+import org.junit.Test;
+
+
+public class ParallelEvaluation {
+
+	/** Parallel gerechnete Schritte muessen bitgleich mit dem seriellen Schritt sein **/
+	@Test
+	public void test() {
+		// Test vorbereiten
+		final int XAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel
+		final int YAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel 
+		
+		final int PARTICLES = 200;			// Amount of Particles
+		final int PARTICLE_RADIUS = 20;  	// Particle radius
+		
+		PMgnt pm = new PMgnt(PARTICLES,XAREA_PART_MGNT,YAREA_PART_MGNT,PARTICLE_RADIUS/2);
+		PMgnt pm_parallel = new PMgnt(PARTICLES,XAREA_PART_MGNT,YAREA_PART_MGNT,PARTICLE_RADIUS/2);
+		for(int i = 0; i < PARTICLES; i++){
+			pm_parallel.particlesystem[i].setLocation(pm.particlesystem[i].getLocation(0), pm.particlesystem[i].getLocation(1));
+		}
+		
+		PhysicEngine serial = new PhysicEngine(pm.particlesystem);
+		serial.setThreads(1);
+		PhysicEngine parallel = new PhysicEngine(pm_parallel.particlesystem);
+		parallel.setThreads(4);
+		parallel.setParallelThreshold(0);
+		
+		// Test aufruf
+		for(int i = 0; i < 100; i++){
+			serial.step(0.05);
+			serial.modifyObjects();
+			parallel.step(0.05);
+			parallel.modifyObjects();
+		}
+		parallel.stopWorkers();
+		
+		// Aufruf auswerten
+		assertTrue(Arrays.equals(pm.store.x, pm_parallel.store.x));
+		assertTrue(Arrays.equals(pm.store.y, pm_parallel.store.y));
+		assertTrue(Arrays.equals(pm.store.vx, pm_parallel.store.vx));
+		assertTrue(Arrays.equals(pm.store.vy, pm_parallel.store.vy));
+	}
+
+}
@@ -0,0 +1,42 @@
+package sleimiTests;
+import static org.junit.Assert.*;
+
+import com.myphysicslab.simlab.DeterministicClock;
+import com.myphysicslab.simlab.DoublePendulum;
+import com.myphysicslab.simlab.RealTimeClock;
+import com.myphysicslab.simlab.Simulation;
+
+import org.junit.Test;
+
+
+public class SimulationsUhr {
+
+	/** Mit der DeterministicClock rechnet run() unabhaengig von der Last, die RealTimeClock holt hoechstens maxSteps nach **/
+	@Test
+	public void test() throws Exception {
+		// Test vorbereiten
+		Simulation bilder = new DoublePendulum(null);
+		Simulation kopflos = new DoublePendulum(null);
+		bilder.setClock(new DeterministicClock(0.01, 3));
+		RealTimeClock echt = new RealTimeClock(0.001, 5);
+
+		// Test aufruf
+		for (int i = 0; i < 100; i++) {
+			bilder.run();
+			if (i % 10 == 0)
+				Thread.sleep(20);	// langsames Zeichnen darf nichts aendern
+		}
+		for (int i = 0; i < 300; i++)
+			kopflos.step(0.01);
+		int erstes = echt.steps();
+		Thread.sleep(50);
+		int nachPause = echt.steps();
+
+		// Aufruf auswerten
+		assertEquals(3.0, bilder.getTime(), 1e-12);
+		assertArrayEquals(kopflos.getVars(), bilder.getVars(), 0);
+		assertEquals(0, erstes);
+		assertEquals(5, nachPause);
+		assertTrue(echt.getDropped() > 0.03);
+	}
+}
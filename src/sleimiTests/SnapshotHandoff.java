@@ -0,0 +1,51 @@
+package sleimiTests;
+import static org.junit.Assert.*;
+
+import newOne.BlobSnapshot;
+import newOne.PMgnt;
+import newOne.SnapshotExchange;
+
+import org.junit.Test;
+
+
+public class SnapshotHandoff {
+
+	/** Der Renderer bekommt immer den letzten vollstaendigen Tick, verworfene und doppelte Frames werden gezaehlt **/
+	@Test
+	public void test() {
+		// Test vorbereiten
+		final int XAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel
+		final int YAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel 
+		
+		final int PARTICLES = 20;			// Amount of Particles
+		final int PARTICLE_RADIUS = 20;  	// Particle radius
+		
+		PMgnt pm = new PMgnt(PARTICLES,XAREA_PART_MGNT,YAREA_PART_MGNT,PARTICLE_RADIUS/2);
+		SnapshotExchange exchange = new SnapshotExchange();
+		BlobSnapshot state = new BlobSnapshot();
+		
+		// Test aufruf - zwei Ticks ohne Frame dazwischen
+		state.capture(pm.store, 1);
+		exchange.publish(state);
+		pm.particlesystem[0].setLocation(1234, 0);
+		state.capture(pm.store, 2);
+		exchange.publish(state);
+		BlobSnapshot frame = exchange.take();
+		BlobSnapshot again = exchange.take();
+		
+		// Aufruf auswerten
+		assertEquals(2, frame.getTick());
+		assertEquals(1234, frame.getX(0, 1), 0);
+		assertEquals(PARTICLES, frame.size());
+		assertSame(frame, again);
+		assertEquals(1, exchange.getDropped());
+		assertEquals(1, exchange.getDuplicated());
+		
+		// der Physik-Thread darf den gezeigten Frame nicht mehr beschreiben
+		pm.particlesystem[0].setLocation(99, 0);
+		state.capture(pm.store, 3);
+		exchange.publish(state);
+		assertEquals(1234, frame.getX(0, 1), 0);
+	}
+
+}
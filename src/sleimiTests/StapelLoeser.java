@@ -0,0 +1,64 @@
+package sleimiTests;
+import static org.junit.Assert.*;
+
+import com.myphysicslab.simlab.BatchRungeKutta;
+import com.myphysicslab.simlab.DiffEq;
+import com.myphysicslab.simlab.DoublePendulumBatch;
+import com.myphysicslab.simlab.RungeKutta;
+
+import org.junit.Test;
+
+
+public class StapelLoeser {
+
+	/** Ein einzelnes Doppelpendel ueber die Stapel-Gleichungen **/
+	static class Einzeln implements DiffEq {
+		DoublePendulumBatch gleichungen = new DoublePendulumBatch();
+		double[] vars = new double[4];
+
+		public double[] getVars() {
+			return vars;
+		}
+
+		public boolean[] getCalc() {
+			return gleichungen.getCalc();
+		}
+
+		public void evaluate(double[] x, double[] change) {
+			gleichungen.evaluate(x, change, 0, 1);
+		}
+	}
+
+	/** Der Stapel rechnet mit mehreren Threads genau dasselbe wie ein RungeKutta je Pendel **/
+	@Test
+	public void test() {
+		// Test vorbereiten
+		final int PENDEL = 50;
+		final int SCHRITTE = 500;
+		BatchRungeKutta stapel = new BatchRungeKutta(new DoublePendulumBatch(), PENDEL, 3);
+		DoublePendulumBatch.sweep(stapel, Math.PI / 2);
+		Einzeln[] einzeln = new Einzeln[PENDEL];
+		RungeKutta[] loeser = new RungeKutta[PENDEL];
+		for (int m = 0; m < PENDEL; m++) {
+			einzeln[m] = new Einzeln();
+			einzeln[m].vars[0] = stapel.getVar(m, 0);
+			loeser[m] = new RungeKutta(einzeln[m]);
+		}
+
+		// Test aufruf
+		for (int s = 0; s < SCHRITTE; s++) {
+			stapel.step(0.01);
+			for (int m = 0; m < PENDEL; m++)
+				loeser[m].step(0.01);
+		}
+		stapel.shutdown();
+
+		// Aufruf auswerten
+		assertEquals(3, stapel.getThreads());
+		assertEquals((long) PENDEL * SCHRITTE, stapel.getInstanceSteps());
+		assertTrue(einzeln[0].vars[0] != -Math.PI / 2);	// hat sich bewegt
+		for (int m = 0; m < PENDEL; m++)
+			for (int i = 0; i < 4; i++)
+				assertEquals(einzeln[m].vars[i], stapel.getVar(m, i), 0);
+	}
+}
@@ -0,0 +1,60 @@
+package sleimiTests;
+import static org.junit.Assert.*;
+
+import newOne.PMgnt;
+import newOne.PhysicEngine;
+
+import org.junit.Test;
+
+
+public class SymmetricKernel {
+
+	/** Jedes Paar nur einmal rechnen muss ueber 10000 Schritte die gleiche Bahn ergeben wie vorher **/
+	@Test
+	public void test() {
+		// Test vorbereiten
+		final int XAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel
+		final int YAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel 
+		
+		final int PARTICLES = 20;			// Amount of Particles
+		final int PARTICLE_RADIUS = 20;  	// Particle radius
+		final int STEPS = 10000;
+		
+		PMgnt pm = new PMgnt(PARTICLES,XAREA_PART_MGNT,YAREA_PART_MGNT,PARTICLE_RADIUS/2);
+		PhysicEngine pe = new PhysicEngine(pm.particlesystem);
+		pe.setSymmetric(false);
+		PhysicEngine pe_symmetric = new PhysicEngine(pm.particlesystem);
+		
+		double[] state = new double[4*PARTICLES];
+		double[] change = new double[4*PARTICLES];
+		double[] change_symmetric = new double[4*PARTICLES];
+		
+		// Test aufruf - beide Kernel auf jedem Zustand der Bahn des alten Kernels vergleichen
+		// (die Bahnen selbst laufen durch Rundung auseinander, der Anfang ist chaotisch)
+		double maxDiff = 0;
+		for(int i = 0; i < STEPS; i++){
+			for(int p = 0; p < PARTICLES; p++){
+				state[4*p] = pm.store.x[p];
+				state[4*p+1] = pm.store.y[p];
+				state[4*p+2] = pm.store.vx[p];
+				state[4*p+3] = pm.store.vy[p];
+			}
+			pe.evaluate(state, change, PARTICLES);
+			pe_symmetric.evaluate(state, change_symmetric, PARTICLES);
+			double scale = 1;
+			for(int k = 0; k < 4*PARTICLES; k++){
+				scale = Math.max(scale, Math.abs(change[k]));
+			}
+			for(int k = 0; k < 4*PARTICLES; k++){
+				maxDiff = Math.max(maxDiff, Math.abs(change[k] - change_symmetric[k]) / scale);
+			}
+			pe.step(0.05);
+			pe.modifyObjects();
+		}
+		
+		// Aufruf auswerten
+		System.out.println("max relative difference: " + maxDiff);
+		assertTrue(maxDiff < 1e-9);
+	}
+
+}
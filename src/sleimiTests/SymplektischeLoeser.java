@@ -0,0 +1,68 @@
+package sleimiTests;
+import static org.junit.Assert.*;
+
+import com.myphysicslab.simlab.ImplicitMidpoint;
+import com.myphysicslab.simlab.RungeKutta;
+import com.myphysicslab.simlab.Verlet;
+
+import org.junit.Test;
+
+
+public class SymplektischeLoeser {
+
+	/** Verlet haelt die Energie ohne Drift mit einer Auswertung pro Schritt, ImplicitMidpoint bleibt bei steifer Feder stabil **/
+	@Test
+	public void test() {
+		// Test vorbereiten
+		final double FRAME = 0.05;			// Zeitschritt pro Bild
+		final int FRAMES = 100000;			// gut 80 Minuten Ausstellung
+		Feder verlet = new Feder(1);
+		Feder rk = new Feder(1);
+		Feder steif = new Feder(10000);
+		Feder steifRK = new Feder(10000);
+		Verlet v = new Verlet(verlet, new int[] {0, 1});
+		RungeKutta r = new RungeKutta(rk);
+		ImplicitMidpoint im = new ImplicitMidpoint(steif);
+		RungeKutta rSteif = new RungeKutta(steifRK);
+		double e0 = verlet.energie(), e0Steif = steif.energie();
+		Feder entspannt = new Feder(1);
+		Verlet vEntspannt = new Verlet(entspannt, new int[] {0, 1});
+
+		// Test aufruf
+		double driftErsteHaelfte = 0, driftZweiteHaelfte = 0;
+		double rkHaelfte = 0;
+		for (int i = 0; i < FRAMES; i++) {
+			v.step(FRAME);
+			r.step(FRAME);
+			double drift = Math.abs(verlet.energie() - e0) / e0;
+			if (i < FRAMES / 2) driftErsteHaelfte = Math.max(driftErsteHaelfte, drift);
+			else driftZweiteHaelfte = Math.max(driftZweiteHaelfte, drift);
+			if (i == FRAMES / 2) rkHaelfte = rk.energie();
+		}
+		for (int i = 0; i < 1000; i++) {
+			im.step(FRAME);
+			rSteif.step(FRAME);
+		}
+		// Feder per Regler ausgehaengt, die gemerkte Beschleunigung gilt nicht mehr
+		for (int i = 0; i < 10; i++)
+			vEntspannt.step(FRAME);
+		entspannt.k = 0;
+		vEntspannt.reset();
+		double vorher = entspannt.vars[1];
+		for (int i = 0; i < 10; i++)
+			vEntspannt.step(FRAME);
+
+		// Aufruf auswerten
+		System.out.println(v + " / " + im);
+		assertEquals(FRAMES + 1, verlet.evaluations);
+		assertTrue(driftErsteHaelfte < 1e-3);
+		// die Energie bleibt im gleichen Band statt weiter wegzulaufen
+		assertEquals(driftErsteHaelfte, driftZweiteHaelfte, driftErsteHaelfte * 0.01);
+		assertTrue(rk.energie() < rkHaelfte);
+		assertEquals(FRAMES * FRAME, verlet.vars[2], 1e-6);
+		assertEquals(e0Steif, steif.energie(), e0Steif * 1e-9);
+		assertEquals(0, im.getFailures());
+		assertFalse(Math.abs(steifRK.energie() - e0Steif) < e0Steif);
+		assertEquals(vorher, entspannt.vars[1], 0);
+	}
+}
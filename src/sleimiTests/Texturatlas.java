@@ -0,0 +1,51 @@
+package sleimiTests;
+import static org.junit.Assert.*;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import newOne.SpriteAtlas;
+
+import org.junit.Test;
+
+
+public class Texturatlas {
+
+	/** Jede Textur aus images/ liegt einmal im Atlas und sieht dort aus wie die Datei **/
+	@Test
+	public void test() throws IOException {
+		// Test vorbereiten
+		File images = new File("images");
+		String[] files = images.list();
+
+		// Test aufruf
+		SpriteAtlas atlas = SpriteAtlas.load(images);
+
+		// Aufruf auswerten
+		int png = 0;
+		for (String file : files) {
+			if (!file.endsWith(".png")) continue;
+			png++;
+			BufferedImage original = ImageIO.read(new File(images, file));
+			SpriteAtlas.Sprite sprite = atlas.get(file.substring(0, file.length() - 4));
+			assertNotNull(file, sprite);
+			assertEquals(original.getWidth(), sprite.getWidth());
+			assertEquals(original.getHeight(), sprite.getHeight());
+			BufferedImage packed = sprite.toImage();
+			for (int y = 0; y < original.getHeight(); y += 7) {
+				for (int x = 0; x < original.getWidth(); x += 7) {
+					int a = original.getRGB(x, y);
+					int b = packed.getRGB(x, y);
+					// voll deckende Pixel muessen gleich sein, halbtransparente koennen sich durch die Vormultiplikation runden
+					if ((a >>> 24) == 255) assertEquals(file, a, b);
+					else assertEquals(file, a >>> 24, b >>> 24, 1);
+				}
+			}
+		}
+		assertEquals(png, atlas.size());
+		assertNull(atlas.get("gibtsnicht"));
+	}
+}
@@ -0,0 +1,76 @@
+package sleimiTests;
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import newOne.PMgnt;
+import newOne.ParticleIndex;
+import newOne.ParticleStore;
+
+import org.junit.Test;
+
+
+public class Trefferindex {
+
+	/** Der Index findet die gleichen Partikel wie eine Suche ueber alle Partikel und wird nur nach Aenderungen neu gebaut **/
+	@Test
+	public void test() {
+		// Test vorbereiten
+		final int XAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel
+		final int YAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel
+
+		final int PARTICLES = 2000;			// Amount of Particles
+		final int PARTICLE_RADIUS = 20;  	// Particle radius
+		final int QUERIES = 500;
+
+		PMgnt pm = new PMgnt(PARTICLES,XAREA_PART_MGNT,YAREA_PART_MGNT,PARTICLE_RADIUS/2, PMgnt.Layout.CIRCLE, 1);
+		ParticleStore s = pm.store;
+		Random rnd = new Random(2);
+		int[] found = new int[PARTICLES];
+
+		// Test aufruf
+		ParticleIndex index = pm.getIndex();
+		for (int q = 0; q < QUERIES; q++) {
+			double px = index.getMinX() - 100 + rnd.nextDouble() * (index.getMaxX() - index.getMinX() + 200);
+			double py = index.getMinY() - 100 + rnd.nextDouble() * (index.getMaxY() - index.getMinY() + 200);
+			double r = rnd.nextDouble() * 120;
+
+			// Aufruf auswerten
+			int nearest = -1;
+			double best = r * r;
+			int inside = 0;
+			for (int i = 0; i < s.size(); i++) {
+				double d2 = (s.x[i] - px) * (s.x[i] - px) + (s.y[i] - py) * (s.y[i] - py);
+				if (d2 <= best) {
+					nearest = i;
+					best = d2;
+				}
+				if (d2 <= r * r) inside++;
+			}
+			int i = index.nearest(px, py, r);
+			if (nearest == -1) {
+				assertEquals(-1, i);
+			}
+			else {
+				double d2 = (s.x[i] - px) * (s.x[i] - px) + (s.y[i] - py) * (s.y[i] - py);
+				assertEquals(best, d2, 1e-9);
+			}
+			assertEquals(inside, index.radius(px, py, r, found));
+		}
+		assertEquals(1, index.getBuilds());
+
+		double xmin = s.x[0], sumX = 0;
+		for (int i = 0; i < s.size(); i++) {
+			xmin = Math.min(xmin, s.x[i]);
+			sumX += s.x[i];
+		}
+		assertEquals(xmin, index.getMinX(), 0);
+		assertEquals(sumX / s.size(), index.getCentroidX(), 1e-9);
+
+		// nach dem Verschieben eines Partikels ist der Index veraltet
+		pm.particlesystem[0].setLocation(-5000, 0);
+		assertEquals(-5000, pm.getIndex().getMinX(), 0);
+		assertEquals(0, pm.getIndex().nearest(-5000, 10, 20));
+		assertEquals(2, index.getBuilds());
+	}
+}
@@ -0,0 +1,60 @@
+package sleimiTests;
+import static org.junit.Assert.*;
+
+import newOne.PMgnt;
+import newOne.PhysicEngine;
+import newOne.SimulationLoop;
+
+import org.junit.Test;
+
+
+public class Wachsen {
+
+	/** Partikel werden bei laufender Physik hinzugefuegt und entfernt, Augen und Mund bleiben erhalten **/
+	@Test
+	public void test() {
+		// Test vorbereiten
+		final int XAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel
+		final int YAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel
+
+		final int PARTICLES = 20;			// Amount of Particles
+		final int PARTICLE_RADIUS = 20;  	// Particle radius
+
+		PMgnt pm = new PMgnt(PARTICLES,XAREA_PART_MGNT,YAREA_PART_MGNT,PARTICLE_RADIUS/2);
+		SimulationLoop loop = new SimulationLoop(new PhysicEngine(pm.particlesystem), pm, null, 1, 0.05);
+		loop.setSleep(0, 0);
+
+		// Test aufruf
+		// die Ticks laufen hier nacheinander statt auf dem Physik-Thread, die Aenderungen warten trotzdem auf den naechsten Tick
+		loop.tickNow();
+		pm.insertparticle(100);
+		int pending = pm.size();
+		loop.tickNow();
+		int grown = pm.size();
+		pm.removeparticle(30);
+		loop.tickNow();
+		int shrunk = pm.size();
+		pm.removeparticle(1000);
+		loop.tickNow();
+		int smallest = pm.size();
+		long ticks = loop.getTicks();
+		for (int i = 0; i < 10; i++)
+			loop.tickNow();
+
+		// Aufruf auswerten
+		assertEquals(PARTICLES, pending);
+		assertEquals(PARTICLES + 100, grown);
+		assertEquals(PARTICLES + 70, shrunk);
+		assertEquals(PMgnt.MIN_PARTICLES, smallest);
+		assertEquals(ticks + 10, loop.getTicks());
+		int eyes = 0, mouth = 0;
+		for (int i = 0; i < pm.size(); i++) {
+			assertEquals(i, pm.particlesystem[i].getIndex());
+			assertFalse(Double.isNaN(pm.store.x[i]));
+			if (pm.store.kind[i] == 1) eyes++;
+			if (pm.store.kind[i] == 2) mouth++;
+		}
+		assertEquals(1, eyes);
+		assertEquals(1, mouth);
+	}
+}
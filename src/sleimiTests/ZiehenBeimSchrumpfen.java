@@ -0,0 +1,72 @@
+package sleimiTests;
+import static org.junit.Assert.*;
+
+import newOne.Events;
+import newOne.PMgnt;
+import newOne.PhysicEngine;
+import newOne.SimulationLoop;
+
+import org.junit.Test;
+
+
+public class ZiehenBeimSchrumpfen {
+
+	/** Waehrend ein Partikel gezogen wird, werden Partikel entfernt. Der gezogene bleibt erhalten und folgt der Maus, auch wenn er umsortiert wird **/
+	@Test
+	public void test() {
+		// Test vorbereiten
+		final int XAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel
+		final int YAREA_PART_MGNT = 100; 	// Sammelpunkt der Partikel
+
+		final int PARTICLES = 20;			// Amount of Particles
+		final int PARTICLE_RADIUS = 20;  	// Particle radius
+		final int MOUSE = 1000;				// weit weg vom Schleimi, dort liegt nur der gezogene Partikel
+
+		PMgnt pm = new PMgnt(PARTICLES,XAREA_PART_MGNT,YAREA_PART_MGNT,PARTICLE_RADIUS/2, PMgnt.Layout.CLUMPED, 5);
+		SimulationLoop loop = new SimulationLoop(new PhysicEngine(pm.particlesystem), pm, null, 1, 0.05);
+		loop.setSleep(0, 0);
+		Events event = new Events(pm,null);
+		event.setMuted(true);
+		event.setQueued(true);
+		loop.setInput(event);
+
+		// der letzte Partikel ist nach dem Wachsen ein Koerperpartikel, jedes Entfernen tauscht ihn nach vorne
+		pm.insertparticle(1);
+		loop.tickNow();
+		int last = pm.size() - 1;
+		pm.particlesystem[last].setLocation(MOUSE, MOUSE);
+
+		// Test aufruf
+		event.verzerren(MOUSE, MOUSE, false);
+		loop.tickNow();
+		int grabbed = pm.getGrabbed();
+		boolean moved = false;
+		int steps = 0;
+		while (pm.size() > PMgnt.MIN_PARTICLES) {
+			steps++;
+			event.verzerren(MOUSE + steps, MOUSE, false);
+			pm.removeparticle(1);
+			loop.tickNow();
+
+			// Aufruf auswerten
+			int g = pm.getGrabbed();
+			moved |= g != last;
+			assertTrue(g < pm.size());
+			assertTrue(pm.store.isLocked(g));
+			assertEquals(0, pm.store.kind[g]);
+			assertEquals(MOUSE + steps - 100, pm.store.x[g], 0);
+			assertEquals(MOUSE - 100, pm.store.y[g], 0);
+		}
+		event.verzerren(MOUSE + steps, MOUSE, true);
+		loop.tickNow();
+
+		// Aufruf auswerten
+		assertEquals(last, grabbed);
+		assertTrue(moved);
+		assertEquals(PARTICLES + 1 - PMgnt.MIN_PARTICLES, steps);
+		assertEquals(-1, pm.getGrabbed());
+		for (int i = 0; i < pm.size(); i++) {
+			assertFalse(pm.store.isLocked(i));
+		}
+	}
+}